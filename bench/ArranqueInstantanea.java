@@ -0,0 +1,62 @@
+// ============================================================
+// CLASE ARRANQUEINSTANTANEA
+// Mide cuánto se tarda en poder consultar una agenda guardada con
+// InstantaneaAgenda: abrir el fichero y hacer la primera búsqueda
+// por nombre y por teléfono. Para comparar, mide también lo que se
+// tarda en cargarla entera en una Agenda
+//
+// El fichero se crea en la carpeta temporal y se borra al terminar
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx8g -cp out ArranqueInstantanea [contactos]
+//   (por defecto: 1000000 contactos)
+// ============================================================
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class ArranqueInstantanea {
+
+    public static void main(String[] args) throws Exception {
+        int contactos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        for (int i = 0; i < contactos; i++) {
+            agenda.añadir(new Contacto("Nombre" + i, "Apellido" + i, "6" + (10_000_000 + i)));
+        }
+
+        Path carpeta = Files.createTempDirectory("instantanea");
+        Path fichero = carpeta.resolve("agenda.mapa");
+        try {
+            long inicio = System.nanoTime();
+            InstantaneaAgenda.guardar(agenda, fichero);
+            System.out.printf("Guardar %,d contactos: %,.0f ms (%,d MB)%n", contactos,
+                    (System.nanoTime() - inicio) / 1e6, Files.size(fichero) >> 20);
+            agenda = null;  // Que no cuente como memoria ocupada al cargar
+
+            // Abrir y primera consulta: es lo que espera quien arranca el programa
+            int buscado = contactos / 2;
+            inicio = System.nanoTime();
+            InstantaneaAgenda instantanea = InstantaneaAgenda.abrir(fichero);
+            Optional<Contacto> encontrado = instantanea.buscaContacto("nombre" + buscado, "APELLIDO" + buscado);
+            double primeraBusqueda = (System.nanoTime() - inicio) / 1e6;
+            int porTelefono = instantanea.buscarPorTelefono("6" + (10_000_000 + buscado)).size();
+            double primeraPorTelefono = (System.nanoTime() - inicio) / 1e6;
+            System.out.printf("Abrir + primera búsqueda por nombre: %,.1f ms (%s)%n", primeraBusqueda,
+                    encontrado.isPresent() ? "encontrado" : "NO encontrado");
+            System.out.printf("... + primera búsqueda por teléfono: %,.1f ms (%d encontrados)%n",
+                    primeraPorTelefono, porTelefono);
+
+            // Lo que costaría tener la Agenda completa en memoria
+            inicio = System.nanoTime();
+            Agenda cargada = new Agenda(Agenda.SIN_LIMITE);
+            instantanea.cargarEn(cargada);
+            System.out.printf("Cargar todo en una Agenda: %,.0f ms%n", (System.nanoTime() - inicio) / 1e6);
+        } finally {
+            Files.deleteIfExists(fichero);
+            Files.deleteIfExists(carpeta);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+// ============================================================
+// CLASE BENCHMARKAGENDA
+// Mide cuánto tardan las operaciones de la agenda con distintos
+// tamaños, para comprobar con números si un cambio la hace más
+// rápida o más lenta
+//
+// Para cada operación y tamaño muestra:
+// - ops/s: operaciones por segundo (rendimiento)
+// - ns/op: tiempo medio de cada operación en nanosegundos
+// - B/op: bytes de memoria reservados por operación
+// - GC ms: tiempo que pasó el recolector de basura
+//
+// Al final de cada tamaño compara la memoria por contacto de
+// Agenda y de AgendaCompacta
+//
+// La agenda no escribe nada por pantalla, así que se mide solo su
+// trabajo (sin el coste de mostrar los mensajes)
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx8g -cp out BenchmarkAgenda 1000,10000,100000,1000000
+// ============================================================
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.Random;
+
+public class BenchmarkAgenda {
+
+    // ============================================================
+    // NOMBRES REALISTAS
+    // Los más frecuentes aparecen muchas más veces que los raros,
+    // como en una guía de teléfonos de verdad
+    // ============================================================
+
+    private static final String[] NOMBRES = {
+        "María", "Antonio", "Carmen", "José", "Ana", "Manuel", "Laura", "Francisco",
+        "Isabel", "David", "Lucía", "Juan", "Pilar", "Javier", "Marta", "Daniel",
+        "Elena", "Carlos", "Sara", "Miguel", "Paula", "Alejandro", "Cristina", "Rafael",
+        "Raquel", "Pablo", "Rosa", "Sergio", "Dolores", "Fernando", "Nuria", "Jorge",
+        "Silvia", "Luis", "Beatriz", "Alberto", "Patricia", "Álvaro", "Irene", "Diego"
+    };
+
+    private static final String[] APELLIDOS = {
+        "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez",
+        "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno",
+        "Muñoz", "Álvarez", "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres",
+        "Domínguez", "Vázquez", "Ramos", "Gil", "Ramírez", "Serrano", "Blanco", "Molina"
+    };
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private static final PrintStream RESULTADOS = System.out;
+
+    // Cada medición se repite varias veces; las primeras son de
+    // "calentamiento" para que Java compile el código antes de medir
+    private static final int CALENTAMIENTOS = 2;
+    private static final int REPETICIONES = 3;
+
+    // Como mucho tantas operaciones por medición en las consultas
+    private static final int MAX_CONSULTAS = 1_000_000;
+
+    // Algo que la operación debe ir variando para que Java no
+    // pueda eliminar el trabajo por "no servir para nada"
+    private static long sumidero;
+
+    // Una operación a medir: recibe el número de vuelta
+    private interface Operacion {
+        void ejecutar(int i);
+    }
+
+    // Prepara el estado antes de cada repetición (no se mide)
+    private interface Preparacion {
+        void preparar();
+    }
+
+    // ============================================================
+    // MÉTODO MAIN
+    // Argumento opcional: tamaños separados por comas
+    // ============================================================
+
+    public static void main(String[] args) {
+        String lista = args.length > 0 ? args[0] : "1000,10000,100000,1000000";
+
+        RESULTADOS.printf("%-20s %10s %14s %12s %10s %8s%n",
+                "operación", "tamaño", "ops/s", "ns/op", "B/op", "GC ms");
+
+        for (String texto : lista.split(",")) {
+            medirTamanio(Integer.parseInt(texto.trim()));
+        }
+
+        RESULTADOS.printf("%n%-20s %10s %14s %12s%n", "memoria", "tamaño", "B/contacto", "proporción");
+        for (String texto : lista.split(",")) {
+            medirMemoria(Integer.parseInt(texto.trim()));
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: medirTamanio
+    // Mide todas las operaciones con una agenda de "n" contactos
+    // ============================================================
+
+    private static void medirTamanio(int n) {
+        Contacto[] datos = generarContactos(n, new Random(42));
+
+        // Consultas: la mitad existen y la otra mitad no
+        int consultas = Math.min(n, MAX_CONSULTAS);
+        Random azar = new Random(7);
+        String[] nombres = new String[consultas];
+        String[] apellidos = new String[consultas];
+        Contacto[] sondas = new Contacto[consultas];
+        for (int i = 0; i < consultas; i++) {
+            Contacto c = datos[azar.nextInt(n)];
+            nombres[i] = c.getNombre();
+            apellidos[i] = (i % 2 == 0) ? c.getApellido() : c.getApellido() + " X";
+            sondas[i] = new Contacto(nombres[i], apellidos[i], null);
+        }
+
+        // añadirContacto: llenamos una agenda vacía con "n" contactos
+        Agenda[] agenda = new Agenda[1];
+        medir("añadirContacto", n, n,
+                () -> agenda[0] = new Agenda(Agenda.SIN_LIMITE),
+                i -> agenda[0].añadirContacto(new Contacto(datos[i].getNombre(),
+                        datos[i].getApellido(), datos[i].getTelefono())));
+
+        // Agenda llena para las consultas (se crea una sola vez)
+        Agenda llena = construir(datos);
+
+        medir("existeContacto", n, consultas, null,
+                i -> sumidero += llena.existeContacto(sondas[i]) ? 1 : 0);
+
+        medir("buscaContacto", n, consultas, null,
+                i -> sumidero += llena.buscaContacto(nombres[i], apellidos[i]).isPresent() ? 1 : 0);
+
+        medir("modificarTelefono", n, consultas, null,
+                i -> llena.modificarTelefono(nombres[i], apellidos[i], "600" + i));
+
+        medir("listarContactos", n, 1, null,
+                i -> sumidero += llena.listarContactos().size());
+
+        // eliminarContacto: vaciamos en orden aleatorio una agenda llena
+        int[] orden = permutacion(n, new Random(11));
+        medir("eliminarContacto", n, n,
+                () -> agenda[0] = construir(datos),
+                i -> agenda[0].eliminarContacto(new Contacto(datos[orden[i]].getNombre(),
+                        datos[orden[i]].getApellido(), null)));
+    }
+
+    // ============================================================
+    // MÉTODO: medir
+    // Ejecuta "operaciones" veces la operación, varias repeticiones,
+    // y muestra la mejor (la que menos ruido tuvo)
+    // ============================================================
+
+    private static void medir(String nombre, int tamanio, int operaciones,
+                              Preparacion preparacion, Operacion operacion) {
+        com.sun.management.ThreadMXBean hilos =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+
+        double mejorNs = Double.MAX_VALUE;
+        double bytesPorOp = 0;
+        long gcMs = 0;
+
+        for (int r = 0; r < CALENTAMIENTOS + REPETICIONES; r++) {
+            if (preparacion != null) {
+                preparacion.preparar();
+            }
+
+            long gcAntes = tiempoGc();
+            long bytesAntes = hilos.getThreadAllocatedBytes(hilo);
+            long inicio = System.nanoTime();
+
+            for (int i = 0; i < operaciones; i++) {
+                operacion.ejecutar(i);
+            }
+
+            long duracion = System.nanoTime() - inicio;
+            long bytes = hilos.getThreadAllocatedBytes(hilo) - bytesAntes;
+            long gc = tiempoGc() - gcAntes;
+
+            // Las vueltas de calentamiento no cuentan
+            if (r >= CALENTAMIENTOS && (double) duracion / operaciones < mejorNs) {
+                mejorNs = (double) duracion / operaciones;
+                bytesPorOp = (double) bytes / operaciones;
+                gcMs = gc;
+            }
+        }
+
+        RESULTADOS.printf("%-20s %10d %14.0f %12.1f %10.1f %8d%n",
+                nombre, tamanio, 1e9 / mejorNs, mejorNs, bytesPorOp, gcMs);
+    }
+
+    // ============================================================
+    // MÉTODO: medirMemoria
+    // Mide cuánta memoria ocupa cada contacto en Agenda y en
+    // AgendaCompacta. Los textos se copian para que la agenda no
+    // comparta Strings con los datos de prueba
+    // ============================================================
+
+    private static void medirMemoria(int n) {
+        Contacto[] datos = generarContactos(n, new Random(42));
+
+        long antes = memoriaOcupada();
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        for (Contacto c : datos) {
+            agenda.añadir(copia(c));
+        }
+        double porContacto = (double) (memoriaOcupada() - antes) / n;
+        sumidero += agenda.obtenerNumeroContactos();
+        agenda = null;
+
+        antes = memoriaOcupada();
+        AgendaCompacta compacta = new AgendaCompacta();
+        for (Contacto c : datos) {
+            compacta.añadir(copia(c));
+        }
+        double porContactoCompacta = (double) (memoriaOcupada() - antes) / n;
+        sumidero += compacta.obtenerNumeroContactos();
+
+        // Sin esto, Java podría liberar "datos" antes de la última
+        // medición (ya no se usa) y el resultado saldría negativo
+        Reference.reachabilityFence(datos);
+
+        RESULTADOS.printf("%-20s %10d %14.1f %12s%n", "Agenda", n, porContacto, "");
+        RESULTADOS.printf("%-20s %10d %14.1f %11.1fx%n", "AgendaCompacta", n,
+                porContactoCompacta, porContacto / porContactoCompacta);
+        RESULTADOS.printf("%-20s %10d %14.1f %12s%n", "  (informe propio)", n,
+                compacta.bytesPorContacto(), "");
+    }
+
+    // Memoria ocupada del heap después de pedir una recolección
+    private static long memoriaOcupada() {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Contacto copia(Contacto c) {
+        return new Contacto(new String(c.getNombre()), new String(c.getApellido()),
+                new String(c.getTelefono()));
+    }
+
+    // ============================================================
+    // MÉTODOS AUXILIARES
+    // ============================================================
+
+    // Milisegundos acumulados por todos los recolectores de basura
+    private static long tiempoGc() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Crea "n" contactos distintos con nombres de frecuencia realista
+    // (los primeros de cada lista salen mucho más a menudo)
+    private static Contacto[] generarContactos(int n, Random azar) {
+        Contacto[] datos = new Contacto[n];
+        for (int i = 0; i < n; i++) {
+            String nombre = NOMBRES[sesgado(azar, NOMBRES.length)];
+            String apellido = APELLIDOS[sesgado(azar, APELLIDOS.length)] + " "
+                    + APELLIDOS[sesgado(azar, APELLIDOS.length)];
+
+            // El número final garantiza que no haya dos iguales
+            datos[i] = new Contacto(nombre, apellido + " " + i, "6" + (10_000_000 + i));
+        }
+        return datos;
+    }
+
+    // Número entre 0 y limite-1 donde los pequeños son más probables
+    private static int sesgado(Random azar, int limite) {
+        double x = azar.nextDouble();
+        return (int) (x * x * limite);
+    }
+
+    private static Agenda construir(Contacto[] datos) {
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        for (Contacto c : datos) {
+            agenda.añadir(new Contacto(c.getNombre(), c.getApellido(), c.getTelefono()));
+        }
+        return agenda;
+    }
+
+    // Los números de 0 a n-1 desordenados al azar
+    private static int[] permutacion(int n, Random azar) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = azar.nextInt(i + 1);
+            int t = p[i];
+            p[i] = p[j];
+            p[j] = t;
+        }
+        return p;
+    }
+}
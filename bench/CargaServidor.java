@@ -0,0 +1,118 @@
+// ============================================================
+// CLASE CARGASERVIDOR
+// Prueba de carga del modo servidor: arranca un ServidorAgenda en
+// este mismo programa y lo bombardea con órdenes desde varias
+// conexiones por 127.0.0.1, para ver cuántas peticiones por
+// segundo atiende
+//
+// Cada conexión envía "enVuelo" órdenes seguidas sin esperar
+// (pipelining) y luego lee sus respuestas. Con enVuelo = 1 cada
+// orden espera su respuesta antes de enviar la siguiente
+//
+// Mezcla de órdenes: 70% find, 20% exists, 10% setphone
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -cp out CargaServidor [conexiones] [segundos] [enVuelo] [contactos]
+//   (por defecto: 4 conexiones, 5 segundos, 128 en vuelo, 100000 contactos)
+// ============================================================
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CargaServidor {
+
+    public static void main(String[] args) throws Exception {
+        int conexiones = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int enVuelo = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+        int contactos = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        AgendaConcurrente agenda = new AgendaConcurrente(Agenda.SIN_LIMITE);
+        for (int i = 0; i < contactos; i++) {
+            agenda.añadir(new Contacto("Nombre" + i, "Apellido" + i, "6" + (10_000_000 + i)));
+        }
+
+        try (ServidorAgenda servidor = ServidorAgenda.iniciar(agenda, 0)) {
+            System.out.println("Servidor en el puerto " + servidor.getPuerto() + " con " + contactos + " contactos");
+
+            // Primero una vuelta corta para que el JIT compile el código
+            medir(servidor.getPuerto(), conexiones, 1, enVuelo, contactos);
+
+            System.out.printf("%-12s %-10s %14s%n", "conexiones", "en vuelo", "peticiones/s");
+            for (int vuelo : new int[] {1, enVuelo}) {
+                double porSegundo = medir(servidor.getPuerto(), conexiones, segundos, vuelo, contactos);
+                System.out.printf("%-12d %-10d %,14.0f%n", conexiones, vuelo, porSegundo);
+            }
+        }
+    }
+
+    // Lanza "conexiones" clientes durante "segundos" y devuelve las
+    // peticiones por segundo que se atendieron entre todos
+    private static double medir(int puerto, int conexiones, int segundos, int enVuelo, int contactos)
+            throws InterruptedException {
+        LongAdder atendidas = new LongAdder();
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        long inicio = System.nanoTime();
+
+        Thread[] clientes = new Thread[conexiones];
+        for (int i = 0; i < conexiones; i++) {
+            long semilla = i;
+            clientes[i] = new Thread(() -> cliente(puerto, fin, enVuelo, contactos, semilla, atendidas));
+            clientes[i].start();
+        }
+        for (Thread cliente : clientes) {
+            cliente.join();
+        }
+
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+        return atendidas.sum() / transcurrido;
+    }
+
+    private static void cliente(int puerto, long fin, int enVuelo, int contactos, long semilla,
+                                LongAdder atendidas) {
+        Random aleatorio = new Random(semilla);
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), puerto);
+             BufferedWriter salida = new BufferedWriter(
+                     new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+             BufferedReader entrada = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+            s.setTcpNoDelay(true);
+
+            while (System.nanoTime() < fin) {
+                // Enviamos una tanda de órdenes seguidas...
+                for (int i = 0; i < enVuelo; i++) {
+                    int n = aleatorio.nextInt(contactos);
+                    int tipo = aleatorio.nextInt(10);
+                    if (tipo < 7) {
+                        salida.write("find\tNombre" + n + "\tApellido" + n + "\n");
+                    } else if (tipo < 9) {
+                        salida.write("exists\tnombre" + n + "\tAPELLIDO" + n + "\n");
+                    } else {
+                        salida.write("setphone\tNombre" + n + "\tApellido" + n + "\t6" + aleatorio.nextInt(99_999_999) + "\n");
+                    }
+                }
+                salida.flush();
+
+                // ...y después leemos sus respuestas (una línea cada una)
+                for (int i = 0; i < enVuelo; i++) {
+                    if (entrada.readLine() == null) {
+                        throw new IOException("el servidor cerró la conexión");
+                    }
+                }
+                atendidas.add(enVuelo);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
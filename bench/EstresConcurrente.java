@@ -0,0 +1,194 @@
+// ============================================================
+// CLASE ESTRESCONCURRENTE
+// Prueba de estrés de AgendaConcurrente: varios hilos añaden,
+// eliminan, cambian teléfonos y leen a la vez sobre pocas claves
+// (para que choquen mucho) y al final se comprueba que no se ha
+// perdido ni duplicado nada
+//
+// Cada hilo lleva la cuenta de sus altas y bajas que tuvieron
+// éxito. Al terminar, para cada nombre y apellido:
+// - altas - bajas tiene que ser 0 o 1 (2 sería un duplicado)
+// - y coincidir con lo que dice buscar()
+// Además la suma tiene que ser obtenerNumeroContactos(), el
+// listado ordenado no puede tener claves repetidas ni desordenadas,
+// contactos() tiene que dar lo mismo que listarContactos() y cada
+// teléfono tiene que encontrar a su contacto
+//
+// Si algo no cuadra termina con una excepción (y código de salida
+// distinto de 0)
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -cp out EstresConcurrente [hilos] [operaciones por hilo] [claves]
+//   (por defecto: 8 hilos, 200000 operaciones, 2000 claves)
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+public class EstresConcurrente {
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operaciones = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int claves = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        AgendaConcurrente agenda = new AgendaConcurrente(Agenda.SIN_LIMITE);
+        agenda.setOrdenAlfabetico(OrdenAlfabetico.ESPAÑOL);
+
+        // Altas menos bajas con éxito de cada clave (entre todos los hilos)
+        AtomicIntegerArray netas = new AtomicIntegerArray(claves);
+        LongAdder altas = new LongAdder();
+        LongAdder bajas = new LongAdder();
+        LongAdder telefonos = new LongAdder();
+        LongAdder lecturas = new LongAdder();
+
+        // El primer error que vea un hilo (lecturas incoherentes)
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            Thread t = new Thread(() -> {
+                try {
+                    salida.await();
+                    ThreadLocalRandom azar = ThreadLocalRandom.current();
+                    for (int i = 0; i < operaciones && error.get() == null; i++) {
+                        int k = azar.nextInt(claves);
+                        int tirada = azar.nextInt(100);
+                        if (tirada < 30) {
+                            // 30% altas
+                            if (agenda.añadir(contacto(k, "6" + hilo + i)) == ResultadoAlta.AÑADIDO) {
+                                netas.incrementAndGet(k);
+                                altas.increment();
+                            }
+                        } else if (tirada < 55) {
+                            // 25% bajas (con otro objeto de la misma clave)
+                            if (agenda.eliminar(contacto(k, null)) == ResultadoBaja.ELIMINADO) {
+                                netas.decrementAndGet(k);
+                                bajas.increment();
+                            }
+                        } else if (tirada < 70) {
+                            // 15% cambios de teléfono
+                            if (agenda.modificarTelefono(nombre(k), apellido(k), "7" + hilo + i)) {
+                                telefonos.increment();
+                            }
+                        } else {
+                            // 30% lecturas: lo encontrado tiene que ser lo buscado
+                            Optional<Contacto> encontrado = agenda.buscar(nombre(k), apellido(k));
+                            if (encontrado.isPresent() && !encontrado.get().getApellido().equals(apellido(k))) {
+                                throw new IllegalStateException("buscar(" + k + ") devolvió " + encontrado.get());
+                            }
+                            lecturas.increment();
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }, "estres-" + h);
+            trabajadores.add(t);
+            t.start();
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        if (error.get() != null) {
+            throw new IllegalStateException("Fallo durante la prueba", error.get());
+        }
+
+        System.out.printf("%d hilos, %,d operaciones en %.2f s (%,.0f op/s)%n", hilos,
+                (long) hilos * operaciones, segundos, hilos * operaciones / segundos);
+        System.out.printf("altas %,d  bajas %,d  teléfonos %,d  lecturas %,d%n",
+                altas.sum(), bajas.sum(), telefonos.sum(), lecturas.sum());
+
+        comprobar(agenda, netas, claves);
+        System.out.println("OK: sin altas perdidas ni contactos duplicados");
+    }
+
+    // ============================================================
+    // COMPROBACIONES FINALES (ya sin hilos trabajando)
+    // ============================================================
+
+    private static void comprobar(AgendaConcurrente agenda, AtomicIntegerArray netas, int claves) {
+        int esperados = 0;
+        for (int k = 0; k < claves; k++) {
+            int neta = netas.get(k);
+            if (neta != 0 && neta != 1) {
+                fallar("La clave " + k + " tiene " + neta + " altas netas");
+            }
+            boolean esta = agenda.buscar(nombre(k), apellido(k)).isPresent();
+            if (esta != (neta == 1)) {
+                fallar("La clave " + k + " tiene " + neta + " altas netas pero buscar dice " + esta);
+            }
+            esperados += neta;
+        }
+
+        if (agenda.obtenerNumeroContactos() != esperados) {
+            fallar("obtenerNumeroContactos() = " + agenda.obtenerNumeroContactos() + ", esperados " + esperados);
+        }
+
+        // Listado ordenado: mismo tamaño, sin claves repetidas y en orden
+        List<Contacto> listado = agenda.listarContactos();
+        if (listado.size() != esperados) {
+            fallar("listarContactos() tiene " + listado.size() + " contactos, esperados " + esperados);
+        }
+        OrdenAlfabetico orden = agenda.getOrdenAlfabetico();
+        Set<String> vistas = new HashSet<>();
+        for (int i = 0; i < listado.size(); i++) {
+            Contacto c = listado.get(i);
+            if (!vistas.add(c.getClave())) {
+                fallar("Contacto repetido en el listado: " + c);
+            }
+            if (i > 0 && orden.comparar(listado.get(i - 1), c) > 0) {
+                fallar("Listado desordenado: " + listado.get(i - 1) + " antes de " + c);
+            }
+        }
+
+        // El recorrido por tandas tiene que dar lo mismo
+        List<Contacto> recorrido = agenda.contactos().collect(Collectors.toList());
+        if (!recorrido.equals(listado)) {
+            fallar("contactos() no coincide con listarContactos()");
+        }
+
+        // Cada teléfono encuentra a su contacto (el índice de teléfonos
+        // no se quedó con el teléfono anterior de ningún cambio)
+        for (Contacto c : listado) {
+            List<Contacto> dueños = agenda.buscarPorTelefono(c.getTelefono());
+            if (Collections.frequency(dueños, c) != 1) {
+                fallar("buscarPorTelefono(" + c.getTelefono() + ") no encuentra a " + c);
+            }
+        }
+    }
+
+    private static void fallar(String mensaje) {
+        throw new IllegalStateException(mensaje);
+    }
+
+    private static Contacto contacto(int k, String telefono) {
+        return new Contacto(nombre(k), apellido(k), telefono);
+    }
+
+    private static String nombre(int k) {
+        return "Nombre" + (k % 97);
+    }
+
+    private static String apellido(int k) {
+        return "Apellido Núñez" + k;
+    }
+}
@@ -0,0 +1,175 @@
+// ============================================================
+// CLASE LATENCIAAPROXIMADA
+// Mide buscarAproximado en una agenda grande y, sobre todo, que el
+// índice de trigramas no frene a los cambios: eliminar y renombrar
+// dejan entradas viejas en el índice que se quitan poco a poco (ver
+// IndiceAproximado.limpiar), así que ningún cambio debería tardar
+// mucho más que los demás aunque la agenda tenga millones
+//
+// 1. Búsquedas con erratas: percentiles 50 y 99
+// 2. Cambios mezclados (altas, bajas y renombrados): percentiles
+//    50, 99 y 99,9 y el peor de cada tipo. Al peor se le descuenta
+//    el tiempo que la JVM estuvo parada recogiendo basura durante
+//    ese cambio (eso no es de la agenda); el peor con la pausa
+//    incluida se muestra aparte
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx5g -Xmn300m -cp out LatenciaAproximada [contactos] [búsquedas] [cambios]
+//   (por defecto: 5000000 contactos, 2000 búsquedas y 1000000
+//   cambios; 5 millones de contactos ocupan unos 4 GB de heap)
+// ============================================================
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatenciaAproximada {
+
+    private static final String[] NOMBRES = {
+        "Ana", "José", "María", "Luis", "Carmen", "Antonio", "Lucía", "Manuel", "Pilar", "Francisco",
+        "Elena", "David", "Isabel", "Javier", "Laura", "Daniel", "Marta", "Carlos", "Sara", "Miguel",
+        "Paula", "Rafael", "Cristina", "Pedro", "Raquel", "Ángel", "Beatriz", "Pablo", "Nuria", "Sergio"
+    };
+
+    private static final String[] APELLIDOS = {
+        "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez", "Gómez",
+        "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero",
+        "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos", "Gil", "Ramírez",
+        "Serrano", "Blanco", "Molina", "Morales", "Suárez", "Ortega", "Delgado", "Castro", "Ortiz"
+    };
+
+    public static void main(String[] args) {
+        int contactos = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int busquedas = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int cambios = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < contactos; i++) {
+            agenda.añadir(contacto(i));
+        }
+        System.gc();
+        Runtime memoria = Runtime.getRuntime();
+        System.out.printf("%,d contactos cargados en %.1f s (%,d MB de heap)%n", contactos,
+                (System.nanoTime() - inicio) / 1e9, (memoria.totalMemory() - memoria.freeMemory()) >> 20);
+
+        Random azar = new Random(42);
+
+        // ============================================================
+        // 1. BÚSQUEDAS CON ERRATAS
+        // ============================================================
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {  // La primera calienta el JIT
+            long[] tiempos = new long[busquedas];
+            for (int q = 0; q < busquedas; q++) {
+                String texto = conErrata(nombreCompleto(azar.nextInt(contactos)), azar);
+                long t = System.nanoTime();
+                agenda.buscarAproximado(texto, 10);
+                tiempos[q] = System.nanoTime() - t;
+            }
+            if (vuelta == 1) {
+                Arrays.sort(tiempos);
+                System.out.printf("buscarAproximado   p50 %7.2f ms   p99 %7.2f ms%n",
+                        percentil(tiempos, 50) / 1e6, percentil(tiempos, 99) / 1e6);
+            }
+        }
+
+        // ============================================================
+        // 2. CAMBIOS: 50% bajas, 40% renombrados, 10% altas
+        // Las bajas y los renombrados dejan entradas viejas en el
+        // índice de trigramas. Aquí se ve si algún cambio paga por
+        // quitarlas de golpe
+        // ============================================================
+
+        long[] tiempos = new long[cambios];
+        long[] peor = new long[3];
+        long peorConPausa = 0;
+        long msRecolector = msRecolector();
+        String[] tipos = {"eliminar", "renombrar", "añadir"};
+        int siguiente = contactos;
+        for (int i = 0; i < cambios; i++) {
+            int k = azar.nextInt(siguiente);
+            int tirada = azar.nextInt(10);
+            int tipo = tirada < 5 ? 0 : tirada < 9 ? 1 : 2;
+            long t = System.nanoTime();
+            if (tipo == 0) {
+                agenda.eliminar(contacto(k));
+            } else if (tipo == 1) {
+                Contacto c = agenda.obtener(NOMBRES[k % NOMBRES.length], apellido(k));
+                if (c != null) {
+                    c.setNombre(NOMBRES[(k + 1 + i) % NOMBRES.length]);
+                }
+            } else {
+                agenda.añadir(contacto(siguiente++));
+            }
+            tiempos[i] = System.nanoTime() - t;
+
+            // Solo miramos el recolector en los cambios lentos (es caro)
+            long sinPausa = tiempos[i];
+            if (tiempos[i] > 1_000_000) {
+                long ahora = msRecolector();
+                sinPausa = Math.max(0, tiempos[i] - (ahora - msRecolector) * 1_000_000);
+                msRecolector = ahora;
+                peorConPausa = Math.max(peorConPausa, tiempos[i]);
+            }
+            peor[tipo] = Math.max(peor[tipo], sinPausa);
+        }
+        Arrays.sort(tiempos);
+        System.out.printf("cambios            p50 %7.3f ms   p99 %7.3f ms   p99,9 %7.3f ms%n",
+                percentil(tiempos, 50) / 1e6, percentil(tiempos, 99) / 1e6, percentil(tiempos, 99.9) / 1e6);
+        for (int tipo = 0; tipo < 3; tipo++) {
+            System.out.printf("  peor %-10s %8.2f ms%n", tipos[tipo], peor[tipo] / 1e6);
+        }
+        System.out.printf("  peor contando el recolector %8.2f ms%n", peorConPausa / 1e6);
+        System.out.printf("%,d contactos y %,d trigramas al terminar%n",
+                agenda.obtenerNumeroContactos(), agenda.trigramasIndexados());
+    }
+
+    // ============================================================
+    // DATOS DE PRUEBA
+    // ============================================================
+
+    private static Contacto contacto(int i) {
+        return new Contacto(NOMBRES[i % NOMBRES.length], apellido(i), "6" + (10_000_000 + i));
+    }
+
+    // Dos apellidos y un número (en base 36) para que no se repitan
+    private static String apellido(int i) {
+        int n = i / NOMBRES.length;
+        return APELLIDOS[n % APELLIDOS.length] + " " + APELLIDOS[(n / APELLIDOS.length) % APELLIDOS.length]
+                + " " + Integer.toString(n, 36);
+    }
+
+    private static String nombreCompleto(int i) {
+        return NOMBRES[i % NOMBRES.length] + " " + apellido(i);
+    }
+
+    // Cambia, quita o repite una letra al azar
+    private static String conErrata(String texto, Random azar) {
+        int i = azar.nextInt(texto.length());
+        switch (azar.nextInt(3)) {
+            case 0:
+                return texto.substring(0, i) + (char) ('a' + azar.nextInt(26)) + texto.substring(i + 1);
+            case 1:
+                return texto.substring(0, i) + texto.substring(i + 1);
+            default:
+                return texto.substring(0, i) + texto.charAt(i) + texto.substring(i);
+        }
+    }
+
+    // Milisegundos parados por el recolector de basura hasta ahora
+    private static long msRecolector() {
+        long total = 0;
+        for (GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += recolector.getCollectionTime();
+        }
+        return total;
+    }
+
+    private static long percentil(long[] ordenados, double p) {
+        int i = (int) Math.ceil(p / 100 * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(ordenados.length - 1, i))];
+    }
+}
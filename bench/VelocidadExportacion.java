@@ -0,0 +1,80 @@
+// ============================================================
+// CLASE VELOCIDADEXPORTACION
+// Mide cuánto tarda ExportadorContactos en escribir una agenda en
+// cada formato (CSV, JSON Lines y vCard), en el orden del almacén y
+// en orden alfabético, y cuánta memoria del heap usa mientras tanto
+//
+// Los ficheros se crean en la carpeta temporal y se borran al terminar
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx8g -cp out VelocidadExportacion [contactos]
+//   (por defecto: 1000000 contactos)
+// ============================================================
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class VelocidadExportacion {
+
+    public static void main(String[] args) throws Exception {
+        int contactos = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        for (int i = 0; i < contactos; i++) {
+            agenda.añadir(new Contacto("Nombre" + i, "Apellido Núñez" + i, "6" + (10_000_000 + i)));
+        }
+
+        Path carpeta = Files.createTempDirectory("exportacion");
+        try {
+            System.out.printf("%-11s %-10s %10s %10s %10s %12s%n",
+                    "formato", "orden", "MB", "ms", "MB/s", "heap máx. MB");
+            for (ExportadorContactos.Formato formato : ExportadorContactos.Formato.values()) {
+                ExportadorContactos exportador = new ExportadorContactos(formato);
+                Path fichero = carpeta.resolve("agenda." + formato.name().toLowerCase());
+                for (boolean ordenado : new boolean[] {false, true}) {
+                    // Una vuelta de calentamiento y otra que cuenta
+                    exportador.exportar(agenda, fichero, ordenado);
+                    System.gc();
+                    reiniciarPicos();
+                    long inicio = System.nanoTime();
+                    exportador.exportar(agenda, fichero, ordenado);
+                    double ms = (System.nanoTime() - inicio) / 1e6;
+                    double mb = Files.size(fichero) / (1024.0 * 1024.0);
+                    System.out.printf("%-11s %-10s %,10.1f %,10.0f %,10.0f %,12.0f%n", formato,
+                            ordenado ? "alfabético" : "almacén", mb, ms, mb / (ms / 1000), picoHeap());
+                }
+                Files.deleteIfExists(fichero);
+            }
+        } finally {
+            Files.deleteIfExists(carpeta);
+        }
+    }
+
+    // ============================================================
+    // MEMORIA
+    // El máximo de cada zona del heap desde el último reinicio
+    // (lo que ya ocupaba la agenda también cuenta)
+    // ============================================================
+
+    private static void reiniciarPicos() {
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                zona.resetPeakUsage();
+            }
+        }
+    }
+
+    private static double picoHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean zona : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (zona.getType() == MemoryType.HEAP) {
+                total += zona.getPeakUsage().getUsed();
+            }
+        }
+        return total / (1024.0 * 1024.0);
+    }
+}
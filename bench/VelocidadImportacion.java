@@ -0,0 +1,82 @@
+// ============================================================
+// CLASE VELOCIDADIMPORTACION
+// Mide cuántas filas por segundo carga ImportadorCsv
+//
+// 1. Importar en una agenda vacía: leer el CSV, validar y meter
+//    cada contacto en todos los índices de la agenda
+// 2. Importar otra vez el mismo fichero: ahora todas las filas
+//    son duplicados, así que solo se lee, se valida y se mira el
+//    índice hash. La diferencia con 1 es lo que cuesta mantener
+//    los índices (vista ordenada, prefijos, trigramas, teléfonos)
+//
+// El fichero se crea en la carpeta temporal y se borra al terminar
+//
+// Compilar y ejecutar (desde la carpeta del proyecto):
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx4g -cp out VelocidadImportacion [filas] [vueltas]
+//   (por defecto: 1000000 filas y 3 vueltas; cuenta la mejor)
+// ============================================================
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class VelocidadImportacion {
+
+    public static void main(String[] args) throws Exception {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int vueltas = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path carpeta = Files.createTempDirectory("importacion");
+        Path fichero = carpeta.resolve("contactos.csv");
+        try {
+            escribirCsv(fichero, filas);
+            System.out.printf("%,d filas, %,.1f MB%n", filas, Files.size(fichero) / (1024.0 * 1024.0));
+
+            double mejorVacia = Double.MAX_VALUE;
+            double mejorRepetida = Double.MAX_VALUE;
+            ImportadorCsv.Resumen resumen = null;
+            for (int vuelta = 0; vuelta < vueltas; vuelta++) {
+                Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+                ImportadorCsv importador = new ImportadorCsv(agenda);
+                System.gc();
+
+                long inicio = System.nanoTime();
+                resumen = importador.importar(fichero);
+                mejorVacia = Math.min(mejorVacia, (System.nanoTime() - inicio) / 1e9);
+
+                inicio = System.nanoTime();
+                importador.importar(fichero);
+                mejorRepetida = Math.min(mejorRepetida, (System.nanoTime() - inicio) / 1e9);
+            }
+
+            System.out.println(resumen);
+            System.out.printf("agenda vacía           %6.2f s  %,12.0f filas/s%n", mejorVacia, filas / mejorVacia);
+            System.out.printf("todas repetidas        %6.2f s  %,12.0f filas/s%n", mejorRepetida, filas / mejorRepetida);
+        } finally {
+            Files.deleteIfExists(fichero);
+            Files.deleteIfExists(carpeta);
+        }
+    }
+
+    // ============================================================
+    // DATOS DE PRUEBA
+    // Nombres y apellidos distintos, con cabecera, algún campo
+    // entre comillas, un 1% de filas repetidas y un 1% sin apellido
+    // ============================================================
+
+    private static void escribirCsv(Path fichero, int filas) throws Exception {
+        try (BufferedWriter salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8)) {
+            salida.write("nombre,apellido,telefono\n");
+            for (int i = 0; i < filas; i++) {
+                int n = i % 100 == 99 ? i - 2 : i;  // Repetida
+                String apellido = i % 100 == 98 ? "" : "Núñez " + Integer.toString(n, 36);
+                if (i % 10 == 0) {
+                    apellido = "\"" + apellido + ", hijo\"";
+                }
+                salida.write("Nombre" + (n % 1000) + "," + apellido + ",6" + (10_000_000 + n) + "\n");
+            }
+        }
+    }
+}
@@ -2,8 +2,26 @@
 // CLASE AGENDA
 // Esta clase gestiona una colección de contactos
 // Permite añadir, buscar, eliminar y modificar contactos
+//
+// No escribe nada por pantalla: cada método devuelve su resultado
+// (un valor, un Optional o un enum) y quien lo llama decide qué
+// mostrar (ver clase Main)
 // ============================================================
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 // La palabra "class" define una nueva clase llamada "Agenda"
 public class Agenda {
 
@@ -11,33 +29,141 @@ public class Agenda {
     // ATRIBUTOS DE LA AGENDA
     // ============================================================
 
-    // Array (arreglo) que almacena los contactos
-    // Un array es como una lista de tamaño fijo
-    // Contacto[] significa "array de objetos tipo Contacto"
-    private Contacto[] contactos;
+    // Almacén que guarda los contactos en trozos de tamaño fijo
+    // Crece según se añaden contactos, así que la memoria usada
+    // depende de los contactos reales y no del tamaño máximo
+    // (ver clase AlmacenSegmentado)
+    private final AlmacenSegmentado contactos = new AlmacenSegmentado();
 
-    // Contador que indica cuántos contactos hay actualmente en la agenda
+    // Número máximo de contactos permitido (un "cupo")
     // "int" es el tipo de dato para números enteros
-    private int numContactos;
+    private final int tamanioMaximo;
 
     // Constante que define el tamaño por defecto de la agenda
     // "static" significa que pertenece a la clase, no a cada objeto
     // "final" significa que su valor no puede cambiar (es constante)
     private static final int TAMANIO_POR_DEFECTO = 10;
 
+    // Constante para crear una agenda sin límite de contactos
+    // "public" para poder usarla desde fuera: new Agenda(Agenda.SIN_LIMITE)
+    public static final int SIN_LIMITE = Integer.MAX_VALUE;
+
+    // Índice hash para encontrar contactos por nombre y apellido
+    // sin recorrer todo el array (ver clase IndiceContactos)
+    private final IndiceContactos indice = new IndiceContactos();
+
+    // Los contactos ordenados alfabéticamente, siempre al día
+    // (ver clase VistaOrdenada)
+    private final VistaOrdenada ordenados = new VistaOrdenada();
+
+    // Índice para buscar contactos por el principio del nombre,
+    // del apellido o del nombre completo (ver clase IndicePrefijos)
+    private final IndicePrefijos prefijos = new IndicePrefijos();
+
+    // Índice inverso para saber de quién es un teléfono
+    // (ver clase IndiceTelefonos)
+    private final IndiceTelefonos telefonos = new IndiceTelefonos();
+
+    // Una sola copia de cada nombre y apellido (ver DiccionarioNombres)
+    private final DiccionarioNombres diccionario = new DiccionarioNombres();
+
+    // Siguiente número de llegada que daremos a un contacto nuevo
+    // AtomicLong para que varias agendas puedan compartir el mismo
+    // contador (ver AgendaFragmentada): así dos contactos de agendas
+    // distintas nunca tienen el mismo número
+    private final AtomicLong secuencias;
+
+    // Objetos que quieren enterarse de cada cambio (ver OyenteAgenda)
+    private final ArrayList<OyenteAgenda> oyentes = new ArrayList<>();
+
+    // Tiempos y número de llamadas de cada operación (null = sin medir)
+    // volatile: AgendaConcurrente la lee desde otros hilos
+    private volatile MetricasAgenda metricas;
+
+    // Valores que tenía un contacto justo antes de cambiar,
+    // para poder contárselos a los oyentes después del cambio
+    private String nombreAnterior;
+    private String apellidoAnterior;
+    private String telefonoAnterior;
+
+    // Y cuál era entre los contactos con su misma clave (ver
+    // posicionAnterior)
+    private int posicionAnterior;
+
+    // Objeto que recibe los avisos de los contactos cuando cambian
+    // su nombre o apellido, para mantener el índice al día
+    // "new ObservadorContacto() { ... }" crea una clase anónima:
+    // una clase sin nombre que implementa la interfaz en el momento
+    private final ObservadorContacto observador = new ObservadorContacto() {
+        @Override
+        public void antesDeCambiarNombre(Contacto c) {
+            nombreAnterior = c.getNombre();
+            apellidoAnterior = c.getApellido();
+            posicionAnterior = indice.posicion(c);
+
+            // Todavía tiene la clave antigua: lo sacamos de los índices
+            indice.eliminar(c);
+            ordenados.eliminar(c);
+            prefijos.eliminar(c);
+            aproximado.eliminar(c);
+            c.soltar(diccionario);
+        }
+
+        @Override
+        public void despuesDeCambiarNombre(Contacto c) {
+            // Ya tiene la clave nueva: lo volvemos a meter
+            c.internar(diccionario);
+            indice.añadir(c);
+            ordenados.añadir(c);
+            prefijos.añadir(c);
+            aproximado.añadir(c);
+            aproximado.limpiar();
+
+            for (int i = 0; i < oyentes.size(); i++) {
+                oyentes.get(i).contactoRenombrado(c, nombreAnterior, apellidoAnterior);
+            }
+        }
+
+        @Override
+        public void antesDeCambiarTelefono(Contacto c) {
+            telefonoAnterior = c.getTelefono();
+            posicionAnterior = indice.posicion(c);
+            telefonos.eliminar(c);
+        }
+
+        @Override
+        public void despuesDeCambiarTelefono(Contacto c) {
+            telefonos.añadir(c);
+
+            for (int i = 0; i < oyentes.size(); i++) {
+                oyentes.get(i).telefonoModificado(c, telefonoAnterior);
+            }
+        }
+    };
+
+    // Índice de trigramas para la búsqueda aproximada (ver clase
+    // IndiceAproximado). Va después de "observador" porque lo usa
+    // para saber qué contactos siguen siendo de esta agenda
+    private final IndiceAproximado aproximado = new IndiceAproximado(observador);
+
     // ============================================================
     // CONSTRUCTORES (dos formas de crear una agenda)
     // ============================================================
 
     // Constructor 1: Crea una agenda con tamaño personalizado
     // El parámetro "tamanioMaximo" indica cuántos contactos puede almacenar
+    // (Agenda.SIN_LIMITE para no poner ningún límite)
     public Agenda(int tamanioMaximo) {
-        // Creamos el array con el tamaño indicado
-        // "new" reserva espacio en memoria para el array
-        contactos = new Contacto[tamanioMaximo];
+        this(tamanioMaximo, new AtomicLong());
+    }
 
-        // Al inicio, la agenda está vacía (0 contactos)
-        numContactos = 0;
+    // Constructor 3: Comparte el contador de números de llegada con
+    // otras agendas (los fragmentos de una AgendaFragmentada)
+    Agenda(int tamanioMaximo, AtomicLong secuencias) {
+        // Solo guardamos el límite: la memoria se reserva poco a poco
+        // a medida que se añaden contactos
+        this.tamanioMaximo = tamanioMaximo;
+        this.secuencias = secuencias;
     }
 
     // Constructor 2: Crea una agenda con el tamaño por defecto (10 contactos)
@@ -52,49 +178,168 @@ public class Agenda {
     // MÉTODO: añadirContacto
     // Añade un nuevo contacto a la agenda
     // Devuelve true si se añadió correctamente, false si no
+    // (para saber el motivo, usar añadir())
     // ============================================================
 
     public boolean añadirContacto(Contacto c) {
+        return añadir(c) == ResultadoAlta.AÑADIDO;
+    }
+
+    // ============================================================
+    // MÉTODO: añadir
+    // Igual que añadirContacto, pero devuelve el motivo exacto
+    // (AÑADIDO, DUPLICADO, LLENA...) para que decida quien lo llama
+    // ============================================================
+
+    public ResultadoAlta añadir(Contacto c) {
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return alta(c);
+        }
+        long inicio = System.nanoTime();
+        ResultadoAlta resultado = alta(c);
+        m.registrar(MetricasAgenda.Operacion.AÑADIR, inicio);
+        return resultado;
+    }
+
+    private ResultadoAlta alta(Contacto c) {
+        ResultadoAlta motivo = comprobarAlta(c);
+        if (motivo != ResultadoAlta.AÑADIDO) {
+            return motivo;  // Terminamos el método devolviendo el motivo
+        }
+
+        // Si pasamos todas las validaciones, añadimos el contacto
+        guardar(c);
+        return ResultadoAlta.AÑADIDO;
+    }
+
+    // Hace todas las validaciones sin cambiar nada
+    // Devuelve AÑADIDO si el contacto se puede añadir
+    private ResultadoAlta comprobarAlta(Contacto c) {
         // VALIDACIÓN 1: Verificar que el contacto no sea null
         if (c == null) {
-            // Mostramos mensaje de error
-            System.out.println("Error: El contacto no puede ser nulo.");
-            return false;  // Terminamos el método devolviendo false
+            return ResultadoAlta.NULO;
         }
 
         // VALIDACIÓN 2: Verificar que nombre y apellido no estén vacíos
         // Llamamos al método esValido() de la clase Contacto
         if (!c.esValido()) {
-            System.out.println("Error: El nombre y apellido no pueden estar vacíos.");
-            return false;
+            return ResultadoAlta.INVALIDO;
         }
 
         // VALIDACIÓN 3: Verificar que la agenda no esté llena
         if (agendaLlena()) {
-            System.out.println("Error: La agenda está llena. No se pueden añadir más contactos.");
-            return false;
+            return ResultadoAlta.LLENA;
         }
 
         // VALIDACIÓN 4: Verificar que no exista un contacto duplicado
-        if (existeContacto(c)) {
-            System.out.println("Error: Ya existe un contacto con ese nombre y apellido.");
-            return false;
+        if (indice.buscar(c.getNombre(), c.getApellido()) != null) {
+            return ResultadoAlta.DUPLICADO;
         }
 
-        // Si pasamos todas las validaciones, añadimos el contacto
-        // Lo guardamos en la posición indicada por numContactos
-        // (las posiciones del array empiezan en 0)
-        contactos[numContactos] = c;
+        // VALIDACIÓN 5: Un mismo objeto contacto no puede estar en dos agendas
+        // (cada agenda necesita enterarse de sus cambios de nombre)
+        if (c.propietario != null) {
+            return ResultadoAlta.OTRA_AGENDA;
+        }
+
+        return ResultadoAlta.AÑADIDO;
+    }
 
-        // Incrementamos el contador de contactos
-        // "++" suma 1 al valor de numContactos
-        numContactos++;
+    // Igual que comprobarAlta, pero si se puede añadir ya lo deja en
+    // el índice hash: ver si la clave está libre y ocuparla es una
+    // sola búsqueda
+    private ResultadoAlta comprobarYReservar(Contacto c) {
+        if (c == null || !c.esValido() || agendaLlena() || c.propietario != null) {
+            return comprobarAlta(c);  // El motivo, en el orden de siempre
+        }
+        return indice.añadirSiNoEsta(c) ? ResultadoAlta.AÑADIDO : ResultadoAlta.DUPLICADO;
+    }
 
-        // Mostramos mensaje de éxito
-        System.out.println("Contacto añadido correctamente.");
+    // Guarda un contacto que ya pasó las validaciones
+    private void guardar(Contacto c) {
+        registrar(c);
+        ordenados.añadir(c);
+        prefijos.añadir(c);
+        avisarAlta(c);
+    }
 
-        // Devolvemos true para indicar que todo salió bien
-        return true;
+    // Guarda varios que ya pasaron las validaciones
+    private void guardarTodos(List<Contacto> lote) {
+        for (Contacto c : lote) {
+            contactos.añadir(c);
+            indice.añadir(c);
+        }
+        guardarLote(lote);
+    }
+
+    // Todo lo de guardar para un lote que ya está en el almacén y en
+    // el índice hash. Cada índice recibe el lote entero de una vez:
+    // los árboles ordenados se rellenan con el lote ya en su orden
+    // (ver ArbolesOrdenados), la tabla de teléfonos crece una sola
+    // vez y los nombres se normalizan una sola vez para los dos
+    // índices que los usan
+    private void guardarLote(List<Contacto> lote) {
+        for (Contacto c : lote) {
+            c.internar(diccionario);
+            c.secuencia = secuencias.getAndIncrement();
+            c.propietario = observador;
+        }
+        telefonos.añadirTodos(lote);
+        ordenados.añadirTodos(lote);
+
+        String[] nombres = IndicePrefijos.normalizarTodos(lote, Contacto::getNombre);
+        String[] apellidos = IndicePrefijos.normalizarTodos(lote, Contacto::getApellido);
+        prefijos.añadirTodos(lote, nombres, apellidos);
+        aproximado.añadirTodos(lote, nombres, apellidos);
+
+        for (Contacto c : lote) {
+            avisarAlta(c);
+        }
+    }
+
+    // Todo lo de guardar salvo los árboles ordenados y los avisos
+    private void registrar(Contacto c) {
+        // El almacén lo coloca al final y crea un segmento nuevo si hace falta
+        contactos.añadir(c);
+
+        // Lo registramos en los índices y le decimos que ahora es nuestro
+        // Antes cambiamos sus textos por los del diccionario, así los
+        // nombres repetidos no ocupan memoria una vez por contacto
+        c.internar(diccionario);
+        c.secuencia = secuencias.getAndIncrement();
+        indice.añadir(c);
+        aproximado.añadir(c);
+        telefonos.añadir(c);
+        c.propietario = observador;
+    }
+
+    // ============================================================
+    // MÉTODO: restaurar
+    // Vuelve a meter un contacto que la agenda ya tenía (lo usa
+    // DiarioAgenda al arrancar). Sin las validaciones de añadir: un
+    // renombrado puede haber dejado dos contactos con la misma clave
+    // o uno sin nombre, y la agenda los guardaba. El segundo con la
+    // misma clave queda como duplicado, igual que antes de cerrar
+    // Quien llama comprueba antes que hay sitio
+    // ============================================================
+
+    void restaurar(Contacto c) {
+        guardar(c);
+    }
+
+    // Durante el aviso de una baja, un cambio de teléfono o un
+    // renombrado: cuál de los contactos con la misma clave (antes del
+    // cambio) era el afectado, 0 = el principal (ver IndiceContactos)
+    int posicionAnterior() {
+        return posicionAnterior;
+    }
+
+    // Avisamos a los oyentes (por ejemplo, el diario en disco)
+    private void avisarAlta(Contacto c) {
+        for (int i = 0; i < oyentes.size(); i++) {
+            oyentes.get(i).contactoAñadido(c);
+        }
     }
 
     // ============================================================
@@ -104,182 +349,465 @@ public class Agenda {
     // ============================================================
 
     public boolean existeContacto(Contacto c) {
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return existe(c);
+        }
+        long inicio = System.nanoTime();
+        boolean existe = existe(c);
+        m.registrar(MetricasAgenda.Operacion.EXISTE, inicio);
+        return existe;
+    }
+
+    private boolean existe(Contacto c) {
         // Verificamos que el contacto a buscar no sea null
         if (c == null) {
             return false;
         }
 
-        // Recorremos todos los contactos de la agenda
-        // "for" es un bucle que se repite un número determinado de veces
-        // int i = 0: empezamos en la posición 0
-        // i < numContactos: seguimos mientras i sea menor que el número de contactos
-        // i++: después de cada vuelta, sumamos 1 a i
-        for (int i = 0; i < numContactos; i++) {
-            // Comparamos el contacto actual con el que buscamos
-            // usando el método esIgual() de la clase Contacto
-            if (contactos[i].esIgual(c)) {
-                return true;  // Lo encontramos, devolvemos true
-            }
-        }
-
-        // Si el bucle termina sin encontrarlo, devolvemos false
-        return false;
+        // Preguntamos al índice en lugar de recorrer todo el array
+        // El índice compara igual que esIgual(): sin importar mayúsculas
+        return indice.buscar(c.getNombre(), c.getApellido()) != null;
     }
 
     // ============================================================
     // MÉTODO: listarContactos
-    // Muestra todos los contactos ordenados alfabéticamente
-    // ============================================================
-
-    public void listarContactos() {
-        // Verificamos si la agenda está vacía
-        if (numContactos == 0) {
-            System.out.println("La agenda está vacía.");
-            return;  // "return" sin valor termina el método (porque es void)
-        }
-
-        // Creamos una copia del array para ordenar sin modificar el original
-        // Esto es importante para mantener el orden de inserción original
-        Contacto[] copiaContactos = new Contacto[numContactos];
-
-        // Copiamos los contactos al nuevo array
-        for (int i = 0; i < numContactos; i++) {
-            copiaContactos[i] = contactos[i];
-        }
-
-        // ORDENAMIENTO BURBUJA (Bubble Sort)
-        // Es un algoritmo simple para ordenar elementos
-        // Compara elementos adyacentes y los intercambia si están desordenados
-
-        // Bucle externo: controla las pasadas por el array
-        for (int i = 0; i < copiaContactos.length - 1; i++) {
-            // Bucle interno: compara elementos adyacentes
-            for (int j = 0; j < copiaContactos.length - 1 - i; j++) {
-                // Obtenemos los nombres completos para comparar
-                String nombre1 = copiaContactos[j].getNombreCompleto();
-                String nombre2 = copiaContactos[j + 1].getNombreCompleto();
-
-                // compareTo() compara dos Strings alfabéticamente
-                // Devuelve: positivo si nombre1 > nombre2
-                //           negativo si nombre1 < nombre2
-                //           0 si son iguales
-                if (nombre1.compareTo(nombre2) > 0) {
-                    // Intercambiamos los contactos (están desordenados)
-                    // Usamos una variable temporal para no perder datos
-                    Contacto temporal = copiaContactos[j];
-                    copiaContactos[j] = copiaContactos[j + 1];
-                    copiaContactos[j + 1] = temporal;
-                }
-            }
+    // Devuelve todos los contactos ordenados alfabéticamente
+    // ============================================================
+
+    public List<Contacto> listarContactos() {
+        // La vista ordenada ya tiene los contactos en orden alfabético,
+        // así que no hace falta copiar el array ni ordenarlo
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return obtenerPagina(0, contactos.tamanio());
         }
+        long inicio = System.nanoTime();
+        List<Contacto> lista = obtenerPagina(0, contactos.tamanio());
+        m.registrar(MetricasAgenda.Operacion.LISTAR, inicio);
+        return lista;
+    }
 
-        // Mostramos los contactos ordenados
-        System.out.println("\n===== LISTA DE CONTACTOS =====");
+    // ============================================================
+    // MÉTODO: obtenerPagina
+    // Devuelve como mucho "cantidad" contactos en orden alfabético,
+    // empezando en la posición "desde" (0 = el primero)
+    // ============================================================
+
+    public List<Contacto> obtenerPagina(int desde, int cantidad) {
+        return ordenados.pagina(desde, cantidad);
+    }
+
+    // ============================================================
+    // MÉTODO: obtenerPagina (con cursor)
+    // Devuelve como mucho "limite" contactos en orden alfabético que
+    // van después del cursor (null = desde el principio)
+    // A diferencia de la versión con "desde", no recorre las páginas
+    // anteriores, y el cursor sigue valiendo aunque se añadan o
+    // eliminen contactos entre una página y la siguiente
+    // ============================================================
 
-        // Recorremos y mostramos cada contacto
-        for (int i = 0; i < copiaContactos.length; i++) {
-            // toString() se llama automáticamente al imprimir un objeto
-            System.out.println((i + 1) + ". " + copiaContactos[i]);
+    public List<Contacto> obtenerPagina(CursorContactos despuesDe, int limite) {
+        return ordenados.paginaDespuesDe(despuesDe == null ? null : despuesDe.sonda(), limite);
+    }
+
+    // ============================================================
+    // MÉTODO: contactos
+    // Stream con todos los contactos en orden alfabético. Se lee por
+    // tandas a medida que se consume (no copia ni ordena la agenda)
+    // y se puede seguir leyendo aunque la agenda cambie mientras tanto
+    // ============================================================
+
+    public Stream<Contacto> contactos() {
+        return contactos(null);
+    }
+
+    // Igual, pero empezando después del cursor
+    public Stream<Contacto> contactos(CursorContactos despuesDe) {
+        return CursorContactos.recorrer(this::obtenerPagina, despuesDe);
+    }
+
+    // ============================================================
+    // CONSULTAS CON CONDICIÓN
+    // Recorren todos los contactos comprobando una condición (un
+    // Predicate, por ejemplo c -> c.getTelefono().startsWith("91"))
+    // El almacén se reparte en trozos y cada núcleo del procesador
+    // comprueba los suyos a la vez (un Stream paralelo)
+    //
+    // - Los resultados no salen en ningún orden concreto
+    // - La condición solo debe leer el contacto, y la agenda no debe
+    //   cambiar mientras tanto (AgendaConcurrente usa el cerrojo de
+    //   lectura)
+    // ============================================================
+
+    // Hasta "limite" contactos que cumplen la condición. En cuanto
+    // se han encontrado bastantes, los demás hilos dejan de buscar
+    public List<Contacto> filtrar(Predicate<Contacto> condicion, int limite) {
+        return filtrar(condicion, c -> c, limite);
+    }
+
+    // Igual, pero devuelve lo que saca "proyeccion" de cada contacto
+    // (por ejemplo Contacto::getTelefono)
+    public <R> List<R> filtrar(Predicate<Contacto> condicion, Function<Contacto, R> proyeccion, int limite) {
+        if (limite <= 0) {
+            return new ArrayList<>();
+        }
+        // unordered(): nos vale cualquier grupo de "limite" resultados,
+        // así limit() no tiene que esperar a los primeros del almacén
+        Stream<Contacto> encontrados = contactos.enParalelo().unordered().filter(condicion);
+        if (limite < Integer.MAX_VALUE) {
+            encontrados = encontrados.limit(limite);
         }
+        return encontrados.map(proyeccion).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // ¿Hay algún contacto que cumpla la condición? Se para al primero
+    public boolean existeAlguno(Predicate<Contacto> condicion) {
+        return contactos.enParalelo().anyMatch(condicion);
+    }
+
+    // Cuántos contactos cumplen la condición
+    public long contar(Predicate<Contacto> condicion) {
+        return contactos.enParalelo().filter(condicion).count();
+    }
 
-        System.out.println("==============================\n");
+    // Cuenta los contactos que cumplen la condición, agrupados por lo
+    // que devuelve "grupo" (por ejemplo Contacto::getApellido)
+    // Cada hilo cuenta en su propio mapa y al final se suman
+    // "grupo" no debe devolver null
+    public <K> Map<K, Long> contarPorGrupo(Predicate<Contacto> condicion, Function<Contacto, K> grupo) {
+        return contactos.enParalelo().filter(condicion)
+                .collect(Collectors.groupingBy(grupo, HashMap::new, Collectors.counting()));
     }
 
     // ============================================================
     // MÉTODO: buscaContacto
     // Busca un contacto por nombre y apellido
-    // Si lo encuentra, muestra el teléfono
-    // ============================================================
-
-    public void buscaContacto(String nombre, String apellido) {
-        // Recorremos todos los contactos
-        for (int i = 0; i < numContactos; i++) {
-            // Comparamos nombre y apellido (ignorando mayúsculas/minúsculas)
-            // Usamos el operador && (AND) para que ambas condiciones sean true
-            if (contactos[i].getNombre().equalsIgnoreCase(nombre) &&
-                    contactos[i].getApellido().equalsIgnoreCase(apellido)) {
-
-                // Encontramos el contacto, mostramos su información
-                System.out.println("Contacto encontrado:");
-                System.out.println("Nombre: " + contactos[i].getNombre());
-                System.out.println("Apellido: " + contactos[i].getApellido());
-                System.out.println("Teléfono: " + contactos[i].getTelefono());
-                return;  // Terminamos el método porque ya lo encontramos
-            }
+    // Optional es una "caja" que tiene el contacto si se encontró
+    // o está vacía si no existe
+    // ============================================================
+
+    public Optional<Contacto> buscaContacto(String nombre, String apellido) {
+        // Buscamos en el índice (ignora mayúsculas/minúsculas)
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return Optional.ofNullable(indice.buscar(nombre, apellido));
         }
+        long inicio = System.nanoTime();
+        Contacto encontrado = indice.buscar(nombre, apellido);
+        m.registrar(MetricasAgenda.Operacion.BUSCAR, inicio);
+        return Optional.ofNullable(encontrado);
+    }
+
+    // ============================================================
+    // MÉTODO: buscarPorPrefijo
+    // Devuelve como mucho "maximo" contactos cuyo nombre, apellido
+    // o nombre completo empieza por el texto indicado
+    // No distingue mayúsculas ni tildes: "alv" encuentra a "Álvarez"
+    // ============================================================
+
+    public List<Contacto> buscarPorPrefijo(String prefijo, int maximo) {
+        return prefijos.buscar(prefijo, maximo);
+    }
+
+    // ============================================================
+    // MÉTODO: buscarAproximado
+    // Devuelve como mucho "maximo" contactos con un nombre parecido
+    // al texto, del más parecido al menos parecido: "Garsia" encuentra
+    // a "García" y "Jose Lopes" a "José López"
+    // No recorre toda la agenda, así que tarda poco aunque tenga
+    // millones de contactos (ver clase IndiceAproximado)
+    // ============================================================
 
-        // Si llegamos aquí, no se encontró el contacto
-        System.out.println("No se ha encontrado ningún contacto con ese nombre y apellido.");
+    public List<Contacto> buscarAproximado(String texto, int maximo) {
+        return aproximado.buscar(texto, maximo, ordenados.getOrden());
+    }
+
+    // ============================================================
+    // MÉTODO: buscarPorTelefono
+    // Devuelve los contactos que tienen ese teléfono (lista vacía
+    // si no hay ninguno). El número se compara sin espacios,
+    // guiones ni prefijo internacional: "+34 600-11-22-33" y
+    // "600112233" son el mismo teléfono
+    // ============================================================
+
+    public List<Contacto> buscarPorTelefono(String telefono) {
+        return telefonos.buscarTodos(telefono);
     }
 
     // ============================================================
     // MÉTODO: eliminarContacto
     // Elimina un contacto de la agenda
     // Devuelve true si se eliminó, false si no existía
+    // (para saber el motivo, usar eliminar())
     // ============================================================
 
     public boolean eliminarContacto(Contacto c) {
+        return eliminar(c) == ResultadoBaja.ELIMINADO;
+    }
+
+    // ============================================================
+    // MÉTODO: eliminar
+    // Igual que eliminarContacto, pero devuelve el motivo exacto
+    // ============================================================
+
+    public ResultadoBaja eliminar(Contacto c) {
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return baja(c);
+        }
+        long inicio = System.nanoTime();
+        ResultadoBaja resultado = baja(c);
+        m.registrar(MetricasAgenda.Operacion.ELIMINAR, inicio);
+        return resultado;
+    }
+
+    private ResultadoBaja baja(Contacto c) {
         // Verificamos que el contacto no sea null
         if (c == null) {
-            System.out.println("Error: El contacto no puede ser nulo.");
-            return false;
+            return ResultadoBaja.NULO;
         }
 
-        // Buscamos el contacto en la agenda
-        for (int i = 0; i < numContactos; i++) {
-            // Si encontramos el contacto
-            if (contactos[i].esIgual(c)) {
-                // Desplazamos todos los contactos siguientes una posición hacia atrás
-                // Esto "rellena el hueco" que deja el contacto eliminado
-                for (int j = i; j < numContactos - 1; j++) {
-                    contactos[j] = contactos[j + 1];
-                }
+        // Buscamos en el índice el contacto guardado que es igual a "c"
+        // (puede ser otro objeto con el mismo nombre y apellido)
+        Contacto guardado = indice.buscar(c.getNombre(), c.getApellido());
 
-                // La última posición ocupada ahora está duplicada
-                // La ponemos a null para liberar la referencia
-                contactos[numContactos - 1] = null;
+        // Si no está, no hay nada que eliminar
+        if (guardado == null) {
+            return ResultadoBaja.NO_ENCONTRADO;
+        }
 
-                // Decrementamos el contador de contactos
-                // "--" resta 1 al valor de numContactos
-                numContactos--;
+        // El almacén lo quita en tiempo constante: el último contacto
+        // ocupa su hueco, así no hay que desplazar todos los siguientes
+        contactos.eliminar(guardado);
+        olvidar(guardado);
+        aproximado.limpiar();
+        return ResultadoBaja.ELIMINADO;
+    }
 
-                System.out.println("Contacto eliminado correctamente.");
-                return true;
-            }
+    // Lo quita de los índices, deja de pertenecer a la agenda y
+    // avisamos a los oyentes (el almacén ya lo ha quitado)
+    private void olvidar(Contacto guardado) {
+        posicionAnterior = indice.posicion(guardado);
+        indice.eliminar(guardado);
+        ordenados.eliminar(guardado);
+        prefijos.eliminar(guardado);
+        aproximado.eliminar(guardado);
+        telefonos.eliminar(guardado);
+        guardado.soltar(diccionario);
+        guardado.propietario = null;
+
+        for (int i = 0; i < oyentes.size(); i++) {
+            oyentes.get(i).contactoEliminado(guardado);
         }
-
-        // Si llegamos aquí, el contacto no existía
-        System.out.println("Error: No se encontró el contacto a eliminar.");
-        return false;
     }
 
     // ============================================================
     // MÉTODO: modificarTelefono
     // Modifica el teléfono de un contacto existente
+    // Devuelve true si se modificó, false si no existe el contacto
     // ============================================================
 
     public boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
-        // Recorremos todos los contactos buscando coincidencia
-        for (int i = 0; i < numContactos; i++) {
-            // Comparamos nombre y apellido
-            if (contactos[i].getNombre().equalsIgnoreCase(nombre) &&
-                    contactos[i].getApellido().equalsIgnoreCase(apellido)) {
-
-                // Encontramos el contacto, modificamos su teléfono
-                // Usamos el setter setTelefono() para cambiar el valor
-                contactos[i].setTelefono(nuevoTelefono);
-
-                System.out.println("Teléfono modificado correctamente.");
-                System.out.println("Nuevo teléfono de " + nombre + " " + apellido + ": " + nuevoTelefono);
-                return true;
-            }
+        MetricasAgenda m = metricas;
+        if (m == null) {
+            return cambiarTelefono(nombre, apellido, nuevoTelefono);
+        }
+        long inicio = System.nanoTime();
+        boolean modificado = cambiarTelefono(nombre, apellido, nuevoTelefono);
+        m.registrar(MetricasAgenda.Operacion.MODIFICAR_TELEFONO, inicio);
+        return modificado;
+    }
+
+    private boolean cambiarTelefono(String nombre, String apellido, String nuevoTelefono) {
+        // Buscamos el contacto en el índice (nombre y apellido)
+        Contacto encontrado = indice.buscar(nombre, apellido);
+
+        if (encontrado != null) {
+            // Encontramos el contacto, modificamos su teléfono
+            // Usamos el setter setTelefono() para cambiar el valor
+            encontrado.setTelefono(nuevoTelefono);
+            return true;
         }
 
         // Si no se encontró el contacto
-        System.out.println("Error: No se encontró ningún contacto con ese nombre y apellido.");
         return false;
     }
 
+    // ============================================================
+    // OPERACIONES POR LOTES
+    // Aplican muchos cambios de una vez y devuelven el resultado de
+    // cada uno, en el mismo orden en que se pasaron
+    //
+    // Con todoONada = false es lo mismo que hacerlos uno a uno: los
+    // que fallan se saltan y los demás se aplican (en añadirTodos, los
+    // oyentes se enteran de las altas al final, en el orden del lote)
+    // Con todoONada = true primero se comprueba el lote entero sin
+    // cambiar nada; si alguno fallaría, no se aplica ninguno: los que
+    // fallan llevan su motivo y los demás CANCELADO
+    // ============================================================
+
+    public List<ResultadoAlta> añadirTodos(Collection<Contacto> nuevos) {
+        return añadirTodos(nuevos, false);
+    }
+
+    public List<ResultadoAlta> añadirTodos(Collection<Contacto> nuevos, boolean todoONada) {
+        List<ResultadoAlta> resultados = new ArrayList<>(nuevos.size());
+        if (!todoONada) {
+            // Cada uno se comprueba contra la agenda y los anteriores
+            // del lote (que ya están en el índice hash y el almacén);
+            // el resto de índices se rellena al final con todos los
+            // aceptados
+            List<Contacto> aceptados = new ArrayList<>(nuevos.size());
+            for (Contacto c : nuevos) {
+                ResultadoAlta r = comprobarYReservar(c);
+                if (r == ResultadoAlta.AÑADIDO) {
+                    contactos.añadir(c);
+                    aceptados.add(c);
+                }
+                resultados.add(r);
+            }
+            guardarLote(aceptados);
+            return resultados;
+        }
+
+        // 1ª pasada: validamos cada uno contra la agenda y contra los
+        // anteriores del mismo lote (dos iguales en el lote: el
+        // segundo sería DUPLICADO, y el cupo tiene que llegar a todos)
+        HashSet<String> clavesDelLote = new HashSet<>();
+        int libres = espaciosLibres();
+        boolean algunoFalla = false;
+        for (Contacto c : nuevos) {
+            ResultadoAlta r = comprobarAlta(c);
+            if (r == ResultadoAlta.AÑADIDO && libres <= 0) {
+                r = ResultadoAlta.LLENA;
+            } else if (r == ResultadoAlta.AÑADIDO && !clavesDelLote.add(c.getClave())) {
+                r = ResultadoAlta.DUPLICADO;
+            } else if (r == ResultadoAlta.AÑADIDO) {
+                libres--;
+            }
+            algunoFalla |= r != ResultadoAlta.AÑADIDO;
+            resultados.add(r);
+        }
+        if (algunoFalla) {
+            resultados.replaceAll(r -> r == ResultadoAlta.AÑADIDO ? ResultadoAlta.CANCELADO : r);
+            return resultados;
+        }
+
+        // 2ª pasada: ya sabemos que todos caben y ninguno se repite
+        guardarTodos(new ArrayList<>(nuevos));
+        return resultados;
+    }
+
+    // Elimina los contactos con el mismo nombre y apellido que los
+    // del lote. Cada uno se quita en tiempo constante (ver eliminar)
+    public List<ResultadoBaja> eliminarTodos(Collection<Contacto> aEliminar) {
+        return eliminarTodos(aEliminar, false);
+    }
+
+    public List<ResultadoBaja> eliminarTodos(Collection<Contacto> aEliminar, boolean todoONada) {
+        List<ResultadoBaja> resultados = new ArrayList<>(aEliminar.size());
+        if (!todoONada) {
+            for (Contacto c : aEliminar) {
+                resultados.add(baja(c));
+            }
+            return resultados;
+        }
+
+        // 1ª pasada: cada uno tiene que existir; si el lote nombra dos
+        // veces al mismo, la segunda ya no lo encontraría
+        HashSet<String> clavesDelLote = new HashSet<>();
+        boolean algunoFalla = false;
+        for (Contacto c : aEliminar) {
+            ResultadoBaja r;
+            if (c == null) {
+                r = ResultadoBaja.NULO;
+            } else if (!existe(c) || !clavesDelLote.add(c.getClave())) {
+                r = ResultadoBaja.NO_ENCONTRADO;
+            } else {
+                r = ResultadoBaja.ELIMINADO;
+            }
+            algunoFalla |= r != ResultadoBaja.ELIMINADO;
+            resultados.add(r);
+        }
+        if (algunoFalla) {
+            resultados.replaceAll(r -> r == ResultadoBaja.ELIMINADO ? ResultadoBaja.CANCELADO : r);
+            return resultados;
+        }
+
+        // 2ª pasada: ya sabemos que todos están
+        for (Contacto c : aEliminar) {
+            baja(c);
+        }
+        return resultados;
+    }
+
+    // Elimina todos los contactos que cumplen la condición y devuelve
+    // los eliminados. Se recorre el almacén una sola vez y los que
+    // quedan se compactan de una vez, en lugar de tapar cada hueco
+    // La condición solo debe mirar el contacto, no cambiar la agenda
+    // Si lanza una excepción, no se elimina ninguno
+    public List<Contacto> eliminarTodos(Predicate<Contacto> condicion) {
+        List<Contacto> eliminados = contactos.quitarSi(condicion);
+        for (Contacto c : eliminados) {
+            olvidar(c);
+        }
+        aproximado.limpiar();
+        return eliminados;
+    }
+
+    // Cambia varios teléfonos. Las claves del mapa indican nombre y
+    // apellido (el teléfono de la clave no se usa) y los valores son
+    // los teléfonos nuevos. El resultado sigue el orden del mapa
+    public Map<Contacto, ResultadoTelefono> modificarTelefonos(Map<Contacto, String> cambios) {
+        return modificarTelefonos(cambios, false);
+    }
+
+    public Map<Contacto, ResultadoTelefono> modificarTelefonos(Map<Contacto, String> cambios,
+                                                             boolean todoONada) {
+        // Buscamos todos antes de cambiar ninguno
+        Map<Contacto, ResultadoTelefono> resultados = new LinkedHashMap<>();
+        List<Contacto> guardados = new ArrayList<>(cambios.size());
+        boolean algunoFalla = false;
+        for (Contacto c : cambios.keySet()) {
+            Contacto guardado = c == null ? null : indice.buscar(c.getNombre(), c.getApellido());
+            guardados.add(guardado);
+            resultados.put(c, guardado == null ? ResultadoTelefono.NO_ENCONTRADO : ResultadoTelefono.MODIFICADO);
+            algunoFalla |= guardado == null;
+        }
+        if (algunoFalla && todoONada) {
+            resultados.replaceAll((c, r) -> r == ResultadoTelefono.MODIFICADO ? ResultadoTelefono.CANCELADO : r);
+            return resultados;
+        }
+
+        int i = 0;
+        for (String nuevoTelefono : cambios.values()) {
+            Contacto guardado = guardados.get(i++);
+            if (guardado != null) {
+                guardado.setTelefono(nuevoTelefono);
+            }
+        }
+        return resultados;
+    }
+
+    // ============================================================
+    // MÉTODOS: setOrdenAlfabetico / getOrdenAlfabetico
+    // Eligen cómo se ordenan listarContactos, obtenerPagina y
+    // contactos() (ver OrdenAlfabetico). Por defecto es SIMPLE
+    // Cambiarlo vuelve a ordenar toda la agenda
+    // Los cursores guardados siguen valiendo: apuntan a la posición
+    // que ocupa su contacto en el orden nuevo
+    // ============================================================
+
+    public void setOrdenAlfabetico(OrdenAlfabetico orden) {
+        // null vuelve al orden por defecto
+        ordenados.cambiarOrden(orden == null ? OrdenAlfabetico.SIMPLE : orden);
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        return ordenados.getOrden();
+    }
+
     // ============================================================
     // MÉTODO: agendaLlena
     // Indica si la agenda está llena
@@ -288,9 +816,8 @@ public class Agenda {
 
     public boolean agendaLlena() {
         // La agenda está llena cuando el número de contactos
-        // es igual al tamaño del array
-        // contactos.length devuelve el tamaño total del array
-        return numContactos >= contactos.length;
+        // llega al tamaño máximo (nunca pasa con SIN_LIMITE)
+        return contactos.tamanio() >= tamanioMaximo;
     }
 
     // ============================================================
@@ -300,40 +827,89 @@ public class Agenda {
 
     public int espaciosLibres() {
         // Restamos el número actual de contactos del tamaño máximo
-        return contactos.length - numContactos;
+        return tamanioMaximo - contactos.tamanio();
     }
 
     // ============================================================
-    // MÉTODO: mostrarEspaciosLibres
-    // Muestra en pantalla la información de espacio disponible
+    // MÉTODO: getTamanioMaximo
+    // Devuelve el número máximo de contactos (SIN_LIMITE si no hay)
     // ============================================================
 
-    public void mostrarEspaciosLibres() {
-        // Obtenemos los espacios libres
-        int libres = espaciosLibres();
+    public int getTamanioMaximo() {
+        return tamanioMaximo;
+    }
 
-        // Mostramos la información
-        System.out.println("\n===== INFORMACIÓN DE LA AGENDA =====");
-        System.out.println("Tamaño máximo de la agenda: " + contactos.length);
-        System.out.println("Contactos actuales: " + numContactos);
-        System.out.println("Espacios libres: " + libres);
+    // ============================================================
+    // MÉTODO: obtenerNumeroContactos
+    // Devuelve el número actual de contactos (útil para el menú)
+    // ============================================================
 
-        // Verificamos si está llena
-        if (agendaLlena()) {
-            System.out.println("⚠ La agenda está llena. No hay espacio para nuevos contactos.");
-        } else {
-            System.out.println("✓ Puedes agregar " + libres + " contacto(s) más.");
+    public int obtenerNumeroContactos() {
+        return contactos.tamanio();
+    }
+
+    // ============================================================
+    // MÉTODOS: activarMetricas / desactivarMetricas / getMetricas
+    // Empiezan o dejan de medir las operaciones principales (ver
+    // MetricasAgenda). Las operaciones por lotes no se miden
+    // ============================================================
+
+    public MetricasAgenda activarMetricas() {
+        if (metricas == null) {
+            metricas = new MetricasAgenda(this);
         }
+        return metricas;
+    }
+
+    public void desactivarMetricas() {
+        metricas = null;
+    }
+
+    // null si las métricas están desactivadas
+    public MetricasAgenda getMetricas() {
+        return metricas;
+    }
+
+    // Tamaño de los índices, para las métricas
+    int textosDistintos() {
+        return diccionario.tamanio();
+    }
+
+    int telefonosIndexados() {
+        return telefonos.tamanio();
+    }
 
-        System.out.println("=====================================\n");
+    int trigramasIndexados() {
+        return aproximado.numeroTrigramas();
     }
 
     // ============================================================
-    // MÉTODO: obtenerNumeroContactos
-    // Devuelve el número actual de contactos (útil para el menú)
+    // MÉTODOS: añadirOyente / quitarOyente
+    // Registran objetos que reciben un aviso en cada cambio
     // ============================================================
 
-    public int obtenerNumeroContactos() {
-        return numContactos;
+    public void añadirOyente(OyenteAgenda oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void quitarOyente(OyenteAgenda oyente) {
+        oyentes.remove(oyente);
+    }
+
+    // ============================================================
+    // MÉTODOS DE USO INTERNO
+    // Sin "public": solo los usan otras clases del proyecto
+    // (por ejemplo DiarioAgenda para guardar y recuperar la agenda)
+    // ============================================================
+
+    // Devuelve el contacto guardado con ese nombre y apellido, o null
+    Contacto obtener(String nombre, String apellido) {
+        return indice.buscar(nombre, apellido);
+    }
+
+    // Devuelve el contacto que ocupa esa posición del almacén
+    // (0..obtenerNumeroContactos()-1, sin ningún orden en particular)
+    Contacto contactoEn(int posicion) {
+        return contactos.obtener(posicion);
     }
 }
\ No newline at end of file
@@ -0,0 +1,526 @@
+// ============================================================
+// CLASE AGENDACOMPACTA
+// Una agenda que ocupa muy poca memoria, pensada para millones
+// de contactos
+//
+// En vez de guardar un objeto Contacto (con tres objetos String
+// y sus arrays) por cada contacto, guarda los datos "por columnas":
+// - Los nombres y apellidos, en bytes UTF-8, uno detrás de otro
+//   dentro de un único array grande (el "arena")
+// - Para cada contacto, dónde empiezan sus bytes y cuánto miden
+// - Los teléfonos que son solo cifras, como números "long"
+// - Un índice hash de enteros para buscar por nombre y apellido
+//
+// Los objetos Contacto se crean solo cuando alguien los pide
+// (buscaContacto, listarContactos...) y son copias: cambiarlos
+// no cambia la agenda (para eso está modificarTelefono)
+// ============================================================
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+public class AgendaCompacta {
+
+    // ============================================================
+    // CONSTANTES
+    // ============================================================
+
+    // Nombre y apellido se guardan con su longitud en 16 bits cada uno
+    static final int MAX_BYTES_CAMPO = 0xFFFF;
+
+    // Valores especiales de la columna de teléfonos; un teléfono
+    // guardado como número siempre vale 10 o más (lleva una cifra
+    // de marca delante, ver codificarTelefono)
+    private static final long SIN_TELEFONO = 0;
+    private static final long TELEFONO_TEXTO = -1;
+
+    // Como mucho 18 cifras: con la cifra de marca delante siguen
+    // cabiendo en un long
+    private static final int MAX_CIFRAS = 18;
+
+    // En el índice, 0 es una casilla vacía (se guarda posición + 1)
+    private static final int VACIA = 0;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final int tamanioMaximo;
+
+    // Número de contactos (ocupan las posiciones 0..numero-1)
+    private int numero = 0;
+
+    // Los bytes de todos los nombres y apellidos
+    private byte[] arena = new byte[1024];
+    private int finArena = 0;
+
+    // Bytes del arena que pertenecen a contactos ya eliminados;
+    // cuando son más de la mitad, se compacta el arena
+    private int basura = 0;
+
+    // Columnas: la posición "i" de cada array es el contacto "i"
+    private int[] inicio = new int[16];        // Dónde empiezan sus bytes en el arena
+    private int[] longitudes = new int[16];    // Bytes del nombre (16 bits altos) y del apellido (bajos)
+    private long[] telefonos = new long[16];   // Teléfono codificado (ver codificarTelefono)
+    private int[] hashes = new int[16];        // Hash de su clave, para no recalcularlo
+
+    // Los pocos teléfonos que no son solo cifras ("ext. 12", "")
+    // se guardan aparte, por posición
+    private final HashMap<Integer, String> telefonosTexto = new HashMap<>();
+
+    // Índice hash de direccionamiento abierto: cada casilla guarda
+    // la posición del contacto + 1 (0 = vacía)
+    private int[] tabla = new int[32];
+
+    // Cómo ordena listarContactos() (ver OrdenAlfabetico)
+    private OrdenAlfabetico orden = OrdenAlfabetico.SIMPLE;
+
+    // ============================================================
+    // CONSTRUCTORES
+    // ============================================================
+
+    public AgendaCompacta(int tamanioMaximo) {
+        this.tamanioMaximo = tamanioMaximo;
+    }
+
+    public AgendaCompacta() {
+        this(Agenda.SIN_LIMITE);
+    }
+
+    // ============================================================
+    // MÉTODO: añadir
+    // Mismas validaciones y resultados que Agenda.añadir(); el
+    // contacto se copia, así que el objeto "c" no queda ligado
+    // a esta agenda
+    // ============================================================
+
+    public ResultadoAlta añadir(Contacto c) {
+        if (c == null) {
+            return ResultadoAlta.NULO;
+        }
+        if (!c.esValido()) {
+            return ResultadoAlta.INVALIDO;
+        }
+        if (agendaLlena()) {
+            return ResultadoAlta.LLENA;
+        }
+
+        String clave = c.getClave();
+        int hash = clave.hashCode();
+        if (buscarPosicion(clave, hash) >= 0) {
+            return ResultadoAlta.DUPLICADO;
+        }
+
+        byte[] nombre = c.getNombre().getBytes(StandardCharsets.UTF_8);
+        byte[] apellido = c.getApellido().getBytes(StandardCharsets.UTF_8);
+        if (nombre.length > MAX_BYTES_CAMPO || apellido.length > MAX_BYTES_CAMPO) {
+            return ResultadoAlta.INVALIDO;
+        }
+
+        // Copiamos los bytes al final del arena
+        asegurarArena(nombre.length + apellido.length);
+        int posicionArena = finArena;
+        System.arraycopy(nombre, 0, arena, finArena, nombre.length);
+        finArena += nombre.length;
+        System.arraycopy(apellido, 0, arena, finArena, apellido.length);
+        finArena += apellido.length;
+
+        // Rellenamos las columnas del contacto nuevo
+        asegurarColumnas();
+        int i = numero++;
+        inicio[i] = posicionArena;
+        longitudes[i] = (nombre.length << 16) | apellido.length;
+        hashes[i] = hash;
+        guardarTelefono(i, c.getTelefono());
+
+        insertarEnTabla(i);
+        return ResultadoAlta.AÑADIDO;
+    }
+
+    public boolean añadirContacto(Contacto c) {
+        return añadir(c) == ResultadoAlta.AÑADIDO;
+    }
+
+    // ============================================================
+    // MÉTODOS DE CONSULTA
+    // ============================================================
+
+    public boolean existeContacto(Contacto c) {
+        if (c == null) {
+            return false;
+        }
+        String clave = c.getClave();
+        return clave != null && buscarPosicion(clave, clave.hashCode()) >= 0;
+    }
+
+    // Crea un Contacto nuevo con los datos guardados (es una copia)
+    public Optional<Contacto> buscaContacto(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        if (clave == null) {
+            return Optional.empty();
+        }
+        int i = buscarPosicion(clave, clave.hashCode());
+        return i < 0 ? Optional.empty() : Optional.of(contactoEn(i));
+    }
+
+    // Todos los contactos en orden alfabético (se crean en el momento,
+    // así que conviene usarlo solo cuando haga falta la lista entera)
+    public List<Contacto> listarContactos() {
+        List<Contacto> lista = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            lista.add(contactoEn(i));
+        }
+        lista.sort(orden::comparar);
+        return lista;
+    }
+
+    // Aquí no hay vista ordenada que rehacer: el orden se aplica al
+    // crear la lista. Con un orden de idioma, cada copia calcula su
+    // clave una vez y la ordenación compara bytes
+    public void setOrdenAlfabetico(OrdenAlfabetico orden) {
+        this.orden = orden == null ? OrdenAlfabetico.SIMPLE : orden;
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        return orden;
+    }
+
+    public int obtenerNumeroContactos() {
+        return numero;
+    }
+
+    public boolean agendaLlena() {
+        return numero >= tamanioMaximo;
+    }
+
+    public int espaciosLibres() {
+        return tamanioMaximo - numero;
+    }
+
+    public int getTamanioMaximo() {
+        return tamanioMaximo;
+    }
+
+    // ============================================================
+    // MÉTODOS DE MODIFICACIÓN
+    // ============================================================
+
+    public boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        int i = clave == null ? -1 : buscarPosicion(clave, clave.hashCode());
+        if (i < 0) {
+            return false;
+        }
+        telefonosTexto.remove(i);
+        guardarTelefono(i, nuevoTelefono);
+        return true;
+    }
+
+    public ResultadoBaja eliminar(Contacto c) {
+        if (c == null) {
+            return ResultadoBaja.NULO;
+        }
+        String clave = c.getClave();
+        int i = clave == null ? -1 : buscarPosicion(clave, clave.hashCode());
+        if (i < 0) {
+            return ResultadoBaja.NO_ENCONTRADO;
+        }
+
+        quitarDeTabla(i);
+        basura += (longitudes[i] >>> 16) + (longitudes[i] & 0xFFFF);
+        telefonosTexto.remove(i);
+
+        // El último contacto ocupa el hueco ("swap and pop"), igual
+        // que en AlmacenSegmentado
+        int ultimo = --numero;
+        if (i != ultimo) {
+            moverContacto(ultimo, i);
+        }
+
+        // Si más de la mitad del arena es basura, la recuperamos
+        if (basura > 4096 && basura * 2 > finArena) {
+            compactarArena();
+        }
+        return ResultadoBaja.ELIMINADO;
+    }
+
+    public boolean eliminarContacto(Contacto c) {
+        return eliminar(c) == ResultadoBaja.ELIMINADO;
+    }
+
+    // ============================================================
+    // MÉTODOS: informe de memoria
+    // ============================================================
+
+    // Bytes que ocupan los arrays de esta agenda (aproximado: cuenta
+    // el contenido de los arrays y los teléfonos de texto)
+    public long bytesUsados() {
+        long total = arena.length
+                + 4L * inicio.length + 4L * longitudes.length
+                + 8L * telefonos.length + 4L * hashes.length
+                + 4L * tabla.length;
+        for (String t : telefonosTexto.values()) {
+            total += 64 + 2L * t.length();  // Entrada del mapa + String
+        }
+        return total;
+    }
+
+    public double bytesPorContacto() {
+        return numero == 0 ? 0 : (double) bytesUsados() / numero;
+    }
+
+    public String informeMemoria() {
+        return String.format("%d contactos, %.1f MB (%.1f bytes por contacto)",
+                numero, bytesUsados() / (1024.0 * 1024.0), bytesPorContacto());
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS: contactos y teléfonos
+    // ============================================================
+
+    // Crea el Contacto de la posición "i" a partir de las columnas
+    Contacto contactoEn(int i) {
+        int bytesNombre = longitudes[i] >>> 16;
+        int bytesApellido = longitudes[i] & 0xFFFF;
+        String nombre = new String(arena, inicio[i], bytesNombre, StandardCharsets.UTF_8);
+        String apellido = new String(arena, inicio[i] + bytesNombre, bytesApellido, StandardCharsets.UTF_8);
+        return new Contacto(nombre, apellido, leerTelefono(i));
+    }
+
+    private void guardarTelefono(int i, String telefono) {
+        long codigo = codificarTelefono(telefono);
+        if (codigo == TELEFONO_TEXTO) {
+            telefonosTexto.put(i, telefono);
+        }
+        telefonos[i] = codigo;
+    }
+
+    private String leerTelefono(int i) {
+        long codigo = telefonos[i];
+        if (codigo == SIN_TELEFONO) {
+            return null;
+        }
+        if (codigo == TELEFONO_TEXTO) {
+            return telefonosTexto.get(i);
+        }
+        // La primera cifra es la marca: 1 = sin "+", 2 = con "+"
+        String cifras = Long.toString(codigo);
+        return cifras.charAt(0) == '2' ? "+" + cifras.substring(1) : cifras.substring(1);
+    }
+
+    // Convierte "600112233" o "+34600112233" en un long, poniendo
+    // delante una cifra de marca (1, o 2 si empezaba por "+") para
+    // no perder el "+" ni los ceros iniciales. Si hay otros símbolos
+    // el teléfono no se puede guardar como número: TELEFONO_TEXTO
+    static long codificarTelefono(String telefono) {
+        if (telefono == null) {
+            return SIN_TELEFONO;
+        }
+
+        int desde = telefono.startsWith("+") ? 1 : 0;
+        int cifras = telefono.length() - desde;
+        if (cifras == 0 || cifras > MAX_CIFRAS) {
+            return TELEFONO_TEXTO;
+        }
+
+        long codigo = desde == 1 ? 2 : 1;
+        for (int k = desde; k < telefono.length(); k++) {
+            char ch = telefono.charAt(k);
+            if (ch < '0' || ch > '9') {
+                return TELEFONO_TEXTO;
+            }
+            codigo = codigo * 10 + (ch - '0');
+        }
+        return codigo;
+    }
+
+    // Copia las columnas del contacto "desde" a la posición "hasta"
+    // y corrige la casilla del índice que apuntaba a "desde"
+    private void moverContacto(int desde, int hasta) {
+        inicio[hasta] = inicio[desde];
+        longitudes[hasta] = longitudes[desde];
+        telefonos[hasta] = telefonos[desde];
+        hashes[hasta] = hashes[desde];
+
+        String texto = telefonosTexto.remove(desde);
+        if (texto != null) {
+            telefonosTexto.put(hasta, texto);
+        }
+
+        int mascara = tabla.length - 1;
+        int k = casillaIdeal(hashes[hasta], mascara);
+        while (tabla[k] != desde + 1) {
+            k = (k + 1) & mascara;
+        }
+        tabla[k] = hasta + 1;
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS: índice hash
+    // ============================================================
+
+    // Devuelve la posición del contacto con esa clave, o -1
+    // Primero compara el hash guardado (un int) y solo si coincide
+    // lee los bytes del contacto para comparar la clave completa
+    // (sin crear ningún String)
+    private int buscarPosicion(String clave, int hash) {
+        int mascara = tabla.length - 1;
+        for (int k = casillaIdeal(hash, mascara); tabla[k] != VACIA; k = (k + 1) & mascara) {
+            int i = tabla[k] - 1;
+            if (hashes[i] == hash && coincide(i, clave)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ¿El nombre y apellido del contacto "i" tienen esta clave?
+    private boolean coincide(int i, String clave) {
+        int bytesNombre = longitudes[i] >>> 16;
+        int bytesApellido = longitudes[i] & 0xFFFF;
+        int medio = inicio[i] + bytesNombre;
+
+        int k = compararPlegado(inicio[i], medio, clave, 0);
+        if (k < 0 || k >= clave.length() || clave.charAt(k) != '\u0000') {
+            return false;
+        }
+        return compararPlegado(medio, medio + bytesApellido, clave, k + 1) == clave.length();
+    }
+
+    // Lee los caracteres UTF-8 del arena entre "desde" y "hasta", los
+    // pliega igual que Contacto.claveDe() y los compara con la clave
+    // a partir de la posición "k". Devuelve dónde acaba la comparación
+    // en la clave, o -1 si algún carácter es distinto
+    private int compararPlegado(int desde, int hasta, String clave, int k) {
+        int j = desde;
+        while (j < hasta) {
+            int b = arena[j] & 0xFF;
+            int letra;
+            if (b < 0x80) {
+                letra = b;
+                j += 1;
+            } else if (b < 0xE0) {
+                letra = ((b & 0x1F) << 6) | (arena[j + 1] & 0x3F);
+                j += 2;
+            } else if (b < 0xF0) {
+                letra = ((b & 0x0F) << 12) | ((arena[j + 1] & 0x3F) << 6) | (arena[j + 2] & 0x3F);
+                j += 3;
+            } else {
+                letra = ((b & 0x07) << 18) | ((arena[j + 1] & 0x3F) << 12)
+                        | ((arena[j + 2] & 0x3F) << 6) | (arena[j + 3] & 0x3F);
+                j += 4;
+            }
+
+            if (Character.isBmpCodePoint(letra)) {
+                if (!mismaLetra(clave, k++, (char) letra)) {
+                    return -1;
+                }
+            } else if (!mismaLetra(clave, k++, Character.highSurrogate(letra))
+                    || !mismaLetra(clave, k++, Character.lowSurrogate(letra))) {
+                return -1;
+            }
+        }
+        return k;
+    }
+
+    private static boolean mismaLetra(String clave, int k, char ch) {
+        return k < clave.length() && clave.charAt(k) == Character.toLowerCase(Character.toUpperCase(ch));
+    }
+
+    private void insertarEnTabla(int i) {
+        // Mantenemos la tabla medio vacía para que las búsquedas sean cortas
+        if (numero * 2 > tabla.length) {
+            agrandarTabla();
+        }
+        int mascara = tabla.length - 1;
+        int k = casillaIdeal(hashes[i], mascara);
+        while (tabla[k] != VACIA) {
+            k = (k + 1) & mascara;
+        }
+        tabla[k] = i + 1;
+    }
+
+    // Vacía la casilla del contacto "i" y recoloca las siguientes
+    // ("backward shift", igual que en IndiceTelefonos)
+    private void quitarDeTabla(int i) {
+        int mascara = tabla.length - 1;
+        int hueco = casillaIdeal(hashes[i], mascara);
+        while (tabla[hueco] != i + 1) {
+            hueco = (hueco + 1) & mascara;
+        }
+
+        int k = (hueco + 1) & mascara;
+        while (tabla[k] != VACIA) {
+            int ideal = casillaIdeal(hashes[tabla[k] - 1], mascara);
+            if (((k - ideal) & mascara) >= ((k - hueco) & mascara)) {
+                tabla[hueco] = tabla[k];
+                hueco = k;
+            }
+            k = (k + 1) & mascara;
+        }
+        tabla[hueco] = VACIA;
+    }
+
+    private static int casillaIdeal(int hash, int mascara) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private void agrandarTabla() {
+        tabla = new int[tabla.length * 2];
+        int mascara = tabla.length - 1;
+        for (int i = 0; i < numero; i++) {
+            int k = casillaIdeal(hashes[i], mascara);
+            while (tabla[k] != VACIA) {
+                k = (k + 1) & mascara;
+            }
+            tabla[k] = i + 1;
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS: crecimiento y compactación
+    // ============================================================
+
+    // Las columnas crecen un 50 % cada vez (menos desperdicio que duplicar)
+    private void asegurarColumnas() {
+        if (numero == inicio.length) {
+            int nueva = inicio.length + (inicio.length >> 1);
+            inicio = Arrays.copyOf(inicio, nueva);
+            longitudes = Arrays.copyOf(longitudes, nueva);
+            telefonos = Arrays.copyOf(telefonos, nueva);
+            hashes = Arrays.copyOf(hashes, nueva);
+        }
+    }
+
+    private void asegurarArena(int bytes) {
+        if (finArena + bytes > arena.length) {
+            long nueva = Math.max((long) finArena + bytes, arena.length + (arena.length >> 1));
+            if (nueva > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Los nombres no caben en la agenda compacta");
+            }
+            arena = Arrays.copyOf(arena, (int) nueva);
+        }
+    }
+
+    // Copia los bytes de los contactos vivos, uno detrás de otro,
+    // a un arena nuevo del tamaño justo (más un margen)
+    private void compactarArena() {
+        int vivos = finArena - basura;
+        byte[] nuevo = new byte[Math.max(1024, vivos + (vivos >> 2))];
+        int fin = 0;
+        for (int i = 0; i < numero; i++) {
+            int bytes = (longitudes[i] >>> 16) + (longitudes[i] & 0xFFFF);
+            System.arraycopy(arena, inicio[i], nuevo, fin, bytes);
+            inicio[i] = fin;
+            fin += bytes;
+        }
+        arena = nuevo;
+        finArena = fin;
+        basura = 0;
+    }
+}
@@ -0,0 +1,392 @@
+// ============================================================
+// CLASE AGENDACONCURRENTE
+// Una agenda que pueden usar varios hilos a la vez sin
+// estropearse y sin que las lecturas se esperen unas a otras
+//
+// - Las escrituras (añadir, eliminar, modificar) se hacen de una
+//   en una, con el cerrojo de escritura de un StampedLock
+// - Las búsquedas por nombre y apellido no usan ningún cerrojo:
+//   consultan un ConcurrentHashMap que se actualiza al escribir
+// - El resto de lecturas usan el cerrojo de lectura, que pueden
+//   tener muchos hilos a la vez, o una lectura "optimista"
+//
+// IMPORTANTE: los contactos guardados se deben modificar solo a
+// través de esta clase (no llamando a setNombre/setTelefono desde
+// otro hilo), porque esos cambios no pasarían por el cerrojo
+// ============================================================
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public class AgendaConcurrente {
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // La agenda normal que guarda los datos (no es segura entre hilos)
+    private final Agenda agenda;
+
+    // StampedLock tiene cerrojo de escritura (exclusivo), de lectura
+    // (compartido) y lectura optimista (sin bloquear a nadie)
+    private final StampedLock cerrojo = new StampedLock();
+
+    // Copia del índice por nombre y apellido que se puede leer
+    // desde muchos hilos a la vez sin cerrojo
+    private final ConcurrentHashMap<String, Contacto> porClave = new ConcurrentHashMap<>();
+
+    // ============================================================
+    // CONSTRUCTORES
+    // ============================================================
+
+    public AgendaConcurrente(int tamanioMaximo) {
+        this(new Agenda(tamanioMaximo));
+    }
+
+    // Envuelve una agenda ya creada (por ejemplo, una abierta con
+    // DiarioAgenda). A partir de aquí solo debe usarse a través de
+    // esta clase
+    public AgendaConcurrente(Agenda agenda) {
+        this.agenda = agenda;
+
+        // Copiamos los contactos que ya tuviera
+        for (int i = 0; i < agenda.obtenerNumeroContactos(); i++) {
+            Contacto c = agenda.contactoEn(i);
+            porClave.putIfAbsent(c.getClave(), c);
+        }
+
+        // La agenda nos avisa de cada cambio (siempre dentro del
+        // cerrojo de escritura) y mantenemos la copia al día
+        agenda.añadirOyente(new OyenteAgenda() {
+            @Override
+            public void contactoAñadido(Contacto c) {
+                porClave.put(c.getClave(), c);
+            }
+
+            @Override
+            public void contactoEliminado(Contacto c) {
+                quitar(c.getNombre(), c.getApellido(), c);
+            }
+
+            @Override
+            public void contactoRenombrado(Contacto c, String nombreAnterior, String apellidoAnterior) {
+                quitar(nombreAnterior, apellidoAnterior, c);
+                porClave.putIfAbsent(c.getClave(), c);
+            }
+        });
+    }
+
+    // Quita "c" de la copia del índice; si la agenda tenía otro
+    // contacto con la misma clave (por un renombrado), lo ponemos
+    private void quitar(String nombre, String apellido, Contacto c) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        if (porClave.remove(clave, c)) {
+            Contacto otro = agenda.obtener(nombre, apellido);
+            if (otro != null) {
+                porClave.put(clave, otro);
+            }
+        }
+    }
+
+    // ============================================================
+    // ESCRITURAS (cerrojo de escritura: de una en una)
+    // ============================================================
+
+    public ResultadoAlta añadir(Contacto c) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.añadir(c);
+        } finally {
+            // "finally" se ejecuta siempre, aunque haya un error:
+            // así el cerrojo nunca se queda cerrado
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public ResultadoBaja eliminar(Contacto c) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.eliminar(c);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    // Devuelve true si el contacto existía y se cambió su teléfono
+    public boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.modificarTelefono(nombre, apellido, nuevoTelefono);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    // Los lotes se aplican con un solo cerrojo de escritura: ningún
+    // otro escritor puede colarse a mitad de un lote, y con
+    // todoONada la comprobación sigue valiendo al aplicarlo
+    public List<ResultadoAlta> añadirTodos(Collection<Contacto> nuevos, boolean todoONada) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.añadirTodos(nuevos, todoONada);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public List<ResultadoBaja> eliminarTodos(Collection<Contacto> aEliminar, boolean todoONada) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.eliminarTodos(aEliminar, todoONada);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public List<Contacto> eliminarTodos(Predicate<Contacto> condicion) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.eliminarTodos(condicion);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public Map<Contacto, ResultadoTelefono> modificarTelefonos(Map<Contacto, String> cambios,
+                                                             boolean todoONada) {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.modificarTelefonos(cambios, todoONada);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    // ============================================================
+    // LECTURAS SIN CERROJO (ConcurrentHashMap)
+    // ============================================================
+
+    // Estas lecturas no pasan por la agenda: si tiene las métricas
+    // activadas, las anotamos aquí
+    public boolean existeContacto(Contacto c) {
+        MetricasAgenda m = agenda.getMetricas();
+        long inicio = m == null ? 0 : System.nanoTime();
+        boolean existe = c != null && buscarEnCopia(c.getNombre(), c.getApellido()) != null;
+        if (m != null) {
+            m.registrar(MetricasAgenda.Operacion.EXISTE, inicio);
+        }
+        return existe;
+    }
+
+    // Optional es una "caja" que puede tener un contacto o estar vacía
+    public Optional<Contacto> buscar(String nombre, String apellido) {
+        MetricasAgenda m = agenda.getMetricas();
+        long inicio = m == null ? 0 : System.nanoTime();
+        Contacto encontrado = buscarEnCopia(nombre, apellido);
+        if (m != null) {
+            m.registrar(MetricasAgenda.Operacion.BUSCAR, inicio);
+        }
+        return Optional.ofNullable(encontrado);
+    }
+
+    private Contacto buscarEnCopia(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        return clave == null ? null : porClave.get(clave);
+    }
+
+    // ============================================================
+    // LECTURAS OPTIMISTAS
+    // Se lee sin cerrojo y después se comprueba con validate() que
+    // nadie escribió mientras tanto; si alguien escribió, se repite
+    // la lectura con el cerrojo de lectura
+    // ============================================================
+
+    public int obtenerNumeroContactos() {
+        long sello = cerrojo.tryOptimisticRead();
+        int numero = agenda.obtenerNumeroContactos();
+        if (!cerrojo.validate(sello)) {
+            sello = cerrojo.readLock();
+            try {
+                numero = agenda.obtenerNumeroContactos();
+            } finally {
+                cerrojo.unlockRead(sello);
+            }
+        }
+        return numero;
+    }
+
+    public int espaciosLibres() {
+        long sello = cerrojo.tryOptimisticRead();
+        int libres = agenda.espaciosLibres();
+        if (!cerrojo.validate(sello)) {
+            sello = cerrojo.readLock();
+            try {
+                libres = agenda.espaciosLibres();
+            } finally {
+                cerrojo.unlockRead(sello);
+            }
+        }
+        return libres;
+    }
+
+    // El tamaño máximo no cambia nunca: no hace falta cerrojo
+    public int getTamanioMaximo() {
+        return agenda.getTamanioMaximo();
+    }
+
+    public boolean agendaLlena() {
+        return espaciosLibres() <= 0;
+    }
+
+    // ============================================================
+    // LECTURAS CON CERROJO DE LECTURA
+    // Recorren árboles y tablas que no se pueden leer mientras otro
+    // hilo los está cambiando, pero muchos lectores pueden tener el
+    // cerrojo de lectura a la vez
+    // ============================================================
+
+    public List<Contacto> buscarPorTelefono(String telefono) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.buscarPorTelefono(telefono);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public List<Contacto> buscarPorPrefijo(String prefijo, int maximo) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.buscarPorPrefijo(prefijo, maximo);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public List<Contacto> buscarAproximado(String texto, int maximo) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.buscarAproximado(texto, maximo);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    // Las consultas con condición recorren el almacén desde varios
+    // hilos: el cerrojo de lectura se mantiene hasta que terminan
+    public <R> List<R> filtrar(Predicate<Contacto> condicion, Function<Contacto, R> proyeccion, int limite) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.filtrar(condicion, proyeccion, limite);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public List<Contacto> filtrar(Predicate<Contacto> condicion, int limite) {
+        return filtrar(condicion, c -> c, limite);
+    }
+
+    public boolean existeAlguno(Predicate<Contacto> condicion) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.existeAlguno(condicion);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public long contar(Predicate<Contacto> condicion) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.contar(condicion);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public <K> Map<K, Long> contarPorGrupo(Predicate<Contacto> condicion, Function<Contacto, K> grupo) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.contarPorGrupo(condicion, grupo);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public List<Contacto> obtenerPagina(int desde, int cantidad) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.obtenerPagina(desde, cantidad);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    public List<Contacto> obtenerPagina(CursorContactos despuesDe, int limite) {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.obtenerPagina(despuesDe, limite);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    // Las métricas de la agenda envuelta (null si no están activadas)
+    public MetricasAgenda activarMetricas() {
+        long sello = cerrojo.writeLock();
+        try {
+            return agenda.activarMetricas();
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public MetricasAgenda getMetricas() {
+        return agenda.getMetricas();
+    }
+
+    public List<Contacto> listarContactos() {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.listarContactos();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    // Reordenar toca todo el árbol: necesita el cerrojo de escritura
+    // (y así las claves de ordenación de los contactos quedan
+    // calculadas antes de que las lea ningún lector)
+    public void setOrdenAlfabetico(OrdenAlfabetico orden) {
+        long sello = cerrojo.writeLock();
+        try {
+            agenda.setOrdenAlfabetico(orden);
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        long sello = cerrojo.readLock();
+        try {
+            return agenda.getOrdenAlfabetico();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    // Cada tanda del Stream se lee con el cerrojo de lectura, pero
+    // entre tandas no se guarda ningún cerrojo: los escritores no
+    // esperan a que termine de recorrerse
+    public Stream<Contacto> contactos() {
+        return CursorContactos.recorrer(this::obtenerPagina, null);
+    }
+}
@@ -0,0 +1,272 @@
+// ============================================================
+// CLASE AGENDAFRAGMENTADA
+// Reparte los contactos entre varias agendas independientes
+// ("fragmentos"), cada una con su propio cerrojo, para que varios
+// hilos puedan añadir y eliminar a la vez sin esperarse
+//
+// - Cada contacto va siempre al mismo fragmento: el que indica el
+//   hash de su nombre y apellido (sin importar mayúsculas, igual
+//   que esIgual). Las búsquedas y cambios de un contacto solo
+//   tocan ese fragmento
+// - Los listados piden su parte a todos los fragmentos a la vez y
+//   juntan las listas ordenadas en una sola ("mezcla de k listas")
+// - Las consultas con condición se reparten entre los fragmentos
+//   y se suman los resultados
+//
+// Como en AgendaConcurrente, los contactos guardados se deben
+// modificar a través de esta clase: con setNombre/setApellido un
+// contacto cambiaría de clave pero seguiría en su fragmento antiguo
+// No tiene tamaño máximo
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class AgendaFragmentada {
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final AgendaConcurrente[] fragmentos;
+
+    // Todos los fragmentos ordenan igual (si no, no se podrían mezclar)
+    private volatile OrdenAlfabetico orden = OrdenAlfabetico.SIMPLE;
+
+    // ============================================================
+    // CONSTRUCTOR
+    // Lo normal es un fragmento por núcleo del procesador:
+    //   new AgendaFragmentada(Runtime.getRuntime().availableProcessors())
+    // ============================================================
+
+    public AgendaFragmentada(int numFragmentos) {
+        if (numFragmentos < 1) {
+            throw new IllegalArgumentException("Hace falta al menos un fragmento: " + numFragmentos);
+        }
+        // Todos los fragmentos numeran a sus contactos con el mismo
+        // contador: dos contactos que empatan en el orden alfabético
+        // se desempatan por ese número aunque estén en fragmentos
+        // distintos, y un cursor vale igual para todos los fragmentos
+        AtomicLong secuencias = new AtomicLong();
+        fragmentos = new AgendaConcurrente[numFragmentos];
+        for (int i = 0; i < numFragmentos; i++) {
+            fragmentos[i] = new AgendaConcurrente(new Agenda(Agenda.SIN_LIMITE, secuencias));
+        }
+    }
+
+    public int getNumFragmentos() {
+        return fragmentos.length;
+    }
+
+    // ============================================================
+    // OPERACIONES CON UN CONTACTO (solo tocan su fragmento)
+    // ============================================================
+
+    public ResultadoAlta añadir(Contacto c) {
+        if (c == null) {
+            return ResultadoAlta.NULO;
+        }
+        if (!c.esValido()) {
+            return ResultadoAlta.INVALIDO;
+        }
+        return fragmentoDe(c.getNombre(), c.getApellido()).añadir(c);
+    }
+
+    public ResultadoBaja eliminar(Contacto c) {
+        if (c == null) {
+            return ResultadoBaja.NULO;
+        }
+        AgendaConcurrente fragmento = fragmentoDe(c.getNombre(), c.getApellido());
+        return fragmento == null ? ResultadoBaja.NO_ENCONTRADO : fragmento.eliminar(c);
+    }
+
+    public boolean existeContacto(Contacto c) {
+        return c != null && buscar(c.getNombre(), c.getApellido()).isPresent();
+    }
+
+    public Optional<Contacto> buscar(String nombre, String apellido) {
+        AgendaConcurrente fragmento = fragmentoDe(nombre, apellido);
+        return fragmento == null ? Optional.empty() : fragmento.buscar(nombre, apellido);
+    }
+
+    public boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
+        AgendaConcurrente fragmento = fragmentoDe(nombre, apellido);
+        return fragmento != null && fragmento.modificarTelefono(nombre, apellido, nuevoTelefono);
+    }
+
+    // Suma de todos los fragmentos (si otros hilos están cambiando la
+    // agenda, cada fragmento se cuenta en un momento algo distinto)
+    public int obtenerNumeroContactos() {
+        int total = 0;
+        for (AgendaConcurrente fragmento : fragmentos) {
+            total += fragmento.obtenerNumeroContactos();
+        }
+        return total;
+    }
+
+    // ============================================================
+    // LISTADOS
+    // Cada fragmento da su lista ya ordenada (todos a la vez, en
+    // paralelo) y se mezclan: siempre se toma el primero de los
+    // primeros de cada lista
+    // ============================================================
+
+    public List<Contacto> listarContactos() {
+        List<List<Contacto>> partes = Arrays.stream(fragmentos).parallel()
+                .map(AgendaConcurrente::listarContactos)
+                .collect(Collectors.toList());
+        return mezclar(partes, Integer.MAX_VALUE);
+    }
+
+    // Los "limite" contactos que van después del cursor (null = desde
+    // el principio). Cada fragmento da como mucho "limite" y de la
+    // mezcla nos quedamos con los "limite" primeros
+    public List<Contacto> obtenerPagina(CursorContactos despuesDe, int limite) {
+        List<List<Contacto>> partes = Arrays.stream(fragmentos).parallel()
+                .map(f -> f.obtenerPagina(despuesDe, limite))
+                .collect(Collectors.toList());
+        return mezclar(partes, limite);
+    }
+
+    // Todos los contactos en orden alfabético, leídos por tandas
+    public Stream<Contacto> contactos() {
+        return CursorContactos.recorrer(this::obtenerPagina, null);
+    }
+
+    // Cambia el orden de todos los fragmentos
+    public void setOrdenAlfabetico(OrdenAlfabetico nuevo) {
+        OrdenAlfabetico elegido = nuevo == null ? OrdenAlfabetico.SIMPLE : nuevo;
+        for (AgendaConcurrente fragmento : fragmentos) {
+            fragmento.setOrdenAlfabetico(elegido);
+        }
+        orden = elegido;
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        return orden;
+    }
+
+    // ============================================================
+    // CONSULTAS CON CONDICIÓN (ver Agenda.filtrar)
+    // Cada fragmento responde por su cuenta y se juntan los resultados
+    // ============================================================
+
+    public <R> List<R> filtrar(Predicate<Contacto> condicion, Function<Contacto, R> proyeccion, int limite) {
+        List<R> resultado = new ArrayList<>();
+        List<List<R>> partes = Arrays.stream(fragmentos).parallel()
+                .map(f -> f.filtrar(condicion, proyeccion, limite))
+                .collect(Collectors.toList());
+        for (List<R> parte : partes) {
+            for (R r : parte) {
+                if (resultado.size() >= limite) {
+                    return resultado;
+                }
+                resultado.add(r);
+            }
+        }
+        return resultado;
+    }
+
+    public long contar(Predicate<Contacto> condicion) {
+        return Arrays.stream(fragmentos).parallel().mapToLong(f -> f.contar(condicion)).sum();
+    }
+
+    public <K> Map<K, Long> contarPorGrupo(Predicate<Contacto> condicion, Function<Contacto, K> grupo) {
+        Map<K, Long> total = new HashMap<>();
+        List<Map<K, Long>> partes = Arrays.stream(fragmentos).parallel()
+                .map(f -> f.contarPorGrupo(condicion, grupo))
+                .collect(Collectors.toList());
+        for (Map<K, Long> parte : partes) {
+            parte.forEach((clave, cuenta) -> total.merge(clave, cuenta, Long::sum));
+        }
+        return total;
+    }
+
+    // ============================================================
+    // MÉTODO: repartir
+    // Crea una agenda con otro número de fragmentos y le pasa todos
+    // los contactos (cambia el fragmento de casi todos, porque
+    // depende del número de fragmentos). Esta agenda queda vacía
+    //
+    // Mientras se reparte, ningún otro hilo debe usar esta agenda:
+    // un cambio hecho a mitad podría perderse
+    // ============================================================
+
+    public AgendaFragmentada repartir(int numFragmentos) {
+        AgendaFragmentada nueva = new AgendaFragmentada(numFragmentos);
+        nueva.setOrdenAlfabetico(orden);
+
+        for (AgendaConcurrente fragmento : fragmentos) {
+            // Se sacan todos del fragmento antiguo de una pasada
+            // (un contacto solo puede estar en una agenda a la vez)
+            List<Contacto> movidos = fragmento.eliminarTodos(c -> true);
+            for (Contacto c : movidos) {
+                nueva.añadir(c);
+            }
+        }
+        return nueva;
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Fragmento que guarda (o guardaría) ese nombre y apellido
+    // null si falta alguno de los dos (no puede estar en ninguno)
+    private AgendaConcurrente fragmentoDe(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        if (clave == null) {
+            return null;
+        }
+        // Mezclamos los bits del hash: String.hashCode() de claves
+        // parecidas se diferencia sobre todo en los bits bajos
+        int h = clave.hashCode() * 0x9E3779B9;
+        return fragmentos[Math.floorMod(h ^ (h >>> 16), fragmentos.length)];
+    }
+
+    // Mezcla listas ya ordenadas en una sola ordenada, hasta "limite"
+    // Una cola de prioridad guarda el primer contacto pendiente de
+    // cada lista, así cada paso cuesta log(número de listas)
+    private List<Contacto> mezclar(List<List<Contacto>> partes, int limite) {
+        OrdenAlfabetico criterio = orden;
+        int total = 0;
+        for (List<Contacto> parte : partes) {
+            total += parte.size();
+        }
+        List<Contacto> resultado = new ArrayList<>(Math.min(total, limite));
+
+        // Cada entrada de la cola es {número de lista, posición en ella}
+        PriorityQueue<int[]> cabezas = new PriorityQueue<>(Math.max(1, partes.size()), (a, b) -> {
+            Contacto x = partes.get(a[0]).get(a[1]);
+            Contacto y = partes.get(b[0]).get(b[1]);
+            // Mismo desempate que VistaOrdenada (y que el cursor)
+            int comparacion = criterio.comparar(x, y);
+            return comparacion != 0 ? comparacion : Long.compare(x.secuencia, y.secuencia);
+        });
+        for (int i = 0; i < partes.size(); i++) {
+            if (!partes.get(i).isEmpty()) {
+                cabezas.add(new int[] {i, 0});
+            }
+        }
+
+        while (resultado.size() < limite && !cabezas.isEmpty()) {
+            int[] cabeza = cabezas.poll();
+            List<Contacto> parte = partes.get(cabeza[0]);
+            resultado.add(parte.get(cabeza[1]));
+            if (++cabeza[1] < parte.size()) {
+                cabezas.add(cabeza);
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,321 @@
+// ============================================================
+// CLASE AGENDAVERSIONADA
+// Una agenda para muchos hilos donde los lectores nunca esperan
+// ni ven un cambio a medias ("MVCC": cada lector lee su versión)
+//
+// - Los datos están en una VersionAgenda que nunca cambia. Cada
+//   cambio crea una versión nueva (compartiendo casi todo con la
+//   anterior) y la publica de golpe en una AtomicReference: quien
+//   la lea ve la versión anterior entera o la nueva entera
+// - instantanea() devuelve la versión actual sin copiar nada. Un
+//   lector puede recorrerla tranquilamente, paginar durante minutos
+//   o hacer varias consultas que cuadren entre sí, mientras otros
+//   hilos siguen escribiendo
+// - Las escrituras se hacen de una en una (synchronized), pero
+//   nunca bloquean a los lectores
+// - Las últimas versiones se guardan, así se puede deshacer un
+//   cambio o volver a cualquier versión que se haya guardado un
+//   lector (volverA), también en tiempo constante
+//
+// A diferencia de Agenda, guarda copias de los contactos que recibe
+// (el objeto que se pasa a añadir sigue siendo de quien lo creó) y
+// no tiene tamaño máximo ni índices de prefijos o teléfonos
+// ============================================================
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class AgendaVersionada {
+
+    // Versiones anteriores que se guardan por defecto para deshacer
+    public static final int HISTORIAL_POR_DEFECTO = 100;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final AtomicReference<VersionAgenda> actual;
+
+    // Versiones anteriores, la más reciente primero (solo las tocan
+    // los escritores, dentro de synchronized)
+    private final ArrayDeque<VersionAgenda> anteriores = new ArrayDeque<>();
+    private final int maximoHistorial;
+
+    private long siguienteNumero = 1;
+    private long siguienteSecuencia = 0;
+
+    // ============================================================
+    // CONSTRUCTORES
+    // ============================================================
+
+    public AgendaVersionada() {
+        this(OrdenAlfabetico.SIMPLE, HISTORIAL_POR_DEFECTO);
+    }
+
+    // "maximoHistorial" = cuántas versiones anteriores se guardan
+    // (0 = ninguna: no se puede deshacer). Una versión antigua solo
+    // ocupa lo que cambió desde entonces
+    public AgendaVersionada(OrdenAlfabetico orden, int maximoHistorial) {
+        if (maximoHistorial < 0) {
+            throw new IllegalArgumentException("Historial negativo: " + maximoHistorial);
+        }
+        this.maximoHistorial = maximoHistorial;
+        OrdenAlfabetico elegido = orden == null ? OrdenAlfabetico.SIMPLE : orden;
+        actual = new AtomicReference<>(
+                new VersionAgenda(this, 0, TablaPersistente.VACIA, ArbolPersistente.vacio(elegido)));
+    }
+
+    // ============================================================
+    // MÉTODO: instantanea
+    // La versión actual. No copia nada y nunca espera
+    // ============================================================
+
+    public VersionAgenda instantanea() {
+        return actual.get();
+    }
+
+    // ============================================================
+    // LECTURAS RÁPIDAS
+    // Cada una lee la versión actual en ese momento. Para hacer
+    // varias lecturas sobre la misma versión, usar instantanea()
+    // ============================================================
+
+    public Optional<Contacto> buscaContacto(String nombre, String apellido) {
+        return actual.get().buscaContacto(nombre, apellido);
+    }
+
+    public boolean existeContacto(Contacto c) {
+        return actual.get().existeContacto(c);
+    }
+
+    public int obtenerNumeroContactos() {
+        return actual.get().obtenerNumeroContactos();
+    }
+
+    public List<Contacto> listarContactos() {
+        return actual.get().listarContactos();
+    }
+
+    public List<Contacto> obtenerPagina(CursorContactos despuesDe, int limite) {
+        return actual.get().obtenerPagina(despuesDe, limite);
+    }
+
+    // Recorre la versión actual aunque la agenda siga cambiando
+    public Stream<Contacto> contactos() {
+        return actual.get().contactos();
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        return actual.get().getOrdenAlfabetico();
+    }
+
+    // ============================================================
+    // ESCRITURAS
+    // Preparan la versión nueva en un Borrador y la publican solo si
+    // hay algún cambio
+    // ============================================================
+
+    public synchronized ResultadoAlta añadir(Contacto c) {
+        Borrador borrador = new Borrador(actual.get());
+        ResultadoAlta resultado = borrador.añadir(c);
+        if (resultado == ResultadoAlta.AÑADIDO) {
+            publicar(borrador);
+        }
+        return resultado;
+    }
+
+    public synchronized ResultadoBaja eliminar(Contacto c) {
+        Borrador borrador = new Borrador(actual.get());
+        ResultadoBaja resultado = borrador.eliminar(c);
+        if (resultado == ResultadoBaja.ELIMINADO) {
+            publicar(borrador);
+        }
+        return resultado;
+    }
+
+    // Devuelve true si el contacto existía y se cambió su teléfono
+    public synchronized boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
+        Borrador borrador = new Borrador(actual.get());
+        if (!borrador.modificarTelefono(nombre, apellido, nuevoTelefono)) {
+            return false;
+        }
+        publicar(borrador);
+        return true;
+    }
+
+    // ============================================================
+    // MÉTODO: añadirTodos
+    // Añade un lote entero como UNA sola versión: ningún lector ve
+    // el lote a medias (ver Agenda.añadirTodos para todoONada)
+    // Aquí no hace falta validar antes: si algo falla con
+    // todoONada, el borrador simplemente no se publica
+    // ============================================================
+
+    public synchronized List<ResultadoAlta> añadirTodos(Collection<Contacto> nuevos, boolean todoONada) {
+        Borrador borrador = new Borrador(actual.get());
+        List<ResultadoAlta> resultados = new ArrayList<>(nuevos.size());
+        boolean algunoFalla = false;
+        for (Contacto c : nuevos) {
+            ResultadoAlta r = borrador.añadir(c);
+            algunoFalla |= r != ResultadoAlta.AÑADIDO;
+            resultados.add(r);
+        }
+        if (todoONada && algunoFalla) {
+            resultados.replaceAll(r -> r == ResultadoAlta.AÑADIDO ? ResultadoAlta.CANCELADO : r);
+            return resultados;
+        }
+        if (borrador.cambiado) {
+            publicar(borrador);
+        }
+        return resultados;
+    }
+
+    // Reordena todos los contactos con otro criterio (una versión nueva)
+    //
+    // Cada contacto guardado lleva la clave de ordenación de su orden
+    // (ver OrdenAlfabetico) y lo comparten todas las versiones en las
+    // que está. La versión nueva usa copias: si usara los mismos, su
+    // clave nueva pisaría la que leen los lectores de las versiones
+    // anteriores (y deshacer o volverA pueden volver a publicarlas)
+    public synchronized void setOrdenAlfabetico(OrdenAlfabetico orden) {
+        OrdenAlfabetico elegido = orden == null ? OrdenAlfabetico.SIMPLE : orden;
+        VersionAgenda version = actual.get();
+        if (version.getOrdenAlfabetico() == elegido) {
+            return;
+        }
+        Borrador borrador = new Borrador(version);
+        ArbolPersistente reordenados = ArbolPersistente.vacio(elegido);
+        for (Contacto c : version.ordenados.pagina(0, version.ordenados.tamanio())) {
+            Contacto copia = VersionAgenda.copia(c);
+            borrador.porClave = borrador.porClave.poner(copia.getClave(), copia);
+            reordenados = reordenados.poner(copia);
+        }
+        borrador.ordenados = reordenados;
+        publicar(borrador);
+    }
+
+    // ============================================================
+    // DESHACER
+    // ============================================================
+
+    // Vuelve a la versión anterior al último cambio (o al último
+    // volverA). Devuelve false si no queda historial
+    public synchronized boolean deshacer() {
+        VersionAgenda anterior = anteriores.pollFirst();
+        if (anterior == null) {
+            return false;
+        }
+        actual.set(anterior);
+        return true;
+    }
+
+    // Publica otra vez una versión ya vista (por ejemplo, una que se
+    // guardó un lector con instantanea() antes de un cambio que hay
+    // que anular). La versión actual pasa al historial, así que
+    // volverA también se puede deshacer
+    public synchronized void volverA(VersionAgenda version) {
+        if (version == null || version.agenda != this) {
+            throw new IllegalArgumentException("La versión no es de esta agenda: " + version);
+        }
+        if (version != actual.get()) {
+            guardarEnHistorial(actual.get());
+            actual.set(version);
+        }
+    }
+
+    // Cuántas veces se puede llamar a deshacer()
+    public synchronized int versionesGuardadas() {
+        return anteriores.size();
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Convierte el borrador en la versión actual
+    private void publicar(Borrador borrador) {
+        VersionAgenda nueva = new VersionAgenda(this, siguienteNumero++, borrador.porClave, borrador.ordenados);
+        guardarEnHistorial(actual.get());
+        // A partir de aquí los lectores ven la versión nueva entera
+        actual.set(nueva);
+    }
+
+    private void guardarEnHistorial(VersionAgenda version) {
+        if (maximoHistorial == 0) {
+            return;
+        }
+        if (anteriores.size() == maximoHistorial) {
+            anteriores.pollLast();  // Olvidamos la más antigua
+        }
+        anteriores.addFirst(version);
+    }
+
+    // Versión en preparación: empieza igual que "base" y cada cambio
+    // sustituye sus estructuras por otras nuevas (la base no cambia)
+    private final class Borrador {
+        TablaPersistente porClave;
+        ArbolPersistente ordenados;
+        boolean cambiado = false;
+
+        Borrador(VersionAgenda base) {
+            porClave = base.porClave;
+            ordenados = base.ordenados;
+        }
+
+        ResultadoAlta añadir(Contacto c) {
+            if (c == null) {
+                return ResultadoAlta.NULO;
+            }
+            if (!c.esValido()) {
+                return ResultadoAlta.INVALIDO;
+            }
+            String clave = c.getClave();
+            if (porClave.buscar(clave) != null) {
+                return ResultadoAlta.DUPLICADO;
+            }
+            // Guardamos una copia que nadie más puede cambiar
+            Contacto guardado = new Contacto(c.getNombre(), c.getApellido(), c.getTelefono());
+            guardado.secuencia = siguienteSecuencia++;
+            porClave = porClave.poner(clave, guardado);
+            ordenados = ordenados.poner(guardado);
+            cambiado = true;
+            return ResultadoAlta.AÑADIDO;
+        }
+
+        ResultadoBaja eliminar(Contacto c) {
+            if (c == null) {
+                return ResultadoBaja.NULO;
+            }
+            String clave = c.getClave();
+            Contacto guardado = clave == null ? null : porClave.buscar(clave);
+            if (guardado == null) {
+                return ResultadoBaja.NO_ENCONTRADO;
+            }
+            porClave = porClave.quitar(clave);
+            ordenados = ordenados.quitar(guardado);
+            cambiado = true;
+            return ResultadoBaja.ELIMINADO;
+        }
+
+        boolean modificarTelefono(String nombre, String apellido, String nuevoTelefono) {
+            String clave = Contacto.claveDe(nombre, apellido);
+            Contacto guardado = clave == null ? null : porClave.buscar(clave);
+            if (guardado == null) {
+                return false;
+            }
+            // El guardado no se toca (lo ven las versiones anteriores):
+            // ponemos en su sitio una copia con el teléfono nuevo
+            Contacto cambiado = new Contacto(guardado.getNombre(), guardado.getApellido(), nuevoTelefono);
+            cambiado.secuencia = guardado.secuencia;
+            porClave = porClave.poner(clave, cambiado);
+            ordenados = ordenados.sustituir(guardado, cambiado);
+            this.cambiado = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+// ============================================================
+// CLASE ALMACENSEGMENTADO
+// Guarda los contactos en "segmentos" (trozos de array de tamaño
+// fijo) que se crean según se necesitan, en lugar de reservar
+// de golpe un array enorme
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class AlmacenSegmentado {
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // Cada segmento guarda 1024 contactos
+    // "<<" desplaza bits: 1 << 10 es 2 elevado a 10 = 1024
+    // Usar una potencia de 2 permite calcular segmento y posición
+    // con desplazamientos y máscaras, que son muy rápidos
+    static final int BITS_SEGMENTO = 10;
+    static final int TAMANIO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA = TAMANIO_SEGMENTO - 1;
+
+    // Array de segmentos: Contacto[][] es un "array de arrays"
+    // Solo crece el array de referencias, nunca se copian los contactos
+    private Contacto[][] segmentos = new Contacto[4][];
+
+    // Número de contactos guardados (siempre ocupan las posiciones 0..tamanio-1)
+    private int tamanio = 0;
+
+    // ============================================================
+    // MÉTODO: añadir
+    // Coloca el contacto en la primera posición libre (al final)
+    // ============================================================
+
+    void añadir(Contacto c) {
+        int numSegmento = tamanio >>> BITS_SEGMENTO;
+
+        // Si no caben más segmentos, duplicamos el array de referencias
+        if (numSegmento == segmentos.length) {
+            Contacto[][] nuevos = new Contacto[segmentos.length * 2][];
+            System.arraycopy(segmentos, 0, nuevos, 0, segmentos.length);
+            segmentos = nuevos;
+        }
+
+        // Creamos el segmento la primera vez que hace falta
+        if (segmentos[numSegmento] == null) {
+            segmentos[numSegmento] = new Contacto[TAMANIO_SEGMENTO];
+        }
+
+        segmentos[numSegmento][tamanio & MASCARA] = c;
+        c.posicion = tamanio;  // El contacto recuerda dónde está
+        tamanio++;
+    }
+
+    // ============================================================
+    // MÉTODO: eliminar
+    // Quita el contacto en tiempo constante: el último contacto
+    // ocupa su hueco ("swap and pop"), así no hay que desplazar nada
+    // ============================================================
+
+    void eliminar(Contacto c) {
+        int hueco = c.posicion;
+        int ultima = tamanio - 1;
+
+        // Movemos el último contacto al hueco (si no era él mismo)
+        Contacto ultimo = obtener(ultima);
+        if (hueco != ultima) {
+            segmentos[hueco >>> BITS_SEGMENTO][hueco & MASCARA] = ultimo;
+            ultimo.posicion = hueco;
+        }
+
+        // Vaciamos la última posición para liberar la referencia
+        segmentos[ultima >>> BITS_SEGMENTO][ultima & MASCARA] = null;
+        c.posicion = -1;
+        tamanio--;
+
+        // Si el último segmento se ha quedado vacío, lo soltamos
+        // para que la memoria siga al número real de contactos
+        if ((tamanio & MASCARA) == 0) {
+            segmentos[tamanio >>> BITS_SEGMENTO] = null;
+            compactar();
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: quitarSi
+    // Quita de una vez todos los contactos que cumplen la condición
+    // y devuelve los quitados. Los que quedan se desplazan hacia el
+    // principio en una sola pasada (conservando su orden), así cada
+    // contacto se mueve como mucho una vez aunque se quiten miles
+    // ============================================================
+
+    List<Contacto> quitarSi(Predicate<Contacto> condicion) {
+        // 1ª pasada: solo preguntamos. Si la condición lanza una
+        // excepción, el almacén sigue como estaba
+        List<Contacto> quitados = new ArrayList<>();
+        for (int i = 0; i < tamanio; i++) {
+            Contacto c = obtener(i);
+            if (condicion.test(c)) {
+                quitados.add(c);
+            }
+        }
+        if (quitados.isEmpty()) {
+            return quitados;
+        }
+        for (Contacto c : quitados) {
+            c.posicion = -1;  // Marcado para quitar
+        }
+
+        // 2ª pasada: "destino" es el siguiente hueco que hay que llenar
+        int destino = 0;
+        for (int origen = 0; origen < tamanio; origen++) {
+            Contacto c = obtener(origen);
+            if (c.posicion == -1) {
+                continue;
+            }
+            if (destino != origen) {
+                segmentos[destino >>> BITS_SEGMENTO][destino & MASCARA] = c;
+                c.posicion = destino;
+            }
+            destino++;
+        }
+
+        // Vaciamos el final y soltamos los segmentos que sobran
+        for (int i = destino; i < tamanio; i++) {
+            segmentos[i >>> BITS_SEGMENTO][i & MASCARA] = null;
+        }
+        tamanio = destino;
+        int usados = (tamanio + MASCARA) >>> BITS_SEGMENTO;
+        for (int s = usados; s < segmentos.length; s++) {
+            segmentos[s] = null;
+        }
+        compactar();
+        return quitados;
+    }
+
+    // ============================================================
+    // MÉTODO: compactar
+    // Encoge el array de segmentos cuando sobran muchas referencias
+    // (por ejemplo después de borrar la mayoría de los contactos)
+    // ============================================================
+
+    private void compactar() {
+        int usados = (tamanio + MASCARA) >>> BITS_SEGMENTO;
+
+        // Solo encogemos si usamos menos de la cuarta parte,
+        // así no estamos creciendo y encogiendo una y otra vez
+        // (es un bucle porque quitarSi puede vaciar casi todo de golpe)
+        while (segmentos.length > 4 && usados < segmentos.length / 4) {
+            Contacto[][] nuevos = new Contacto[segmentos.length / 2][];
+            System.arraycopy(segmentos, 0, nuevos, 0, usados);
+            segmentos = nuevos;
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS DE CONSULTA
+    // ============================================================
+
+    // Devuelve el contacto de la posición indicada (0..tamanio-1)
+    Contacto obtener(int posicion) {
+        return segmentos[posicion >>> BITS_SEGMENTO][posicion & MASCARA];
+    }
+
+    // Devuelve cuántos contactos hay guardados
+    int tamanio() {
+        return tamanio;
+    }
+
+    // ============================================================
+    // MÉTODO: enParalelo
+    // Stream paralelo con todos los contactos, sin ningún orden
+    // Java reparte el almacén en trozos (ver clase Trozo) y cada
+    // núcleo del procesador recorre los suyos. No se debe cambiar el
+    // almacén mientras se recorre
+    // ============================================================
+
+    Stream<Contacto> enParalelo() {
+        return StreamSupport.stream(new Trozo(segmentos, 0, tamanio), true);
+    }
+
+    // Un trozo del almacén, de la posición "desde" a "hasta" (sin
+    // incluirla). trySplit() le quita la primera mitad y la devuelve
+    // como otro trozo, así Java lo puede ir partiendo para sus hilos
+    private static final class Trozo implements Spliterator<Contacto> {
+
+        // Por debajo de esto no compensa repartir: un hilo lo recorre
+        // antes de lo que cuesta pasárselo a otro
+        private static final int MINIMO = TAMANIO_SEGMENTO;
+
+        private final Contacto[][] segmentos;
+        private int desde;
+        private final int hasta;
+
+        Trozo(Contacto[][] segmentos, int desde, int hasta) {
+            this.segmentos = segmentos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        public Spliterator<Contacto> trySplit() {
+            int cantidad = hasta - desde;
+            if (cantidad < 2 * MINIMO) {
+                return null;
+            }
+            // Cortamos en un borde de segmento: cada hilo lee sus
+            // propios arrays de principio a fin
+            int mitad = (desde + cantidad / 2) & ~MASCARA;
+            if (mitad <= desde) {
+                return null;
+            }
+            Trozo primero = new Trozo(segmentos, desde, mitad);
+            desde = mitad;
+            return primero;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Contacto> accion) {
+            if (desde >= hasta) {
+                return false;
+            }
+            accion.accept(segmentos[desde >>> BITS_SEGMENTO][desde & MASCARA]);
+            desde++;
+            return true;
+        }
+
+        // Recorre segmento a segmento, sin calcular la posición de
+        // cada contacto por separado
+        @Override
+        public void forEachRemaining(Consumer<? super Contacto> accion) {
+            int i = desde;
+            desde = hasta;
+            while (i < hasta) {
+                Contacto[] segmento = segmentos[i >>> BITS_SEGMENTO];
+                int fin = Math.min(hasta - (i & ~MASCARA), TAMANIO_SEGMENTO);
+                for (int j = i & MASCARA; j < fin; j++) {
+                    accion.accept(segmento[j]);
+                }
+                i = (i & ~MASCARA) + fin;
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return hasta - desde;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+// ============================================================
+// CLASE ARBOLPERSISTENTE
+// Contactos en orden alfabético en un árbol que nunca se modifica:
+// poner(), quitar() y sustituir() devuelven un árbol NUEVO que
+// comparte con el anterior todo menos el camino hasta el cambio
+// (unos log N nodos). Es la pareja ordenada de TablaPersistente
+//
+// Es un "treap": un árbol de búsqueda por (orden alfabético, número
+// de llegada), igual que VistaOrdenada, donde además cada nodo tiene
+// una prioridad sacada del número de llegada y ningún hijo tiene más
+// prioridad que su padre. Como las prioridades parecen al azar, el
+// árbol queda equilibrado (altura ~ log N) sin rotaciones ni colores
+//
+// Cada nodo sabe cuántos contactos hay debajo de él, así la página
+// que empieza en la posición "desde" se encuentra sin recorrer las
+// anteriores
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class ArbolPersistente {
+
+    private static final class Nodo {
+        final Contacto contacto;
+        final int prioridad;
+        final Nodo izquierdo;
+        final Nodo derecho;
+        final int tamanio;
+
+        Nodo(Contacto contacto, int prioridad, Nodo izquierdo, Nodo derecho) {
+            this.contacto = contacto;
+            this.prioridad = prioridad;
+            this.izquierdo = izquierdo;
+            this.derecho = derecho;
+            this.tamanio = 1 + tamanio(izquierdo) + tamanio(derecho);
+        }
+
+        // Copia del nodo con otros hijos
+        Nodo conHijos(Nodo izquierdo, Nodo derecho) {
+            return new Nodo(contacto, prioridad, izquierdo, derecho);
+        }
+    }
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final OrdenAlfabetico orden;
+    private final Nodo raiz;
+
+    private ArbolPersistente(OrdenAlfabetico orden, Nodo raiz) {
+        this.orden = orden;
+        this.raiz = raiz;
+    }
+
+    static ArbolPersistente vacio(OrdenAlfabetico orden) {
+        return new ArbolPersistente(orden, null);
+    }
+
+    int tamanio() {
+        return tamanio(raiz);
+    }
+
+    OrdenAlfabetico getOrden() {
+        return orden;
+    }
+
+    // ============================================================
+    // MÉTODO: poner
+    // Árbol con "c" añadido ("c" no debe estar ya: su número de
+    // llegada lo distingue de cualquier otro contacto)
+    //
+    // "c" no se debe modificar después: lo compartirán todas las
+    // versiones que salgan de este árbol
+    // ============================================================
+
+    ArbolPersistente poner(Contacto c) {
+        // La clave de ordenación se calcula aquí, en el hilo que
+        // escribe, y no la primera vez que la necesite un lector
+        orden.prepararClave(c);
+        return new ArbolPersistente(orden, poner(raiz, new Nodo(c, prioridadDe(c), null, null)));
+    }
+
+    private Nodo poner(Nodo nodo, Nodo nuevo) {
+        if (nodo == null) {
+            return nuevo;
+        }
+        if (nuevo.prioridad > nodo.prioridad) {
+            // El nuevo sube por encima: lo que hay aquí se parte en
+            // los menores (a su izquierda) y los mayores (a su derecha)
+            Nodo[] partes = partir(nodo, nuevo.contacto);
+            return nuevo.conHijos(partes[0], partes[1]);
+        }
+        if (comparar(nuevo.contacto, nodo.contacto) < 0) {
+            return nodo.conHijos(poner(nodo.izquierdo, nuevo), nodo.derecho);
+        }
+        return nodo.conHijos(nodo.izquierdo, poner(nodo.derecho, nuevo));
+    }
+
+    // Separa un árbol en {los que van antes de c, los que van después}
+    private Nodo[] partir(Nodo nodo, Contacto c) {
+        if (nodo == null) {
+            return new Nodo[2];
+        }
+        if (comparar(c, nodo.contacto) < 0) {
+            Nodo[] partes = partir(nodo.izquierdo, c);
+            partes[1] = nodo.conHijos(partes[1], nodo.derecho);
+            return partes;
+        }
+        Nodo[] partes = partir(nodo.derecho, c);
+        partes[0] = nodo.conHijos(nodo.izquierdo, partes[0]);
+        return partes;
+    }
+
+    // ============================================================
+    // MÉTODO: quitar
+    // Árbol sin el contacto que ocupa la posición de "c" (mismo
+    // nombre y apellido y mismo número de llegada)
+    // ============================================================
+
+    ArbolPersistente quitar(Contacto c) {
+        return new ArbolPersistente(orden, quitar(raiz, c));
+    }
+
+    private Nodo quitar(Nodo nodo, Contacto c) {
+        if (nodo == null) {
+            return null;
+        }
+        int comparacion = comparar(c, nodo.contacto);
+        if (comparacion == 0) {
+            return juntar(nodo.izquierdo, nodo.derecho);
+        }
+        if (comparacion < 0) {
+            return nodo.conHijos(quitar(nodo.izquierdo, c), nodo.derecho);
+        }
+        return nodo.conHijos(nodo.izquierdo, quitar(nodo.derecho, c));
+    }
+
+    // Une dos árboles donde todos los de "a" van antes que los de "b"
+    // Queda arriba la raíz de más prioridad
+    private static Nodo juntar(Nodo a, Nodo b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.prioridad > b.prioridad) {
+            return a.conHijos(a.izquierdo, juntar(a.derecho, b));
+        }
+        return b.conHijos(juntar(a, b.izquierdo), b.derecho);
+    }
+
+    // ============================================================
+    // MÉTODO: sustituir
+    // Árbol con "nuevo" en el sitio de "anterior". Los dos deben
+    // ocupar la misma posición (mismo nombre, apellido y número de
+    // llegada; por ejemplo, solo cambia el teléfono)
+    // ============================================================
+
+    ArbolPersistente sustituir(Contacto anterior, Contacto nuevo) {
+        orden.prepararClave(nuevo);
+        return new ArbolPersistente(orden, sustituir(raiz, anterior, nuevo));
+    }
+
+    private Nodo sustituir(Nodo nodo, Contacto anterior, Contacto nuevo) {
+        if (nodo == null) {
+            return null;
+        }
+        int comparacion = comparar(anterior, nodo.contacto);
+        if (comparacion == 0) {
+            return new Nodo(nuevo, nodo.prioridad, nodo.izquierdo, nodo.derecho);
+        }
+        if (comparacion < 0) {
+            return nodo.conHijos(sustituir(nodo.izquierdo, anterior, nuevo), nodo.derecho);
+        }
+        return nodo.conHijos(nodo.izquierdo, sustituir(nodo.derecho, anterior, nuevo));
+    }
+
+    // ============================================================
+    // PÁGINAS
+    // Se pueden pedir desde varios hilos: el árbol no cambia
+    // ============================================================
+
+    // Como mucho "cantidad" contactos a partir de la posición "desde"
+    List<Contacto> pagina(int desde, int cantidad) {
+        List<Contacto> resultado = new ArrayList<>(Math.max(0, Math.min(cantidad, tamanio() - desde)));
+        if (desde >= 0 && cantidad > 0) {
+            recoger(raiz, desde, cantidad, resultado);
+        }
+        return resultado;
+    }
+
+    // "desde" cuenta a partir del primero de este subárbol
+    private static void recoger(Nodo nodo, int desde, int cantidad, List<Contacto> resultado) {
+        if (nodo == null || resultado.size() >= cantidad) {
+            return;
+        }
+        int izquierda = tamanio(nodo.izquierdo);
+        if (desde < izquierda) {
+            recoger(nodo.izquierdo, desde, cantidad, resultado);
+        }
+        if (desde <= izquierda && resultado.size() < cantidad) {
+            resultado.add(nodo.contacto);
+        }
+        recoger(nodo.derecho, Math.max(0, desde - izquierda - 1), cantidad, resultado);
+    }
+
+    // Como mucho "limite" contactos que van después de "sonda"
+    // (null = desde el principio)
+    List<Contacto> paginaDespuesDe(Contacto sonda, int limite) {
+        List<Contacto> resultado = new ArrayList<>(Math.max(0, Math.min(limite, tamanio())));
+        if (limite > 0) {
+            if (sonda == null) {
+                recoger(raiz, 0, limite, resultado);
+            } else {
+                recogerDespuesDe(raiz, sonda, limite, resultado);
+            }
+        }
+        return resultado;
+    }
+
+    private void recogerDespuesDe(Nodo nodo, Contacto sonda, int limite, List<Contacto> resultado) {
+        if (nodo == null || resultado.size() >= limite) {
+            return;
+        }
+        if (comparar(nodo.contacto, sonda) <= 0) {
+            // Este y todos los de su izquierda van antes de la sonda
+            recogerDespuesDe(nodo.derecho, sonda, limite, resultado);
+            return;
+        }
+        recogerDespuesDe(nodo.izquierdo, sonda, limite, resultado);
+        if (resultado.size() < limite) {
+            resultado.add(nodo.contacto);
+        }
+        recoger(nodo.derecho, 0, limite, resultado);
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    private static int tamanio(Nodo nodo) {
+        return nodo == null ? 0 : nodo.tamanio;
+    }
+
+    // Mismo criterio que VistaOrdenada: nombre completo y, si
+    // coincide, el que llegó antes
+    private int comparar(Contacto a, Contacto b) {
+        int resultado = orden.comparar(a, b);
+        if (resultado != 0) {
+            return resultado;
+        }
+        return Long.compare(a.secuencia, b.secuencia);
+    }
+
+    // Prioridad "al azar" pero siempre la misma para un contacto:
+    // los bits del número de llegada bien mezclados (SplitMix64)
+    private static int prioridadDe(Contacto c) {
+        long z = c.secuencia + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (z ^ (z >>> 31));
+    }
+}
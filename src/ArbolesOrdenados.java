@@ -0,0 +1,128 @@
+// ============================================================
+// CLASE ARBOLESORDENADOS
+// Mete muchos elementos de golpe en un TreeSet
+//
+// Añadir uno a uno cuesta O(log N) por elemento, y cada paso del
+// camino suele ser un fallo de caché. Pero un TreeSet vacío que
+// recibe un SortedSet con su mismo comparador (addAll) se construye
+// de una vez en tiempo lineal, sin comparar nada: es lo que se hace
+// aquí cuando el lote es grande comparado con el árbol, mezclando
+// lo que ya había con el lote y rehaciendo el árbol entero
+//
+// Lo usan VistaOrdenada e IndicePrefijos en las cargas por lotes
+// ============================================================
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+final class ArbolesOrdenados {
+
+    // Se rehace el árbol si el lote es al menos 1/REHACER_DESDE de lo
+    // que ya hay: así rehacerlo cuesta como mucho unas pocas veces lo
+    // que cuesta el propio lote
+    static final int REHACER_DESDE = 4;
+
+    private ArbolesOrdenados() {
+    }
+
+    // ============================================================
+    // MÉTODO: añadirOrdenados
+    // Añade "nuevos" (ordenados con el comparador del árbol y sin
+    // ninguno que ya esté) y devuelve el árbol con todos: el mismo,
+    // o uno nuevo que lo sustituye si ha salido a cuenta rehacerlo
+    // ============================================================
+
+    static <E> TreeSet<E> añadirOrdenados(TreeSet<E> arbol, List<E> nuevos) {
+        if (nuevos.isEmpty()) {
+            return arbol;
+        }
+        if ((long) nuevos.size() * REHACER_DESDE < arbol.size()) {
+            // Pocos: uno a uno, en orden (cada uno baja por el camino
+            // que acaba de recorrer el anterior, que sigue en la caché)
+            arbol.addAll(nuevos);
+            return arbol;
+        }
+
+        Comparator<? super E> comparador = arbol.comparator();
+        List<E> todos = nuevos;
+        if (!arbol.isEmpty()) {
+            todos = new ArrayList<>(arbol.size() + nuevos.size());
+            Iterator<E> viejos = arbol.iterator();
+            E viejo = viejos.next();
+            int i = 0;
+            while (viejo != null || i < nuevos.size()) {
+                if (viejo != null && (i == nuevos.size() || comparador.compare(viejo, nuevos.get(i)) < 0)) {
+                    todos.add(viejo);
+                    viejo = viejos.hasNext() ? viejos.next() : null;
+                } else {
+                    todos.add(nuevos.get(i++));
+                }
+            }
+        }
+        TreeSet<E> rehecho = new TreeSet<>(comparador);
+        rehecho.addAll(new YaOrdenados<>(todos, comparador));
+        return rehecho;
+    }
+
+    // ============================================================
+    // CLASE INTERNA: YaOrdenados
+    // Una lista que ya está en orden, presentada como SortedSet para
+    // que TreeSet.addAll la copie de una vez. Solo hace falta lo que
+    // usa addAll: el tamaño, el comparador y recorrerla
+    // ============================================================
+
+    private static final class YaOrdenados<E> extends AbstractSet<E> implements SortedSet<E> {
+        private final List<E> elementos;
+        private final Comparator<? super E> comparador;
+
+        YaOrdenados(List<E> elementos, Comparator<? super E> comparador) {
+            this.elementos = elementos;
+            this.comparador = comparador;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return elementos.iterator();
+        }
+
+        @Override
+        public int size() {
+            return elementos.size();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return comparador;
+        }
+
+        @Override
+        public E first() {
+            return elementos.get(0);
+        }
+
+        @Override
+        public E last() {
+            return elementos.get(elementos.size() - 1);
+        }
+
+        @Override
+        public SortedSet<E> subSet(E desde, E hasta) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<E> headSet(E hasta) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E desde) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
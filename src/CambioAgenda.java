@@ -0,0 +1,97 @@
+// ============================================================
+// CLASE CAMBIOAGENDA
+// Un cambio de una agenda, tal como lo publica CanalCambios: qué
+// pasó, a qué contacto y cómo era antes
+//
+// Cada cambio lleva un número de secuencia (1, 2, 3...) que no se
+// repite: quien recibe los cambios puede apuntarse el último que
+// procesó y, si se desconecta, pedir los siguientes a ese
+//
+// Guarda los textos del contacto en el momento del cambio (no el
+// contacto, que puede seguir cambiando), así que nunca cambia y se
+// puede pasar de un hilo a otro sin cuidado
+// ============================================================
+
+public final class CambioAgenda {
+
+    public enum Tipo {
+        AÑADIDO,              // Se añadió el contacto
+        ELIMINADO,            // Se eliminó el contacto
+        TELEFONO_MODIFICADO,  // Cambió el teléfono (el anterior en getTelefonoAnterior)
+        RENOMBRADO            // Cambió el nombre o el apellido (los anteriores en getNombreAnterior...)
+    }
+
+    private final long secuencia;
+    private final Tipo tipo;
+    private final String nombre;
+    private final String apellido;
+    private final String telefono;
+    private final String nombreAnterior;
+    private final String apellidoAnterior;
+    private final String telefonoAnterior;
+
+    CambioAgenda(long secuencia, Tipo tipo, Contacto c,
+                 String nombreAnterior, String apellidoAnterior, String telefonoAnterior) {
+        this.secuencia = secuencia;
+        this.tipo = tipo;
+        this.nombre = c.getNombre();
+        this.apellido = c.getApellido();
+        this.telefono = c.getTelefono();
+        this.nombreAnterior = nombreAnterior;
+        this.apellidoAnterior = apellidoAnterior;
+        this.telefonoAnterior = telefonoAnterior;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    // Datos del contacto justo después del cambio (en ELIMINADO, los
+    // que tenía al eliminarlo)
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getApellido() {
+        return apellido;
+    }
+
+    public String getTelefono() {
+        return telefono;
+    }
+
+    // Solo en RENOMBRADO (null en los demás)
+    public String getNombreAnterior() {
+        return nombreAnterior;
+    }
+
+    public String getApellidoAnterior() {
+        return apellidoAnterior;
+    }
+
+    // Solo en TELEFONO_MODIFICADO (null en los demás, y también si
+    // antes no tenía teléfono)
+    public String getTelefonoAnterior() {
+        return telefonoAnterior;
+    }
+
+    // Un Contacto nuevo con los datos de después del cambio
+    public Contacto getContacto() {
+        return new Contacto(nombre, apellido, telefono);
+    }
+
+    @Override
+    public String toString() {
+        String texto = "#" + secuencia + " " + tipo + " " + nombre + " " + apellido + " - " + telefono;
+        if (tipo == Tipo.RENOMBRADO) {
+            texto += " (antes " + nombreAnterior + " " + apellidoAnterior + ")";
+        } else if (tipo == Tipo.TELEFONO_MODIFICADO) {
+            texto += " (antes " + telefonoAnterior + ")";
+        }
+        return texto;
+    }
+}
@@ -0,0 +1,401 @@
+// ============================================================
+// CLASE CANALCAMBIOS
+// Publica cada cambio de una agenda (añadido, eliminado, teléfono
+// modificado, renombrado) para que otros programas o hilos copien
+// la agenda en otro sitio sin tener que comparar listados enteros
+//
+// Cómo funciona:
+// - Es un OyenteAgenda: la agenda le avisa de cada cambio y el
+//   canal lo guarda como un CambioAgenda con su número de secuencia
+// - Los cambios van a un "anillo": un array de tamaño fijo donde el
+//   cambio número N ocupa la casilla N % capacidad. Guardar un
+//   cambio es escribir una casilla y un contador: sin cerrojos, sin
+//   esperar a nadie y sin que el anillo crezca
+// - Cada suscripción lee a su ritmo desde su propio número de
+//   secuencia, por lotes. Si no hay cambios nuevos espera dormida y
+//   el canal la despierta al publicar
+// - Quien lee despacio NUNCA frena a la agenda: si se queda más de
+//   "capacidad" cambios atrás, los más antiguos se sobrescriben y la
+//   suscripción se entera (OyenteCambios.cambiosPerdidos) para que
+//   vuelva a copiar la agenda entera
+// - Al suscribirse se puede pedir empezar en una secuencia antigua:
+//   se repiten los cambios desde ahí (si el anillo aún los guarda),
+//   útil para quien se desconecta y vuelve
+//
+// Uso típico para copiar la agenda en otro sistema:
+//   CanalCambios canal = CanalCambios.conectar(agenda);
+//   long desde = canal.ultimaSecuencia() + 1;
+//   ... copiar agenda.contactos() ...
+//   canal.suscribir(desde, lote -> ...aplicar los cambios...);
+// Si la agenda cambia mientras se copia, algún cambio llegará
+// también en la copia: conviene aplicarlos como "poner" y "quitar"
+// (que no fallan si ya estaba hecho)
+//
+// Igual que DiarioAgenda, se conecta antes de compartir la agenda
+// entre hilos (por ejemplo, antes de envolverla en AgendaConcurrente)
+// Publicar asume un solo hilo escribiendo a la vez en la agenda
+// ============================================================
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class CanalCambios implements OyenteAgenda, Closeable {
+
+    // ============================================================
+    // CONSTANTES
+    // ============================================================
+
+    // Cambios que se guardan para los que leen con retraso
+    public static final int CAPACIDAD_POR_DEFECTO = 1 << 16;
+
+    // Cambios por lote como mucho (suscripciones con oyente)
+    public static final int LOTE_POR_DEFECTO = 256;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // El cambio N está en la casilla N & mascara (capacidad - 1)
+    private final AtomicReferenceArray<CambioAgenda> anillo;
+    private final int mascara;
+
+    // Secuencia del último cambio publicado (0 = ninguno todavía)
+    private final AtomicLong ultima = new AtomicLong();
+
+    // CopyOnWriteArrayList: recorrerla no usa cerrojos, así publicar
+    // nunca espera a que alguien se suscriba o se vaya
+    private final CopyOnWriteArrayList<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    private volatile boolean cerrado = false;
+
+    // ============================================================
+    // CONSTRUCCIÓN
+    // ============================================================
+
+    // Crea el canal y lo registra como oyente de la agenda
+    public static CanalCambios conectar(Agenda agenda) {
+        return conectar(agenda, CAPACIDAD_POR_DEFECTO);
+    }
+
+    // La capacidad se redondea a la siguiente potencia de 2
+    public static CanalCambios conectar(Agenda agenda, int capacidad) {
+        CanalCambios canal = new CanalCambios(capacidad);
+        agenda.añadirOyente(canal);
+        return canal;
+    }
+
+    private CanalCambios(int capacidad) {
+        if (capacidad < 1 || capacidad > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidad no válida: " + capacidad);
+        }
+        int potencia = Integer.highestOneBit(capacidad);
+        if (potencia < capacidad) {
+            potencia <<= 1;
+        }
+        anillo = new AtomicReferenceArray<>(potencia);
+        mascara = potencia - 1;
+    }
+
+    public int getCapacidad() {
+        return mascara + 1;
+    }
+
+    // Secuencia del último cambio publicado (0 si aún no hay)
+    public long ultimaSecuencia() {
+        return ultima.get();
+    }
+
+    // Secuencia del cambio más antiguo que se puede repetir
+    public long primeraDisponible() {
+        return Math.max(1, ultima.get() - mascara);
+    }
+
+    // ============================================================
+    // AVISOS DE LA AGENDA (métodos de OyenteAgenda)
+    // Se llaman desde el hilo que cambia la agenda: no esperan a
+    // nadie y solo crean el CambioAgenda
+    // ============================================================
+
+    @Override
+    public void contactoAñadido(Contacto c) {
+        publicar(CambioAgenda.Tipo.AÑADIDO, c, null, null, null);
+    }
+
+    @Override
+    public void contactoEliminado(Contacto c) {
+        publicar(CambioAgenda.Tipo.ELIMINADO, c, null, null, null);
+    }
+
+    @Override
+    public void telefonoModificado(Contacto c, String telefonoAnterior) {
+        publicar(CambioAgenda.Tipo.TELEFONO_MODIFICADO, c, null, null, telefonoAnterior);
+    }
+
+    @Override
+    public void contactoRenombrado(Contacto c, String nombreAnterior, String apellidoAnterior) {
+        publicar(CambioAgenda.Tipo.RENOMBRADO, c, nombreAnterior, apellidoAnterior, null);
+    }
+
+    private void publicar(CambioAgenda.Tipo tipo, Contacto c,
+                          String nombreAnterior, String apellidoAnterior, String telefonoAnterior) {
+        if (cerrado) {
+            return;
+        }
+        long secuencia = ultima.get() + 1;
+        CambioAgenda cambio = new CambioAgenda(secuencia, tipo, c, nombreAnterior, apellidoAnterior, telefonoAnterior);
+
+        // Primero la casilla y después el contador: quien vea el
+        // contador nuevo (lectura volatile) ve también la casilla
+        anillo.lazySet((int) secuencia & mascara, cambio);
+        ultima.set(secuencia);
+
+        // Despertamos a las suscripciones que estén esperando
+        for (Suscripcion s : suscripciones) {
+            s.despertar();
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: suscribir (leyendo cuando uno quiera)
+    // La suscripción empieza en el cambio "desde": 1 = desde el
+    // principio (lo que quede), ultimaSecuencia() + 1 = solo los
+    // nuevos, o el siguiente al último que se procesó
+    // Un "desde" más allá de ultimaSecuencia() + 1 no es de este
+    // canal (por ejemplo, la agenda se reinició y las secuencias
+    // volvieron a empezar): se empieza en ultimaSecuencia() + 1 y el
+    // hueco se avisa como cambios perdidos en la primera lectura
+    // Se leen con siguientes()
+    // ============================================================
+
+    public Suscripcion suscribir(long desde) {
+        return nuevaSuscripcion(desde, null);
+    }
+
+    // ============================================================
+    // MÉTODO: suscribir (con un oyente)
+    // Igual, pero un hilo propio de la suscripción lee los cambios
+    // y se los pasa al oyente por lotes de hasta "tamanioLote"
+    // ============================================================
+
+    public Suscripcion suscribir(long desde, OyenteCambios oyente) {
+        return suscribir(desde, oyente, LOTE_POR_DEFECTO);
+    }
+
+    public Suscripcion suscribir(long desde, OyenteCambios oyente, int tamanioLote) {
+        if (oyente == null || tamanioLote < 1) {
+            throw new IllegalArgumentException("Hace falta un oyente y un lote de al menos 1");
+        }
+        Suscripcion suscripcion = nuevaSuscripcion(desde, oyente);
+        Thread hilo = new Thread(() -> suscripcion.repartir(tamanioLote), "cambios-agenda");
+        hilo.setDaemon(true);  // No impide que el programa termine
+        hilo.start();
+        return suscripcion;
+    }
+
+    private Suscripcion nuevaSuscripcion(long desde, OyenteCambios oyente) {
+        if (cerrado) {
+            throw new IllegalStateException("El canal de cambios está cerrado");
+        }
+        long publicado = ultima.get();
+        Suscripcion suscripcion = new Suscripcion(Math.max(1, Math.min(desde, publicado + 1)), oyente);
+        if (desde > publicado + 1) {
+            suscripcion.huecoHasta = desde - 1;
+        }
+        suscripciones.add(suscripcion);
+        return suscripcion;
+    }
+
+    // ============================================================
+    // MÉTODO: close
+    // Deja de publicar y cierra todas las suscripciones. El canal
+    // sigue siendo oyente de la agenda (sin hacer nada); para
+    // quitarlo, agenda.quitarOyente(canal) desde el hilo de la agenda
+    // ============================================================
+
+    @Override
+    public void close() {
+        cerrado = true;
+        for (Suscripcion s : suscripciones) {
+            s.close();
+        }
+    }
+
+    // ============================================================
+    // CLASE INTERNA: Suscripcion
+    // Un lector de los cambios, con su propia posición. Cada
+    // suscripción se debe leer desde un solo hilo
+    // ============================================================
+
+    public final class Suscripcion implements Closeable {
+
+        // Secuencia del próximo cambio que toca leer
+        private long siguiente;
+
+        // Cambios que se perdieron por ir demasiado atrás
+        private long perdidos = 0;
+
+        // Último número del hueco pedido al suscribirse más allá de lo
+        // publicado, pendiente de avisar (0 = ninguno)
+        private long huecoHasta = 0;
+
+        // Hilo dormido esperando cambios (null si no hay)
+        private volatile Thread esperando;
+        private volatile boolean cerrada = false;
+
+        // Solo en las suscripciones con oyente
+        private final OyenteCambios oyente;
+        private volatile RuntimeException error;
+
+        private Suscripcion(long desde, OyenteCambios oyente) {
+            this.siguiente = desde;
+            this.oyente = oyente;
+        }
+
+        // ============================================================
+        // MÉTODO: siguientes
+        // Devuelve hasta "maximo" cambios seguidos a partir de la
+        // posición de la suscripción y avanza. Si no hay ninguno,
+        // espera hasta "esperaMillis" milisegundos a que llegue
+        // alguno (lista vacía si no llega o si se cierra)
+        // ============================================================
+
+        public List<CambioAgenda> siguientes(int maximo, long esperaMillis) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, esperaMillis));
+            if (huecoHasta > 0) {
+                long hasta = huecoHasta;
+                huecoHasta = 0;
+                perder(siguiente, hasta);
+            }
+            List<CambioAgenda> lote = new ArrayList<>();
+            while (lote.isEmpty()) {
+                long publicado = esperarHasta(limite);
+                if (publicado < siguiente) {
+                    return lote;  // Se acabó el tiempo o se cerró
+                }
+
+                // ¿Se han sobrescrito ya los que tocaban?
+                long primera = publicado - mascara;
+                if (siguiente < primera) {
+                    saltar(primera);
+                }
+
+                while (lote.size() < maximo && siguiente <= publicado) {
+                    CambioAgenda cambio = anillo.get((int) siguiente & mascara);
+                    if (cambio == null || cambio.getSecuencia() != siguiente) {
+                        // La casilla se acaba de sobrescribir. Primero
+                        // entregamos lo leído; el hueco se avisa en la
+                        // siguiente llamada, para no desordenar
+                        if (lote.isEmpty()) {
+                            saltar(Math.max(siguiente + 1, ultima.get() - mascara));
+                        }
+                        break;
+                    }
+                    lote.add(cambio);
+                    siguiente++;
+                }
+            }
+            return lote;
+        }
+
+        // Secuencia del próximo cambio que leerá (la que hay que
+        // recordar para volver a suscribirse tras desconectarse)
+        public long getSiguienteSecuencia() {
+            return siguiente;
+        }
+
+        public long getPerdidos() {
+            return perdidos;
+        }
+
+        public boolean estaCerrada() {
+            return cerrada;
+        }
+
+        // Excepción con la que falló el oyente (null si no falló)
+        // Si el oyente lanza una excepción, la suscripción se cierra
+        public RuntimeException getError() {
+            return error;
+        }
+
+        @Override
+        public void close() {
+            cerrada = true;
+            suscripciones.remove(this);
+            despertar();
+        }
+
+        // ============================================================
+        // MÉTODOS INTERNOS
+        // ============================================================
+
+        // Espera hasta que haya algo que leer, se cierre o llegue el
+        // "limite". Devuelve la secuencia publicada en ese momento
+        private long esperarHasta(long limite) throws InterruptedException {
+            while (true) {
+                long publicado = ultima.get();
+                long queda = limite - System.nanoTime();
+                if (publicado >= siguiente || cerrada || queda <= 0) {
+                    return publicado;
+                }
+                // Nos apuntamos como dormidos y volvemos a mirar antes
+                // de dormir: si el canal publicó justo entre medias,
+                // no nos dormimos (y si publica después, nos despierta)
+                esperando = Thread.currentThread();
+                if (ultima.get() < siguiente && !cerrada) {
+                    LockSupport.parkNanos(this, queda);
+                }
+                esperando = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        void despertar() {
+            Thread hilo = esperando;
+            if (hilo != null) {
+                LockSupport.unpark(hilo);
+            }
+        }
+
+        // Salta hasta la secuencia "hasta" dando por perdidos los de antes
+        private void saltar(long hasta) {
+            long primero = siguiente;
+            siguiente = hasta;
+            perder(primero, hasta - 1);
+        }
+
+        // Apunta los cambios de "primero" a "ultimo" como perdidos y
+        // avisa al oyente
+        private void perder(long primero, long ultimo) {
+            perdidos += ultimo - primero + 1;
+            if (oyente != null) {
+                oyente.cambiosPerdidos(primero, ultimo);
+            }
+        }
+
+        // Bucle del hilo de una suscripción con oyente
+        private void repartir(int tamanioLote) {
+            try {
+                while (!cerrada) {
+                    List<CambioAgenda> lote = siguientes(tamanioLote, 1000);
+                    if (!lote.isEmpty()) {
+                        oyente.recibir(lote);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                error = e;
+            } finally {
+                close();
+            }
+        }
+    }
+}
@@ -20,6 +20,34 @@ public class Contacto {
     private String apellido;  // Almacena el apellido del contacto
     private String telefono;  // Almacena el teléfono del contacto
 
+    // Agenda a la que pertenece el contacto (null si no está en ninguna)
+    // No es "private" para que la clase Agenda pueda asignarlo
+    // Un contacto solo puede estar en una agenda a la vez
+    ObservadorContacto propietario;
+
+    // Número de orden de llegada a la agenda (lo asigna la agenda)
+    // Sirve para desempatar dos contactos con el mismo nombre completo
+    long secuencia;
+
+    // Posición que ocupa en el almacén de su agenda (-1 si no está en ninguna)
+    int posicion = -1;
+
+    // Ids del nombre y del apellido en el diccionario de su agenda
+    // (ver DiccionarioNombres); SIN_ID si no está en ninguna agenda
+    int idNombre = DiccionarioNombres.SIN_ID;
+    int idApellido = DiccionarioNombres.SIN_ID;
+
+    // Cuántas veces ha entrado en el índice aproximado de su agenda
+    // (módulo 256): distingue sus entradas actuales de las de un
+    // nombre anterior (ver IndiceAproximado)
+    byte versionAproximado;
+
+    // Clave de ordenación según el idioma y el orden para el que se
+    // calculó (ver OrdenAlfabetico). Se calcula la primera vez que
+    // hace falta y se borra al cambiar el nombre o el apellido
+    private byte[] claveOrden;
+    private OrdenAlfabetico ordenDeLaClave;
+
     // ============================================================
     // CONSTRUCTOR
     // Es un método especial que se ejecuta cuando creamos un nuevo contacto
@@ -68,17 +96,46 @@ public class Contacto {
     // Método para cambiar el nombre
     // "void" significa que este método NO devuelve ningún valor
     public void setNombre(String nombre) {
+        // Avisamos a la agenda antes y después del cambio
+        // para que pueda mantener su índice al día
+        if (propietario != null) {
+            propietario.antesDeCambiarNombre(this);
+        }
+
         this.nombre = nombre;
+        claveOrden = null;  // Ya no vale: se recalculará al necesitarla
+
+        if (propietario != null) {
+            propietario.despuesDeCambiarNombre(this);
+        }
     }
 
     // Método para cambiar el apellido
     public void setApellido(String apellido) {
+        if (propietario != null) {
+            propietario.antesDeCambiarNombre(this);
+        }
+
         this.apellido = apellido;
+        claveOrden = null;
+
+        if (propietario != null) {
+            propietario.despuesDeCambiarNombre(this);
+        }
     }
 
     // Método para cambiar el teléfono
     public void setTelefono(String telefono) {
+        // También avisamos a la agenda: tiene un índice por teléfono
+        if (propietario != null) {
+            propietario.antesDeCambiarTelefono(this);
+        }
+
         this.telefono = telefono;
+
+        if (propietario != null) {
+            propietario.despuesDeCambiarTelefono(this);
+        }
     }
 
     // ============================================================
@@ -96,6 +153,12 @@ public class Contacto {
             return false;  // Si es null, no pueden ser iguales
         }
 
+        // Si los dos están en la misma agenda, basta con comparar los
+        // ids del diccionario, que ya ignoran mayúsculas/minúsculas
+        if (propietario != null && propietario == otro.propietario && tieneIds() && otro.tieneIds()) {
+            return idNombre == otro.idNombre && idApellido == otro.idApellido;
+        }
+
         // equalsIgnoreCase() compara dos Strings ignorando mayúsculas/minúsculas
         // "&&" es el operador AND (Y lógico) - ambas condiciones deben ser true
         // Comparamos nombre con nombre Y apellido con apellido
@@ -143,4 +206,148 @@ public class Contacto {
         // toLowerCase() convierte todo el texto a minúsculas
         return (nombre + " " + apellido).toLowerCase();
     }
-}
\ No newline at end of file
+
+    // ============================================================
+    // MÉTODO: compararNombreCompleto
+    // Ordena dos contactos por "nombre apellido" en minúsculas, letra
+    // a letra, sin crear el texto del nombre completo (ordenar un
+    // árbol de millones de contactos hace muchísimas comparaciones)
+    // Devuelve un número negativo si "a" va antes, 0 si son iguales
+    // o positivo si "b" va antes
+    // ============================================================
+
+    static int compararNombreCompleto(Contacto a, Contacto b) {
+        // String.valueOf(null) es "null", igual que al concatenar
+        String nombreA = String.valueOf(a.nombre);
+        String apellidoA = String.valueOf(a.apellido);
+        String nombreB = String.valueOf(b.nombre);
+        String apellidoB = String.valueOf(b.apellido);
+
+        int largoA = nombreA.length() + 1 + apellidoA.length();
+        int largoB = nombreB.length() + 1 + apellidoB.length();
+
+        // En la misma agenda, dos nombres iguales son el mismo objeto
+        // (ver DiccionarioNombres): podemos saltarnos el nombre entero
+        int desde = nombreA == nombreB ? nombreA.length() + 1 : 0;
+
+        int fin = Math.min(largoA, largoB);
+        for (int i = desde; i < fin; i++) {
+            char letraA = letraNombreCompleto(nombreA, apellidoA, i);
+            char letraB = letraNombreCompleto(nombreB, apellidoB, i);
+            if (letraA == letraB) {
+                continue;  // Iguales tal cual: también en minúsculas
+            }
+            letraA = Character.toLowerCase(letraA);
+            letraB = Character.toLowerCase(letraB);
+            if (letraA != letraB) {
+                return letraA - letraB;
+            }
+        }
+        return largoA - largoB;
+    }
+
+    // Letra "i" de "nombre apellido", sin construir el texto
+    private static char letraNombreCompleto(String nombre, String apellido, int i) {
+        if (i < nombre.length()) {
+            return nombre.charAt(i);
+        }
+        if (i == nombre.length()) {
+            return ' ';
+        }
+        return apellido.charAt(i - nombre.length() - 1);
+    }
+
+    // Clave de ordenación para "orden" (la calcula si no la tenía)
+    // La agenda la pide al guardar el contacto en su vista ordenada,
+    // así las lecturas de varios hilos la encuentran ya calculada
+    // claveOrden se lee una sola vez: aunque otro hilo la borrara a
+    // la vez, nunca se devuelve null. Un contacto guardado solo tiene
+    // clave de un orden (AgendaVersionada copia los contactos al
+    // cambiar de orden), así que los lectores nunca la recalculan
+    byte[] claveOrden(OrdenAlfabetico orden) {
+        byte[] clave = claveOrden;
+        if (clave == null || ordenDeLaClave != orden) {
+            clave = orden.calcularClave(nombre, apellido);
+            claveOrden = clave;
+            ordenDeLaClave = orden;
+        }
+        return clave;
+    }
+
+    // ============================================================
+    // MÉTODOS PARA EL DICCIONARIO DE NOMBRES
+    // Los usa la agenda al guardar, renombrar o quitar el contacto
+    // ============================================================
+
+    // Cambia nombre y apellido por las copias únicas del diccionario
+    // (el texto es el mismo, solo cambia el objeto String)
+    void internar(DiccionarioNombres diccionario) {
+        // Un texto null (por ejemplo tras setNombre(null)) no se guarda
+        if (nombre != null) {
+            DiccionarioNombres.Entrada entrada = diccionario.internar(nombre);
+            nombre = entrada.texto;
+            idNombre = entrada.id;
+        }
+        if (apellido != null) {
+            DiccionarioNombres.Entrada entrada = diccionario.internar(apellido);
+            apellido = entrada.texto;
+            idApellido = entrada.id;
+        }
+    }
+
+    // Deja de usar los textos del diccionario
+    void soltar(DiccionarioNombres diccionario) {
+        if (idNombre != DiccionarioNombres.SIN_ID) {
+            diccionario.soltar(nombre);
+        }
+        if (idApellido != DiccionarioNombres.SIN_ID) {
+            diccionario.soltar(apellido);
+        }
+        idNombre = DiccionarioNombres.SIN_ID;
+        idApellido = DiccionarioNombres.SIN_ID;
+    }
+
+    private boolean tieneIds() {
+        return idNombre != DiccionarioNombres.SIN_ID && idApellido != DiccionarioNombres.SIN_ID;
+    }
+
+    // ============================================================
+    // MÉTODOS PARA OBTENER LA CLAVE DEL ÍNDICE
+    // La clave identifica al contacto igual que esIgual():
+    // nombre y apellido sin importar mayúsculas/minúsculas
+    // ============================================================
+
+    // Devuelve la clave de este contacto
+    String getClave() {
+        return claveDe(nombre, apellido);
+    }
+
+    // Devuelve la clave para un nombre y apellido cualquiera
+    // Devuelve null si falta alguno de los dos
+    static String claveDe(String nombre, String apellido) {
+        if (nombre == null || apellido == null) {
+            return null;
+        }
+
+        // StringBuilder permite construir un texto poco a poco sin crear
+        // un String nuevo en cada paso
+        StringBuilder clave = new StringBuilder(nombre.length() + apellido.length() + 1);
+        plegar(nombre, clave);
+
+        // Separamos nombre y apellido con un carácter que no se escribe
+        // desde el teclado, para que "Ana" + "Mar Ruiz" no se confunda con "Ana Mar" + "Ruiz"
+        clave.append('\u0000');
+        plegar(apellido, clave);
+
+        return clave.toString();
+    }
+
+    // Añade el texto "plegado": cada letra pasa a mayúscula y luego a
+    // minúscula, que es exactamente lo que hace equalsIgnoreCase()
+    // al comparar letra a letra
+    private static void plegar(String texto, StringBuilder destino) {
+        for (int i = 0; i < texto.length(); i++) {
+            destino.append(Character.toLowerCase(Character.toUpperCase(texto.charAt(i))));
+        }
+    }
+}
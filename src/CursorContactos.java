@@ -0,0 +1,107 @@
+// ============================================================
+// CLASE CURSORCONTACTOS
+// Marca un punto del orden alfabético de la agenda para pedir
+// "los siguientes N contactos" a partir de ahí
+//
+// Guarda el nombre, el apellido y el número de llegada del último
+// contacto mostrado (no el contacto en sí), así que sigue valiendo
+// aunque ese contacto se elimine o se añadan otros entre página
+// y página: la siguiente página empieza justo después de donde
+// estaría ese contacto
+//
+// Uso típico:
+//   List<Contacto> pagina = agenda.obtenerPagina(null, 50);
+//   CursorContactos cursor = CursorContactos.despuesDe(pagina.get(pagina.size() - 1));
+//   pagina = agenda.obtenerPagina(cursor, 50);
+// ============================================================
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class CursorContactos {
+
+    // Cuántos contactos pide de cada vez el Stream de la agenda
+    static final int TAMANIO_TANDA = 256;
+
+    private final String nombre;
+    private final String apellido;
+    private final long secuencia;
+
+    private CursorContactos(String nombre, String apellido, long secuencia) {
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.secuencia = secuencia;
+    }
+
+    // Cursor que apunta justo después del contacto indicado
+    public static CursorContactos despuesDe(Contacto c) {
+        return new CursorContactos(c.getNombre(), c.getApellido(), c.secuencia);
+    }
+
+    // Contacto "de mentira" que ocupa en el orden la posición del
+    // cursor, para buscar en el árbol de VistaOrdenada
+    Contacto sonda() {
+        Contacto sonda = new Contacto(nombre, apellido, null);
+        sonda.secuencia = secuencia;
+        return sonda;
+    }
+
+    @Override
+    public String toString() {
+        return "después de " + nombre + " " + apellido + " (#" + secuencia + ")";
+    }
+
+    // ============================================================
+    // MÉTODO: recorrer
+    // Crea un Stream que pide los contactos por tandas a "paginador"
+    // (por ejemplo agenda::obtenerPagina). Entre tanda y tanda solo
+    // se guarda un cursor, así que la agenda se puede modificar
+    // mientras se recorre el Stream sin ConcurrentModificationException
+    // ============================================================
+
+    static Stream<Contacto> recorrer(BiFunction<CursorContactos, Integer, List<Contacto>> paginador,
+                                     CursorContactos desde) {
+        Iterator<Contacto> iterador = new Iterator<Contacto>() {
+            private CursorContactos cursor = desde;
+            private List<Contacto> tanda = List.of();
+            private int posicion = 0;
+            private boolean terminado = false;
+
+            @Override
+            public boolean hasNext() {
+                if (posicion < tanda.size()) {
+                    return true;
+                }
+                if (terminado) {
+                    return false;
+                }
+
+                // Tanda agotada: pedimos la siguiente a partir del cursor
+                tanda = paginador.apply(cursor, TAMANIO_TANDA);
+                posicion = 0;
+                terminado = tanda.size() < TAMANIO_TANDA;
+                if (!tanda.isEmpty()) {
+                    cursor = despuesDe(tanda.get(tanda.size() - 1));
+                }
+                return !tanda.isEmpty();
+            }
+
+            @Override
+            public Contacto next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return tanda.get(posicion++);
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterador,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
@@ -0,0 +1,939 @@
+// ============================================================
+// CLASE DIARIOAGENDA
+// Guarda en disco cada cambio de la agenda para no perder nada
+// al cerrar el programa (o si se cuelga)
+//
+// Usa dos ficheros dentro de una carpeta:
+// - agenda.instantanea: una "foto" completa de la agenda
+// - agenda.diario: los cambios hechos DESPUÉS de esa foto,
+//   uno detrás de otro (solo se escribe al final del fichero)
+//
+// Al arrancar se carga la foto y se repiten los cambios del
+// diario. De vez en cuando se hace una foto nueva y se vacía el
+// diario ("compactar") para que no crezca sin parar
+//
+// Compactar no frena a quien modifica la agenda: el hilo escritor
+// aparta el diario lleno (agenda.diario.anterior) y empieza uno
+// vacío, y otro hilo hace la foto nueva a partir de la foto vieja
+// más el diario apartado, sin tocar la agenda. Si el programa se
+// cuelga a mitad, al arrancar se repiten los dos diarios
+//
+// Si el disco falla, los cambios ya están hechos en la agenda (en
+// memoria) y el diario no lanza excepciones a quien la modifica:
+// el error se consulta con getError() y lo lanzan sincronizar(),
+// compactar() y close()
+// ============================================================
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+public class DiarioAgenda implements OyenteAgenda, Closeable {
+
+    // ============================================================
+    // CONSTANTES
+    // ============================================================
+
+    static final String FICHERO_INSTANTANEA = "agenda.instantanea";
+    static final String FICHERO_DIARIO = "agenda.diario";
+    static final String FICHERO_ANTERIOR = "agenda.diario.anterior";
+
+    // Números "mágicos" al principio de cada fichero para reconocerlos
+    private static final int MAGICO_INSTANTANEA = 0x41474E53;  // "AGNS"
+    private static final int MAGICO_DIARIO = 0x41474E44;       // "AGND"
+    // Versión 1: textos con writeUTF (como mucho 65535 bytes cada uno)
+    // Versión 2: textos con su longitud en un int (sin ese límite)
+    // Versión 3: las bajas, teléfonos y renombrados dicen también cuál
+    //   de los contactos con esa clave era (ver Estado)
+    // Se leen todas; se escribe siempre la 3
+    private static final int VERSION = 3;
+
+    // Cabecera del diario: mágico (4) + versión (4) + generación (8)
+    private static final int CABECERA_DIARIO = 16;
+
+    // Tipos de registro del diario
+    private static final byte ALTA = 1;
+    private static final byte BAJA = 2;
+    private static final byte TELEFONO = 3;
+    private static final byte RENOMBRE = 4;
+
+    // Cada cuánto se escriben en disco los cambios acumulados
+    private static final long INTERVALO_ESCRITURA_MS = 5;
+
+    // Si se acumulan más bytes sin escribir, quien modifica espera
+    // (así la memoria no crece sin límite si el disco es lento)
+    private static final int MAX_PENDIENTE = 16 * 1024 * 1024;
+
+    // Tamaño del diario a partir del cual se hace una foto nueva
+    public static final long LIMITE_COMPACTACION_POR_DEFECTO = 64L * 1024 * 1024;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final Path carpeta;
+    private final Agenda agenda;
+    private final boolean esperarDisco;
+    private final long limiteCompactacion;
+
+    // Canal al fichero del diario (siempre escribimos al final)
+    private FileChannel canal;
+
+    // Generación de la foto actual: el diario solo vale para su foto
+    private long generacion;
+
+    // Registro que se está preparando (se reutiliza para no crear objetos)
+    private final Registro bytesRegistro = new Registro();
+    private final DataOutputStream registro = new DataOutputStream(bytesRegistro);
+    private final CRC32 crc = new CRC32();
+
+    // Todo lo que sigue se comparte con el hilo escritor
+    // y solo se toca dentro de synchronized (cerrojo)
+    private final Object cerrojo = new Object();
+    private ByteBuffer pendiente = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer enEscritura = ByteBuffer.allocate(64 * 1024);
+    private long escritos;    // Bytes entregados al diario
+    private long duraderos;   // Bytes que ya están guardados en el disco
+    private long bytesDesdeInstantanea;  // Bytes en el diario desde la última foto
+    private boolean cerrando;
+    private IOException error;
+
+    // Compactación: "apartar" pide al escritor que aparte el diario
+    // y "compactando" dura desde que se pide hasta que la foto nueva
+    // está en disco (solo hay una a la vez)
+    private boolean apartar;
+    private boolean compactando;
+    private Thread compactador;
+
+    // Hilo que escribe en disco en segundo plano
+    private final Thread escritor;
+
+    // ByteArrayOutputStream que deja leer su array sin copiarlo
+    private static final class Registro extends ByteArrayOutputStream {
+        byte[] datos() {
+            return buf;
+        }
+    }
+
+    // ============================================================
+    // CLASE INTERNA: Estado
+    // Los contactos de una foto más sus diarios, sin índices ni
+    // validaciones: solo lo necesario para repetir los registros.
+    // Sirve para arrancar y para hacer la foto nueva en segundo
+    // plano sin tocar la agenda
+    // ============================================================
+
+    private static final class Estado {
+        // Clave (Contacto.claveDe, null si falta nombre o apellido) ->
+        // los contactos con esa clave, {nombre, apellido, teléfono}
+        // Un renombrado puede dejar varios con la misma clave (la
+        // agenda los guarda todos); van en el mismo orden que en
+        // IndiceContactos: primero el principal (el que encuentra
+        // buscar) y después los duplicados. Así la "posición" que
+        // guarda el diario señala al mismo contacto aquí y en la agenda
+        final LinkedHashMap<String, ArrayList<String[]>> contactos = new LinkedHashMap<>();
+        int cantidad = 0;
+
+        void alta(String nombre, String apellido, String telefono) {
+            // Como IndiceContactos.añadir: si la clave ya tenía
+            // contacto, el nuevo queda como duplicado
+            contactos.computeIfAbsent(Contacto.claveDe(nombre, apellido), k -> new ArrayList<>(1))
+                    .add(new String[] {nombre, apellido, telefono});
+            cantidad++;
+        }
+
+        void baja(String nombre, String apellido, int posicion) {
+            quitar(Contacto.claveDe(nombre, apellido), posicion);
+        }
+
+        void telefono(String nombre, String apellido, String telefono, int posicion) {
+            ArrayList<String[]> grupo = contactos.get(Contacto.claveDe(nombre, apellido));
+            if (grupo != null && posicion < grupo.size()) {
+                grupo.get(posicion)[2] = telefono;
+            }
+        }
+
+        void renombre(String nombreAnterior, String apellidoAnterior, String nombre, String apellido,
+                      int posicion) {
+            String[] datos = quitar(Contacto.claveDe(nombreAnterior, apellidoAnterior), posicion);
+            if (datos != null) {
+                alta(nombre, apellido, datos[2]);
+            }
+        }
+
+        // Quita el contacto "posicion" de su clave igual que
+        // IndiceContactos.eliminar: si era el principal y hay
+        // duplicados, el último duplicado pasa a principal
+        private String[] quitar(String clave, int posicion) {
+            ArrayList<String[]> grupo = contactos.get(clave);
+            if (grupo == null || posicion >= grupo.size()) {
+                return null;
+            }
+            String[] datos;
+            if (posicion == 0 && grupo.size() > 1) {
+                datos = grupo.set(0, grupo.remove(grupo.size() - 1));
+            } else {
+                datos = grupo.remove(posicion);
+            }
+            if (grupo.isEmpty()) {
+                contactos.remove(clave);
+            }
+            cantidad--;
+            return datos;
+        }
+    }
+
+    // ============================================================
+    // CONSTRUCTOR (privado: se usa el método abrir)
+    // ============================================================
+
+    private DiarioAgenda(Path carpeta, Agenda agenda, FileChannel canal, long generacion,
+                         long bytesDesdeInstantanea, boolean esperarDisco, long limiteCompactacion) {
+        this.carpeta = carpeta;
+        this.agenda = agenda;
+        this.canal = canal;
+        this.generacion = generacion;
+        this.bytesDesdeInstantanea = bytesDesdeInstantanea;
+        this.esperarDisco = esperarDisco;
+        this.limiteCompactacion = limiteCompactacion;
+
+        // Un hilo "daemon" no impide que el programa termine
+        escritor = new Thread(this::escribirEnSegundoPlano, "diario-agenda");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // ============================================================
+    // MÉTODO: abrir
+    // Carga en "agenda" lo guardado en la carpeta y, a partir de
+    // ese momento, guarda cada cambio que se haga en ella
+    // La agenda debería estar vacía y sin límite (Agenda.SIN_LIMITE)
+    // ============================================================
+
+    public static DiarioAgenda abrir(Path carpeta, Agenda agenda) throws IOException {
+        return abrir(carpeta, agenda, false, LIMITE_COMPACTACION_POR_DEFECTO);
+    }
+
+    // esperarDisco = true: cada cambio espera a estar en el disco antes
+    //   de seguir (más lento, pero no se pierde nada si se va la luz).
+    //   Si varios hilos esperan a la vez, comparten la misma escritura
+    // esperarDisco = false: los cambios se escriben en lotes cada pocos
+    //   milisegundos; si el programa se cuelga se pierden como mucho
+    //   los cambios de esos últimos milisegundos
+    public static DiarioAgenda abrir(Path carpeta, Agenda agenda, boolean esperarDisco,
+                                     long limiteCompactacion) throws IOException {
+        Files.createDirectories(carpeta);
+        Estado estado = new Estado();
+
+        // PASO 1: cargar la última foto (si la hay)
+        long generacion = leerInstantanea(carpeta.resolve(FICHERO_INSTANTANEA), estado);
+
+        // PASO 2: si quedó un diario apartado de esa foto (se colgó
+        // antes de terminar la foto nueva), sus cambios van primero
+        // y el diario actual es ya de la generación siguiente
+        Path anterior = carpeta.resolve(FICHERO_ANTERIOR);
+        if (Files.exists(anterior)) {
+            if (repetirDiario(anterior, generacion, estado) >= 0) {
+                generacion++;
+            } else {
+                // Es de una foto más vieja: ya está dentro de la foto
+                Files.delete(anterior);
+            }
+        }
+
+        // PASO 3: repetir los cambios del diario que van detrás
+        Path fichero = carpeta.resolve(FICHERO_DIARIO);
+        long finValido = -1;
+        if (Files.exists(fichero)) {
+            finValido = repetirDiario(fichero, generacion, estado);
+            if (finValido >= 0 && leerVersion(fichero) != VERSION && !Files.exists(anterior)) {
+                // Diario de una versión vieja: no se puede seguir
+                // escribiendo en él con el formato nuevo. Se aparta
+                // (la foto nueva lo incluirá) y empezamos otro
+                Files.move(fichero, anterior, StandardCopyOption.ATOMIC_MOVE);
+                sincronizarCarpeta(carpeta);
+                generacion++;
+                finValido = -1;
+            }
+        }
+
+        // PASO 4: dejar el diario listo para seguir escribiendo al final
+        FileChannel canal;
+        if (finValido < 0) {
+            // No había diario o era de una foto anterior: empezamos uno nuevo
+            canal = crearDiario(carpeta, generacion);
+            finValido = CABECERA_DIARIO;
+        } else {
+            // Cortamos el posible registro a medias que dejó un cuelgue
+            canal = FileChannel.open(fichero, StandardOpenOption.WRITE);
+            canal.truncate(finValido);
+            canal.position(finValido);
+        }
+
+        // PASO 5: pasar los contactos a la agenda (todavía sin diario:
+        // estas altas no se vuelven a escribir). Se usa restaurar y no
+        // añadir: los duplicados que dejó un renombrado y los contactos
+        // sin nombre también estaban en la agenda y tienen que volver.
+        // Si no caben todos, mejor fallar que perder alguno sin avisar
+        if (estado.cantidad > agenda.espaciosLibres()) {
+            canal.close();
+            throw new IOException("La agenda no tiene sitio para los " + estado.cantidad
+                    + " contactos guardados en " + carpeta);
+        }
+        for (ArrayList<String[]> grupo : estado.contactos.values()) {
+            for (String[] datos : grupo) {
+                agenda.restaurar(new Contacto(datos[0], datos[1], datos[2]));
+            }
+        }
+
+        DiarioAgenda diario = new DiarioAgenda(carpeta, agenda, canal, generacion,
+                finValido - CABECERA_DIARIO, esperarDisco, limiteCompactacion);
+        agenda.añadirOyente(diario);
+
+        // Si quedó un diario apartado, falta la foto que lo incluye
+        if (Files.exists(anterior)) {
+            synchronized (diario.cerrojo) {
+                diario.compactando = true;
+                diario.empezarFoto(generacion);
+            }
+        }
+        return diario;
+    }
+
+    // ============================================================
+    // AVISOS DE LA AGENDA (métodos de OyenteAgenda)
+    // Cada cambio se convierte en un registro del diario
+    // ============================================================
+
+    @Override
+    public void contactoAñadido(Contacto c) {
+        empezar(ALTA);
+        texto(c.getNombre());
+        texto(c.getApellido());
+        texto(c.getTelefono());
+        terminar();
+    }
+
+    @Override
+    public void contactoEliminado(Contacto c) {
+        empezar(BAJA);
+        texto(c.getNombre());
+        texto(c.getApellido());
+        numero(agenda.posicionAnterior());
+        terminar();
+    }
+
+    @Override
+    public void telefonoModificado(Contacto c, String telefonoAnterior) {
+        empezar(TELEFONO);
+        texto(c.getNombre());
+        texto(c.getApellido());
+        texto(c.getTelefono());
+        numero(agenda.posicionAnterior());
+        terminar();
+    }
+
+    @Override
+    public void contactoRenombrado(Contacto c, String nombreAnterior, String apellidoAnterior) {
+        empezar(RENOMBRE);
+        texto(nombreAnterior);
+        texto(apellidoAnterior);
+        texto(c.getNombre());
+        texto(c.getApellido());
+        numero(agenda.posicionAnterior());
+        terminar();
+    }
+
+    // ============================================================
+    // MÉTODOS PÚBLICOS
+    // ============================================================
+
+    // Espera a que todos los cambios hechos hasta ahora estén en disco
+    // Lanza UncheckedIOException si el disco falló
+    public void sincronizar() {
+        long fin;
+        synchronized (cerrojo) {
+            fin = escritos;
+        }
+        esperarHasta(fin);
+    }
+
+    // Hace una foto nueva con todo lo hecho hasta ahora y empieza un
+    // diario vacío, y espera a que termine. Se puede llamar desde
+    // cualquier hilo (la agenda no se toca)
+    public void compactar() throws IOException {
+        synchronized (cerrojo) {
+            // Si ya había una en marcha, esperamos a que acabe
+            while (compactando && error == null) {
+                esperar();
+            }
+            pedirCompactacion();
+            while (compactando && error == null) {
+                esperar();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    // Error de disco del diario (null si todo va bien). Después de un
+    // error ya no se guardan más cambios: la agenda en memoria sigue
+    // funcionando, pero lo que se haga ya no estará al volver a abrirla
+    public IOException getError() {
+        synchronized (cerrojo) {
+            return error;
+        }
+    }
+
+    // Escribe lo pendiente, para el hilo escritor y cierra el fichero
+    @Override
+    public void close() throws IOException {
+        agenda.quitarOyente(this);
+
+        synchronized (cerrojo) {
+            cerrando = true;
+            cerrojo.notifyAll();
+        }
+
+        try {
+            escritor.join();
+            // Una foto a medias se puede terminar: es más rápido que
+            // repetir el diario apartado al volver a abrir
+            Thread foto;
+            synchronized (cerrojo) {
+                foto = compactador;
+            }
+            if (foto != null) {
+                foto.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        canal.close();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // ============================================================
+    // ESCRITURA DE REGISTROS
+    // Formato: [longitud][CRC32][tipo + textos]
+    // El CRC32 es una "huella" de los datos: si al leer no coincide,
+    // el registro quedó a medias y se ignora
+    // ============================================================
+
+    private void empezar(byte tipo) {
+        bytesRegistro.reset();
+        try {
+            registro.writeByte(tipo);
+        } catch (IOException e) {
+            // No puede pasar: escribimos en memoria
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void texto(String s) {
+        try {
+            escribirTexto(registro, s);
+        } catch (IOException e) {
+            // No puede pasar: escribimos en memoria
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void numero(int n) {
+        try {
+            registro.writeInt(n);
+        } catch (IOException e) {
+            // No puede pasar: escribimos en memoria
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // El cambio ya está hecho en la agenda: aquí nunca se lanza una
+    // excepción por un error de disco (ver getError)
+    private void terminar() {
+        int longitud = bytesRegistro.size();
+        crc.reset();
+        crc.update(bytesRegistro.datos(), 0, longitud);
+
+        long fin;
+        synchronized (cerrojo) {
+            // Si el disco es muy lento, esperamos a que se vacíe un poco
+            while (pendiente.position() > MAX_PENDIENTE && error == null) {
+                cerrojo.notifyAll();
+                esperar();
+            }
+            if (error != null) {
+                return;  // El diario ya no vale: no acumulamos más
+            }
+
+            hacerHueco(8 + longitud);
+            pendiente.putInt(longitud);
+            pendiente.putInt((int) crc.getValue());
+            pendiente.put(bytesRegistro.datos(), 0, longitud);
+
+            escritos += 8 + longitud;
+            fin = escritos;
+
+            // Diario demasiado grande: el escritor lo aparta y otro
+            // hilo hace la foto (aquí no esperamos a ninguno de los dos)
+            bytesDesdeInstantanea += 8 + longitud;
+            if (bytesDesdeInstantanea >= limiteCompactacion && !compactando) {
+                pedirCompactacion();
+            }
+        }
+
+        if (esperarDisco) {
+            synchronized (cerrojo) {
+                cerrojo.notifyAll();
+                while (duraderos < fin && error == null) {
+                    esperar();
+                }
+            }
+        }
+    }
+
+    // Pide al escritor que aparte el diario en cuanto escriba lo
+    // pendiente (solo se llama dentro de synchronized (cerrojo))
+    private void pedirCompactacion() {
+        compactando = true;
+        apartar = true;
+        bytesDesdeInstantanea = 0;
+        cerrojo.notifyAll();
+    }
+
+    // Agranda el buffer pendiente si no caben "bytes" más
+    // (solo se llama dentro de synchronized (cerrojo))
+    private void hacerHueco(int bytes) {
+        if (pendiente.remaining() < bytes) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendiente.capacity() * 2, pendiente.position() + bytes));
+            pendiente.flip();
+            mayor.put(pendiente);
+            pendiente = mayor;
+        }
+    }
+
+    // Espera a que los bytes hasta "fin" estén en disco
+    private void esperarHasta(long fin) {
+        synchronized (cerrojo) {
+            // Despertamos al escritor para que no espere a su próximo turno
+            cerrojo.notifyAll();
+            while (duraderos < fin && error == null) {
+                esperar();
+            }
+            comprobarError();
+        }
+    }
+
+    private void esperar() {
+        try {
+            cerrojo.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se esperaba al disco", e);
+        }
+    }
+
+    private void comprobarError() {
+        if (error != null) {
+            throw new UncheckedIOException("El diario de la agenda no se pudo escribir", error);
+        }
+    }
+
+    // ============================================================
+    // HILO ESCRITOR
+    // Cada pocos milisegundos (o antes si alguien espera) se lleva
+    // todo lo pendiente, lo escribe de una vez y hace un único
+    // force() para todos esos cambios ("group commit")
+    // ============================================================
+
+    private void escribirEnSegundoPlano() {
+        while (true) {
+            ByteBuffer lote;
+            FileChannel destino;
+            long fin;
+            boolean apartarAhora;
+
+            synchronized (cerrojo) {
+                while (pendiente.position() == 0 && !cerrando && !apartar) {
+                    try {
+                        cerrojo.wait(INTERVALO_ESCRITURA_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendiente.position() == 0 && !apartar) {
+                    return;  // Nos están cerrando y no queda nada
+                }
+
+                // Intercambiamos los buffers: los que modifican siguen
+                // escribiendo en uno mientras el otro va al disco
+                lote = pendiente;
+                pendiente = enEscritura;
+                enEscritura = lote;
+                destino = canal;
+                fin = escritos;
+                apartarAhora = apartar;
+                apartar = false;
+            }
+
+            try {
+                lote.flip();
+                while (lote.hasRemaining()) {
+                    destino.write(lote);
+                }
+                // force() obliga al sistema operativo a guardar en el disco físico
+                destino.force(false);
+                lote.clear();
+
+                // Todos los registros hasta "fin" están en el diario lleno
+                // y los siguientes aún no se han escrito: es el momento
+                // de apartarlo y seguir en uno vacío
+                if (apartarAhora) {
+                    apartarDiario();
+                }
+            } catch (IOException e) {
+                synchronized (cerrojo) {
+                    error = e;
+                    cerrojo.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (cerrojo) {
+                duraderos = fin;
+                cerrojo.notifyAll();
+            }
+        }
+    }
+
+    // ============================================================
+    // COMPACTACIÓN EN SEGUNDO PLANO
+    // 1. (hilo escritor) el diario lleno pasa a agenda.diario.anterior
+    //    y se empieza uno vacío con la generación siguiente
+    // 2. (hilo compactador) foto vieja + diario apartado = foto nueva
+    //    con esa generación; después se borra el diario apartado
+    // Si el programa se cuelga entre 1 y 2, al arrancar se repiten
+    // la foto vieja, el diario apartado y el diario nuevo
+    // ============================================================
+
+    private void apartarDiario() throws IOException {
+        Files.move(carpeta.resolve(FICHERO_DIARIO), carpeta.resolve(FICHERO_ANTERIOR),
+                StandardCopyOption.ATOMIC_MOVE);
+        sincronizarCarpeta(carpeta);
+        FileChannel nuevoCanal = crearDiario(carpeta, generacion + 1);
+
+        FileChannel viejo;
+        synchronized (cerrojo) {
+            viejo = canal;
+            canal = nuevoCanal;
+            generacion++;
+            empezarFoto(generacion);
+        }
+        viejo.close();
+    }
+
+    // Lanza el hilo que hace la foto "nueva"
+    // (solo se llama dentro de synchronized (cerrojo))
+    private void empezarFoto(long nueva) {
+        compactador = new Thread(() -> hacerFoto(nueva), "compactacion-agenda");
+        compactador.setDaemon(true);
+        compactador.start();
+    }
+
+    private void hacerFoto(long nueva) {
+        IOException fallo = null;
+        try {
+            Estado estado = new Estado();
+            long vieja = leerInstantanea(carpeta.resolve(FICHERO_INSTANTANEA), estado);
+            Path anterior = carpeta.resolve(FICHERO_ANTERIOR);
+            if (repetirDiario(anterior, vieja, estado) < 0) {
+                throw new IOException("El diario apartado " + anterior + " no corresponde a la foto");
+            }
+
+            // La foto nueva lleva la generación del diario nuevo: a partir
+            // de aquí el apartado sobra (y al arrancar se ignoraría)
+            escribirInstantanea(carpeta, estado, nueva);
+            Files.delete(anterior);
+            sincronizarCarpeta(carpeta);
+        } catch (IOException e) {
+            fallo = e;
+        }
+
+        synchronized (cerrojo) {
+            if (fallo != null && error == null) {
+                error = fallo;
+            }
+            compactando = false;
+            compactador = null;
+            cerrojo.notifyAll();
+        }
+    }
+
+    // ============================================================
+    // LECTURA AL ARRANCAR (y al compactar)
+    // ============================================================
+
+    // Carga la foto en "estado" y devuelve su generación (0 si no hay foto)
+    private static long leerInstantanea(Path fichero, Estado estado) throws IOException {
+        if (!Files.exists(fichero)) {
+            return 0;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fichero), 1 << 16))) {
+            int version;
+            if (in.readInt() != MAGICO_INSTANTANEA || !versionValida(version = in.readInt())) {
+                throw new IOException("El fichero " + fichero + " no es una instantánea de agenda válida");
+            }
+
+            long generacion = in.readLong();
+            int cantidad = in.readInt();
+
+            for (int i = 0; i < cantidad; i++) {
+                // Los argumentos se evalúan de izquierda a derecha:
+                // nombre, apellido y teléfono en el orden en que se guardaron
+                estado.alta(leerTexto(in, version), leerTexto(in, version), leerTexto(in, version));
+            }
+            return generacion;
+        }
+    }
+
+    private static boolean versionValida(int version) {
+        return version >= 1 && version <= VERSION;
+    }
+
+    // Versión con la que se escribió un diario (0 si no se puede leer)
+    private static int leerVersion(Path fichero) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(fichero))) {
+            in.readInt();
+            return in.readInt();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    // Repite los cambios del diario sobre "estado"
+    // Devuelve dónde acaba el último registro correcto,
+    // o -1 si el diario no corresponde a esta foto
+    private static long repetirDiario(Path fichero, long generacion, Estado estado) throws IOException {
+        long tamanio = Files.size(fichero);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fichero), 1 << 16))) {
+            int version;
+            try {
+                if (in.readInt() != MAGICO_DIARIO || !versionValida(version = in.readInt())
+                        || in.readLong() != generacion) {
+                    return -1;
+                }
+            } catch (EOFException e) {
+                return -1;  // Ni siquiera llegó a escribirse la cabecera
+            }
+
+            CRC32 crc = new CRC32();
+            byte[] datos = new byte[256];
+            long posicion = CABECERA_DIARIO;
+
+            while (true) {
+                int longitud;
+                int suma;
+                try {
+                    longitud = in.readInt();
+                    if (longitud <= 0 || posicion + 8 + longitud > tamanio) {
+                        break;  // Basura o registro cortado al final del fichero
+                    }
+                    if (datos.length < longitud) {
+                        datos = new byte[Math.max(longitud, datos.length * 2)];
+                    }
+                    suma = in.readInt();
+                    in.readFully(datos, 0, longitud);
+                } catch (EOFException e) {
+                    break;  // Registro cortado por un cuelgue: aquí termina el diario
+                }
+
+                crc.reset();
+                crc.update(datos, 0, longitud);
+                if ((int) crc.getValue() != suma) {
+                    break;
+                }
+
+                aplicar(estado, new DataInputStream(new ByteArrayInputStream(datos, 0, longitud)), version);
+                posicion += 8 + longitud;
+            }
+            return posicion;
+        }
+    }
+
+    // Aplica un registro del diario sobre "estado"
+    // (los argumentos se leen de izquierda a derecha, como se guardaron)
+    private static void aplicar(Estado estado, DataInputStream in, int version) throws IOException {
+        byte tipo = in.readByte();
+
+        switch (tipo) {
+            case ALTA:
+                estado.alta(leerTexto(in, version), leerTexto(in, version), leerTexto(in, version));
+                break;
+
+            case BAJA:
+                estado.baja(leerTexto(in, version), leerTexto(in, version), leerPosicion(in, version));
+                break;
+
+            case TELEFONO:
+                estado.telefono(leerTexto(in, version), leerTexto(in, version), leerTexto(in, version),
+                        leerPosicion(in, version));
+                break;
+
+            case RENOMBRE:
+                estado.renombre(leerTexto(in, version), leerTexto(in, version),
+                        leerTexto(in, version), leerTexto(in, version), leerPosicion(in, version));
+                break;
+
+            default:
+                throw new IOException("Tipo de registro desconocido en el diario: " + tipo);
+        }
+    }
+
+    // Cuál de los contactos con la misma clave (0 = el principal)
+    // Los diarios de antes de la versión 3 no lo guardaban
+    private static int leerPosicion(DataInputStream in, int version) throws IOException {
+        if (version < 3) {
+            return 0;
+        }
+        int posicion = in.readInt();
+        if (posicion < 0) {
+            throw new IOException("Posición no válida en el diario: " + posicion);
+        }
+        return posicion;
+    }
+
+    // ============================================================
+    // ESCRITURA DE FICHEROS COMPLETOS
+    // Se escribe primero en un fichero ".tmp" y luego se renombra:
+    // el renombrado es atómico, así nunca queda un fichero a medias
+    // Después se sincroniza la carpeta: el renombrado es un cambio de
+    // la carpeta y sin eso podría perderse si se va la luz
+    // ============================================================
+
+    private static void escribirInstantanea(Path carpeta, Estado estado, long generacion) throws IOException {
+        Path temporal = carpeta.resolve(FICHERO_INSTANTANEA + ".tmp");
+
+        try (FileChannel fc = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(fc), 1 << 16))) {
+            out.writeInt(MAGICO_INSTANTANEA);
+            out.writeInt(VERSION);
+            out.writeLong(generacion);
+
+            // Cada clave con sus contactos seguidos y en orden: al leerla,
+            // alta() los vuelve a dejar como principal y duplicados
+            out.writeInt(estado.cantidad);
+            for (ArrayList<String[]> grupo : estado.contactos.values()) {
+                for (String[] datos : grupo) {
+                    escribirTexto(out, datos[0]);
+                    escribirTexto(out, datos[1]);
+                    escribirTexto(out, datos[2]);
+                }
+            }
+
+            out.flush();
+            fc.force(true);
+        }
+
+        Files.move(temporal, carpeta.resolve(FICHERO_INSTANTANEA),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        sincronizarCarpeta(carpeta);
+    }
+
+    // Crea un diario vacío (solo cabecera) y devuelve su canal,
+    // colocado al final para seguir escribiendo
+    private static FileChannel crearDiario(Path carpeta, long generacion) throws IOException {
+        Path temporal = carpeta.resolve(FICHERO_DIARIO + ".tmp");
+        FileChannel fc = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_DIARIO);
+        cabecera.putInt(MAGICO_DIARIO).putInt(VERSION).putLong(generacion).flip();
+        while (cabecera.hasRemaining()) {
+            fc.write(cabecera);
+        }
+        fc.force(true);
+
+        // El canal sigue valiendo después de renombrar el fichero
+        try {
+            Files.move(temporal, carpeta.resolve(FICHERO_DIARIO),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            sincronizarCarpeta(carpeta);
+        } catch (IOException e) {
+            fc.close();
+            throw e;
+        }
+        return fc;
+    }
+
+    // force() de la propia carpeta, para que los renombrados y
+    // borrados queden en el disco. En Windows una carpeta no se
+    // puede abrir así (y el sistema ya los guarda al renombrar)
+    static void sincronizarCarpeta(Path carpeta) throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel fc = FileChannel.open(carpeta, StandardOpenOption.READ)) {
+            fc.force(true);
+        }
+    }
+
+    // ============================================================
+    // TEXTOS (pueden ser null, por ejemplo un teléfono sin rellenar)
+    // La longitud en bytes va en un int (writeUTF solo admite hasta
+    // 65535 bytes y fallaría con un texto más largo) y -1 es null
+    // ============================================================
+
+    private static void escribirTexto(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String leerTexto(DataInputStream in, int version) throws IOException {
+        if (version == 1) {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+        int longitud = in.readInt();
+        if (longitud < -1) {
+            throw new IOException("Longitud de texto no válida en el diario: " + longitud);
+        }
+        if (longitud == -1) {
+            return null;
+        }
+        byte[] utf8 = new byte[longitud];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
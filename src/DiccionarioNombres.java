@@ -0,0 +1,217 @@
+// ============================================================
+// CLASE DICCIONARIONOMBRES
+// Guarda una sola copia de cada nombre y apellido de la agenda
+//
+// En una agenda real se repiten mucho ("María", "García"...):
+// en vez de que cada contacto tenga su propio String, todos los
+// contactos con el mismo texto comparten el mismo objeto
+//
+// Además da a cada texto un número (id) que no distingue
+// mayúsculas de minúsculas: "garcía" y "GARCÍA" tienen el mismo
+// id, así esIgual() compara dos números en vez de dos textos
+//
+// Cada texto lleva la cuenta de cuántos contactos lo usan; cuando
+// nadie lo usa se borra del diccionario y su id se reutiliza
+// ============================================================
+
+import java.util.Arrays;
+
+class DiccionarioNombres {
+
+    // Id de un contacto que no está en ninguna agenda
+    static final int SIN_ID = -1;
+
+    // ============================================================
+    // CLASE INTERNA: Entrada
+    // Un texto exacto ("García") y cuántos contactos lo usan
+    // Las formas que solo cambian en mayúsculas ("GARCÍA") van en
+    // una lista enlazada detrás de la primera y comparten su id
+    // ============================================================
+
+    static class Entrada {
+        final String texto;
+        final int id;
+        final int hash;
+        int referencias;
+        Entrada siguienteForma;
+
+        Entrada(String texto, int id, int hash) {
+            this.texto = texto;
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+
+    // ============================================================
+    // ATRIBUTOS
+    // Tabla hash de direccionamiento abierto, como IndiceTelefonos
+    // El hash no distingue mayúsculas, así todas las formas de un
+    // texto caen en la misma casilla sin guardar otra copia del
+    // texto en minúsculas
+    // ============================================================
+
+    private Entrada[] tabla = new Entrada[16];
+    private int ocupadas = 0;
+    private int numTextos = 0;
+
+    // Ids que quedaron libres al borrar textos (se reutilizan primero)
+    private int[] idsLibres = new int[16];
+    private int numIdsLibres = 0;
+    private int siguienteId = 0;
+
+    // ============================================================
+    // MÉTODO: internar
+    // Devuelve la entrada del texto (creándola si no existía) y
+    // cuenta que un contacto más lo usa
+    // ============================================================
+
+    Entrada internar(String texto) {
+        int hash = hashSinMayusculas(texto);
+        int mascara = tabla.length - 1;
+        int i = casillaIdeal(hash, mascara);
+
+        while (tabla[i] != null) {
+            Entrada primera = tabla[i];
+            // equalsIgnoreCase() considera iguales exactamente los textos
+            // que tienen la misma clave en Contacto.claveDe()
+            if (primera.hash == hash && primera.texto.equalsIgnoreCase(texto)) {
+                // Mismo id: buscamos la forma exacta o la añadimos
+                Entrada forma = primera;
+                while (!forma.texto.equals(texto)) {
+                    if (forma.siguienteForma == null) {
+                        forma.siguienteForma = new Entrada(texto, primera.id, hash);
+                        numTextos++;
+                    }
+                    forma = forma.siguienteForma;
+                }
+                forma.referencias++;
+                return forma;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        // Texto nuevo: casilla nueva con un id nuevo
+        Entrada nueva = new Entrada(texto, nuevoId(), hash);
+        nueva.referencias = 1;
+        tabla[i] = nueva;
+        ocupadas++;
+        numTextos++;
+
+        // Mantenemos la tabla medio vacía para que las búsquedas sean cortas
+        if (ocupadas * 2 > tabla.length) {
+            agrandar();
+        }
+        return nueva;
+    }
+
+    // ============================================================
+    // MÉTODO: soltar
+    // Un contacto deja de usar el texto; si ya no lo usa nadie, se
+    // borra del diccionario (y su id queda libre si era la última
+    // forma de escribirlo)
+    // ============================================================
+
+    void soltar(String texto) {
+        int hash = hashSinMayusculas(texto);
+        int mascara = tabla.length - 1;
+
+        for (int i = casillaIdeal(hash, mascara); tabla[i] != null; i = (i + 1) & mascara) {
+            Entrada primera = tabla[i];
+            if (primera.hash != hash || !primera.texto.equalsIgnoreCase(texto)) {
+                continue;
+            }
+
+            Entrada anterior = null;
+            for (Entrada forma = primera; forma != null; anterior = forma, forma = forma.siguienteForma) {
+                if (!forma.texto.equals(texto)) {
+                    continue;
+                }
+                if (--forma.referencias > 0) {
+                    return;
+                }
+                numTextos--;
+
+                if (anterior != null) {
+                    anterior.siguienteForma = forma.siguienteForma;
+                } else if (forma.siguienteForma != null) {
+                    tabla[i] = forma.siguienteForma;
+                } else {
+                    // Era la última forma: fuera de la tabla y id libre
+                    borrarCasilla(i);
+                    liberarId(forma.id);
+                }
+                return;
+            }
+            return;
+        }
+    }
+
+    // Número de textos distintos guardados
+    int tamanio() {
+        return numTextos;
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Hash del texto "plegado" igual que Contacto.claveDe(), pero sin
+    // crear el texto plegado
+    private static int hashSinMayusculas(String texto) {
+        int h = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(texto.charAt(i)));
+        }
+        return h;
+    }
+
+    private static int casillaIdeal(int hash, int mascara) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    // Vacía una casilla y recoloca las siguientes ("backward shift")
+    private void borrarCasilla(int hueco) {
+        int mascara = tabla.length - 1;
+        int i = (hueco + 1) & mascara;
+
+        while (tabla[i] != null) {
+            int ideal = casillaIdeal(tabla[i].hash, mascara);
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                tabla[hueco] = tabla[i];
+                hueco = i;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        tabla[hueco] = null;
+        ocupadas--;
+    }
+
+    private void agrandar() {
+        Entrada[] vieja = tabla;
+        tabla = new Entrada[vieja.length * 2];
+        int mascara = tabla.length - 1;
+
+        for (Entrada e : vieja) {
+            if (e != null) {
+                int i = casillaIdeal(e.hash, mascara);
+                while (tabla[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                tabla[i] = e;
+            }
+        }
+    }
+
+    private int nuevoId() {
+        return numIdsLibres > 0 ? idsLibres[--numIdsLibres] : siguienteId++;
+    }
+
+    private void liberarId(int id) {
+        if (numIdsLibres == idsLibres.length) {
+            idsLibres = Arrays.copyOf(idsLibres, idsLibres.length * 2);
+        }
+        idsLibres[numIdsLibres++] = id;
+    }
+}
@@ -0,0 +1,495 @@
+// ============================================================
+// CLASE EXPORTADORCONTACTOS
+// Escribe los contactos de una agenda en un fichero, en uno de
+// estos formatos:
+//
+//   CSV          nombre,apellido,telefono (con cabecera, la misma
+//                que entiende ImportadorCsv)
+//   JSON_LINES   un objeto JSON por línea:
+//                {"nombre":"Ana","apellido":"Ruiz","telefono":"600"}
+//   VCARD        tarjetas vCard 3.0 (las que importan los móviles y
+//                los programas de correo)
+//
+// Pensado para millones de contactos:
+// - Nunca construye el fichero entero en memoria: los contactos se
+//   escriben en un ByteBuffer "directo" (fuera del heap) de 1 MB, y
+//   cuando se llena se pasa al FileChannel de una vez
+// - Los textos se convierten a UTF-8 letra a letra, con el escapado
+//   de cada formato, sin crear Strings ni byte[] por contacto: van
+//   a un bloque de 64 KB (un byte[] normal, donde escribir un byte
+//   es lo más barato) que se copia entero al buffer directo al
+//   llenarse (poner los bytes de uno en uno en un buffer directo
+//   cuesta varias comprobaciones por byte)
+// - El buffer y el bloque son del exportador y se reutilizan en
+//   cada exportación
+//
+// Se escribe en un ".tmp" que se pasa a disco (force) y se renombra
+// al terminar, así nunca queda un fichero a medias: ni si falla la
+// exportación (el ".tmp" se borra) ni si se va la luz justo después
+// (el renombrado también se pasa a disco). Un exportador no se debe usar desde
+// dos hilos a la vez (comparten el buffer)
+// ============================================================
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class ExportadorContactos {
+
+    public enum Formato {
+        CSV,
+        JSON_LINES,
+        VCARD
+    }
+
+    // ============================================================
+    // CONSTANTES
+    // ============================================================
+
+    // Tamaño del buffer de escritura (1 MB) y del bloque (64 KB)
+    private static final int TAMANIO_BUFFER = 1 << 20;
+    private static final int TAMANIO_BLOQUE = 1 << 16;
+
+    // Lo más que puede ocupar una letra ya escapada: "\u001f" en
+    // JSON son 6 bytes, o una letra de 4 bytes tras un pliegue vCard
+    private static final int MAXIMO_POR_LETRA = 8;
+
+    // vCard: las líneas de más de 75 bytes se "pliegan" (salto de
+    // línea y un espacio, que el lector quita al leer)
+    private static final int MAXIMO_LINEA_VCARD = 75;
+
+    private static final byte[] CABECERA_CSV = bytes("nombre,apellido,telefono\n");
+    private static final byte[] JSON_NOMBRE = bytes("{\"nombre\":");
+    private static final byte[] JSON_APELLIDO = bytes(",\"apellido\":");
+    private static final byte[] JSON_TELEFONO = bytes(",\"telefono\":");
+    private static final byte[] JSON_NULL = bytes("null");
+    private static final byte[] JSON_FIN = bytes("}\n");
+    private static final byte[] VCARD_INICIO = bytes("BEGIN:VCARD\r\nVERSION:3.0\r\n");
+    private static final byte[] VCARD_N = bytes("N:");
+    private static final byte[] VCARD_FN = bytes("FN:");
+    private static final byte[] VCARD_TEL = bytes("TEL;TYPE=VOICE:");
+    private static final byte[] VCARD_FIN = bytes("END:VCARD\r\n");
+    private static final byte[] FIN_LINEA_VCARD = bytes("\r\n");
+    private static final byte[] HEXADECIMAL = bytes("0123456789abcdef");
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final Formato formato;
+
+    // "allocateDirect" reserva la memoria fuera del heap: el sistema
+    // operativo la copia al fichero sin pasar por una copia intermedia
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANIO_BUFFER);
+
+    // Bytes ya codificados que aún no se han copiado al buffer
+    private final byte[] bloque = new byte[TAMANIO_BLOQUE];
+    private int usados;
+
+    // Canal del fichero que se está escribiendo
+    private FileChannel canal;
+
+    // vCard: bytes escritos en la línea actual (para plegarla)
+    private int columna;
+
+    public ExportadorContactos(Formato formato) {
+        if (formato == null) {
+            throw new IllegalArgumentException("Falta el formato");
+        }
+        this.formato = formato;
+    }
+
+    public Formato getFormato() {
+        return formato;
+    }
+
+    // ============================================================
+    // MÉTODO: exportar (una agenda)
+    // Con "ordenado" los contactos salen en orden alfabético, leídos
+    // por tandas con el Stream de la agenda. Sin orden salen en el
+    // orden del almacén, que es algo más rápido
+    // Devuelve cuántos contactos se escribieron
+    // ============================================================
+
+    public long exportar(Agenda agenda, Path fichero, boolean ordenado) throws IOException {
+        if (ordenado) {
+            return exportar(agenda.contactos(), fichero);
+        }
+        int total = agenda.obtenerNumeroContactos();
+        return escribirFichero(fichero, new Iterator<Contacto>() {
+            private int siguiente = 0;
+
+            @Override
+            public boolean hasNext() {
+                return siguiente < total;
+            }
+
+            @Override
+            public Contacto next() {
+                return agenda.contactoEn(siguiente++);
+            }
+        });
+    }
+
+    // ============================================================
+    // MÉTODO: exportar (cualquier Stream de contactos)
+    // Por ejemplo AgendaConcurrente.contactos(),
+    // instantanea.contactos() o agenda.filtrar(...).stream()
+    // ============================================================
+
+    public long exportar(Stream<Contacto> contactos, Path fichero) throws IOException {
+        return escribirFichero(fichero, contactos.iterator());
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    private long escribirFichero(Path fichero, Iterator<Contacto> contactos) throws IOException {
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        long escritos = 0;
+        try {
+            try (FileChannel fc = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                canal = fc;
+                buffer.clear();
+                usados = 0;
+                if (formato == Formato.CSV) {
+                    ascii(CABECERA_CSV);
+                }
+                while (contactos.hasNext()) {
+                    escribirContacto(contactos.next());
+                    escritos++;
+                }
+                vaciar();
+
+                // Los datos tienen que estar en disco antes de renombrar:
+                // si no, tras un corte de luz el nombre definitivo podría
+                // apuntar a un fichero vacío o a medias
+                fc.force(true);
+            } finally {
+                canal = null;
+            }
+            Files.move(temporal, fichero, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // No dejamos el ".tmp" a medias ocupando sitio
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException alBorrar) {
+                e.addSuppressed(alBorrar);
+            }
+            throw e;
+        }
+
+        // Y el renombrado también (es un cambio en la carpeta)
+        DiarioAgenda.sincronizarCarpeta(fichero.toAbsolutePath().getParent());
+        return escritos;
+    }
+
+    private void escribirContacto(Contacto c) throws IOException {
+        switch (formato) {
+            case CSV:
+                textoCsv(c.getNombre());
+                ascii((byte) ',');
+                textoCsv(c.getApellido());
+                ascii((byte) ',');
+                textoCsv(c.getTelefono());
+                ascii((byte) '\n');
+                break;
+
+            case JSON_LINES:
+                ascii(JSON_NOMBRE);
+                textoJson(c.getNombre());
+                ascii(JSON_APELLIDO);
+                textoJson(c.getApellido());
+                ascii(JSON_TELEFONO);
+                textoJson(c.getTelefono());
+                ascii(JSON_FIN);
+                break;
+
+            case VCARD:
+                ascii(VCARD_INICIO);
+                // N:apellido;nombre;;; y FN:nombre apellido
+                lineaVcard(VCARD_N);
+                textoVcard(c.getApellido());
+                separadorVcard((byte) ';');
+                textoVcard(c.getNombre());
+                // Los otros tres campos de N (segundo nombre, prefijo
+                // y sufijo) van vacíos
+                separadorVcard((byte) ';');
+                separadorVcard((byte) ';');
+                separadorVcard((byte) ';');
+                ascii(FIN_LINEA_VCARD);
+                lineaVcard(VCARD_FN);
+                textoVcard(c.getNombre());
+                separadorVcard((byte) ' ');
+                textoVcard(c.getApellido());
+                ascii(FIN_LINEA_VCARD);
+                String telefono = c.getTelefono();
+                if (telefono != null && !telefono.isEmpty()) {
+                    lineaVcard(VCARD_TEL);
+                    textoVcard(telefono);
+                    ascii(FIN_LINEA_VCARD);
+                }
+                ascii(VCARD_FIN);
+                break;
+        }
+    }
+
+    // ============================================================
+    // ESCAPADO DE CADA FORMATO
+    // La letra normal (ASCII sin nada especial) se copia tal cual
+    // ============================================================
+
+    // CSV: entre comillas solo si hace falta (coma, comillas o salto
+    // de línea), con las comillas de dentro escritas como ""
+    // null se escribe vacío
+    private void textoCsv(String texto) throws IOException {
+        if (texto == null) {
+            return;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char ch = texto.charAt(i);
+            comillas = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (comillas) {
+            ascii((byte) '"');
+        }
+        int n = texto.length();
+        int i = 0;
+        while (i < n) {
+            // Trozo de letras que seguro cabe en el bloque: dentro
+            // del trozo no hay que comprobar el sitio letra a letra
+            int hasta = Math.min(n, i + reservar(n - i));
+            for (; i < hasta; i++) {
+                char ch = texto.charAt(i);
+                if (ch < 0x80 && ch != '"') {
+                    bloque[usados++] = (byte) ch;
+                } else if (ch == '"') {
+                    bloque[usados++] = '"';
+                    bloque[usados++] = '"';
+                } else {
+                    i = letra(texto, i);
+                }
+            }
+        }
+        if (comillas) {
+            ascii((byte) '"');
+        }
+    }
+
+    // JSON: entre comillas, con \" \\ y los caracteres de control
+    // escapados; null se escribe null
+    private void textoJson(String texto) throws IOException {
+        if (texto == null) {
+            ascii(JSON_NULL);
+            return;
+        }
+        ascii((byte) '"');
+        int n = texto.length();
+        int i = 0;
+        while (i < n) {
+            int hasta = Math.min(n, i + reservar(n - i));
+            for (; i < hasta; i++) {
+                char ch = texto.charAt(i);
+                if (ch >= 0x20 && ch < 0x80 && ch != '"' && ch != '\\') {
+                    bloque[usados++] = (byte) ch;
+                } else if (ch == '"' || ch == '\\') {
+                    escapar((byte) ch);
+                } else if (ch == '\n') {
+                    escapar((byte) 'n');
+                } else if (ch == '\r') {
+                    escapar((byte) 'r');
+                } else if (ch == '\t') {
+                    escapar((byte) 't');
+                } else if (ch < 0x20) {
+                    escapar((byte) 'u');
+                    bloque[usados++] = '0';
+                    bloque[usados++] = '0';
+                    bloque[usados++] = HEXADECIMAL[ch >> 4];
+                    bloque[usados++] = HEXADECIMAL[ch & 0xF];
+                } else {
+                    i = letra(texto, i);
+                }
+            }
+        }
+        ascii((byte) '"');
+    }
+
+    // vCard 3.0: \\ \, \; y los saltos de línea como \n, plegando
+    // la línea antes de pasar de 75 bytes
+    private void textoVcard(String texto) throws IOException {
+        if (texto == null) {
+            return;
+        }
+        int n = texto.length();
+        int i = 0;
+        while (i < n) {
+            int hasta = Math.min(n, i + reservar(n - i));
+            for (; i < hasta; i++) {
+                char ch = texto.charAt(i);
+                if (ch == '\\' || ch == ',' || ch == ';') {
+                    plegarSiHaceFalta(2);
+                    escapar((byte) ch);
+                    columna += 2;
+                } else if (ch == '\n' || ch == '\r') {
+                    if (ch == '\r' && i + 1 < n && texto.charAt(i + 1) == '\n') {
+                        i++;  // "\r\n" es un solo salto de línea
+                    }
+                    plegarSiHaceFalta(2);
+                    escapar((byte) 'n');
+                    columna += 2;
+                } else if (ch < 0x80) {
+                    plegarSiHaceFalta(1);
+                    bloque[usados++] = (byte) ch;
+                    columna++;
+                } else {
+                    int antes = usados;
+                    int siguiente = letra(texto, i);
+                    int ocupa = usados - antes;
+                    if (columna + ocupa > MAXIMO_LINEA_VCARD) {
+                        // No cabía: la quitamos, plegamos y la repetimos
+                        usados = antes;
+                        plegarSiHaceFalta(ocupa);
+                        siguiente = letra(texto, i);
+                    }
+                    columna += ocupa;
+                    i = siguiente;
+                }
+            }
+        }
+    }
+
+    // Empieza una línea vCard con su propiedad ("N:", "FN:"...)
+    private void lineaVcard(byte[] propiedad) throws IOException {
+        ascii(propiedad);
+        columna = propiedad.length;
+    }
+
+    // Un separador entre dos campos de la misma línea
+    private void separadorVcard(byte separador) throws IOException {
+        asegurarEspacio();
+        plegarSiHaceFalta(1);
+        bloque[usados++] = separador;
+        columna++;
+    }
+
+    private void plegarSiHaceFalta(int ocupa) {
+        if (columna + ocupa > MAXIMO_LINEA_VCARD) {
+            bloque[usados++] = '\r';
+            bloque[usados++] = '\n';
+            bloque[usados++] = ' ';
+            columna = 1;
+        }
+    }
+
+    // ============================================================
+    // ESCRITURA
+    // Todo pasa por el bloque; el bloque, por el buffer directo; y
+    // el buffer, por el canal del fichero
+    // ============================================================
+
+    // Escribe en UTF-8 la letra de la posición "i" y devuelve la
+    // posición de su última unidad (las letras fuera del plano
+    // básico, como los emojis, ocupan dos char en Java)
+    private int letra(String texto, int i) {
+        char ch = texto.charAt(i);
+        if (ch < 0x80) {
+            bloque[usados++] = (byte) ch;
+        } else if (ch < 0x800) {
+            bloque[usados++] = (byte) (0xC0 | (ch >> 6));
+            bloque[usados++] = (byte) (0x80 | (ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && i + 1 < texto.length()
+                && Character.isLowSurrogate(texto.charAt(i + 1))) {
+            int punto = Character.toCodePoint(ch, texto.charAt(i + 1));
+            bloque[usados++] = (byte) (0xF0 | (punto >> 18));
+            bloque[usados++] = (byte) (0x80 | ((punto >> 12) & 0x3F));
+            bloque[usados++] = (byte) (0x80 | ((punto >> 6) & 0x3F));
+            bloque[usados++] = (byte) (0x80 | (punto & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(ch)) {
+            bloque[usados++] = '?';  // Mitad de pareja suelta: como String.getBytes
+        } else {
+            bloque[usados++] = (byte) (0xE0 | (ch >> 12));
+            bloque[usados++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+            bloque[usados++] = (byte) (0x80 | (ch & 0x3F));
+        }
+        return i;
+    }
+
+    // Una barra invertida y la letra que escapa
+    private void escapar(byte letra) {
+        bloque[usados++] = '\\';
+        bloque[usados++] = letra;
+    }
+
+    private void ascii(byte b) throws IOException {
+        if (usados == bloque.length) {
+            pasarAlBuffer();
+        }
+        bloque[usados++] = b;
+    }
+
+    // Las constantes son cortas: siempre caben en un bloque vacío
+    private void ascii(byte[] bytes) throws IOException {
+        if (bloque.length - usados < bytes.length) {
+            pasarAlBuffer();
+        }
+        System.arraycopy(bytes, 0, bloque, usados, bytes.length);
+        usados += bytes.length;
+    }
+
+    // Deja sitio para "letras" letras (o las que quepan en un bloque
+    // vacío) y devuelve para cuántas hay sitio
+    private int reservar(int letras) throws IOException {
+        int hueco = (bloque.length - usados) / MAXIMO_POR_LETRA;
+        if (hueco < letras && hueco < 64) {
+            pasarAlBuffer();
+            hueco = bloque.length / MAXIMO_POR_LETRA;
+        }
+        return Math.min(letras, hueco);
+    }
+
+    // Sitio para una letra escapada y un pliegue
+    private void asegurarEspacio() throws IOException {
+        if (bloque.length - usados < MAXIMO_POR_LETRA + 3) {
+            pasarAlBuffer();
+        }
+    }
+
+    // Copia el bloque al buffer directo (de una vez, como un
+    // System.arraycopy) y, si el buffer está lleno, lo escribe
+    private void pasarAlBuffer() throws IOException {
+        if (buffer.remaining() < usados) {
+            escribirBuffer();
+        }
+        buffer.put(bloque, 0, usados);
+        usados = 0;
+    }
+
+    // Pasa al fichero todo lo que queda en el bloque y en el buffer
+    private void vaciar() throws IOException {
+        pasarAlBuffer();
+        escribirBuffer();
+    }
+
+    private void escribirBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+}
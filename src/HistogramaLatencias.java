@@ -0,0 +1,148 @@
+// ============================================================
+// CLASE HISTOGRAMALATENCIAS
+// Cuenta cuánto tardan las operaciones (en nanosegundos) para
+// poder calcular percentiles: p50 (la mitad tardan menos), p99,
+// p999 (solo 1 de cada 1000 tarda más)...
+//
+// Guardar cada tiempo ocuparía memoria sin fin, así que se cuentan
+// por "casillas", como los histogramas HDR: cada potencia de 2 se
+// parte en 32 casillas iguales. Así el error es como mucho de un
+// 3% tanto para 200 ns como para 2 segundos, con solo ~1200
+// contadores en total
+//
+// registrar() se puede llamar desde varios hilos a la vez y no
+// crea ningún objeto: solo incrementa contadores atómicos
+// (LongAdder reparte la suma entre varias celdas si hay muchos
+// hilos, así no se pelean todos por el mismo contador)
+// ============================================================
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class HistogramaLatencias {
+
+    // 2^5 = 32 casillas por cada potencia de 2
+    private static final int BITS_SUBCASILLA = 5;
+    private static final int SUBCASILLAS = 1 << BITS_SUBCASILLA;
+
+    // Tiempos de más de 2^40 ns (unos 18 minutos) van a la última casilla
+    private static final int MAXIMO_EXPONENTE = 40;
+    private static final int NUM_CASILLAS = (MAXIMO_EXPONENTE - BITS_SUBCASILLA + 2) * SUBCASILLAS;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final AtomicLongArray casillas = new AtomicLongArray(NUM_CASILLAS);
+    private final LongAdder cuenta = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    // ============================================================
+    // MÉTODO: registrar
+    // Anota una operación que tardó "nanos" nanosegundos
+    // ============================================================
+
+    void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;  // nanoTime() nunca retrocede, pero por si acaso
+        }
+        casillas.incrementAndGet(casilla(nanos));
+        cuenta.increment();
+        total.add(nanos);
+
+        // Máximo sin bloquear: reintentamos si otro hilo lo cambió
+        long actual = maximo.get();
+        while (nanos > actual && !maximo.compareAndSet(actual, nanos)) {
+            actual = maximo.get();
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS DE CONSULTA
+    // Si otros hilos están registrando a la vez, el resultado puede
+    // no incluir sus últimas operaciones (es una foto aproximada)
+    // ============================================================
+
+    long cuenta() {
+        return cuenta.sum();
+    }
+
+    long maximo() {
+        return maximo.get();
+    }
+
+    // Tiempo medio en nanosegundos (0 si no hay ninguna operación)
+    double media() {
+        long n = cuenta.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    // Tiempo por debajo del cual quedan el "porcentaje" de las
+    // operaciones (50 = mediana, 99.9 = p999). Devuelve el punto
+    // medio de la casilla donde cae
+    long percentil(double porcentaje) {
+        long n = 0;
+        long[] copia = new long[NUM_CASILLAS];
+        for (int i = 0; i < NUM_CASILLAS; i++) {
+            copia[i] = casillas.get(i);
+            n += copia[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        // Posición (empezando en 1) de la operación que buscamos
+        long buscada = Math.max(1, (long) Math.ceil(n * porcentaje / 100.0));
+        long acumuladas = 0;
+        for (int i = 0; i < NUM_CASILLAS; i++) {
+            acumuladas += copia[i];
+            if (acumuladas >= buscada) {
+                return Math.min(puntoMedio(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    // Vuelve a empezar a contar desde cero
+    void reiniciar() {
+        for (int i = 0; i < NUM_CASILLAS; i++) {
+            casillas.set(i, 0);
+        }
+        cuenta.reset();
+        total.reset();
+        maximo.set(0);
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Los valores menores que 32 tienen una casilla cada uno. Para
+    // los demás, "exponente" es la potencia de 2 en la que caen y
+    // los 5 bits siguientes al primer 1 eligen la subcasilla
+    private static int casilla(long valor) {
+        if (valor < SUBCASILLAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        if (exponente > MAXIMO_EXPONENTE) {
+            return NUM_CASILLAS - 1;
+        }
+        int sub = (int) (valor >>> (exponente - BITS_SUBCASILLA)) & (SUBCASILLAS - 1);
+        return (exponente - BITS_SUBCASILLA + 1) * SUBCASILLAS + sub;
+    }
+
+    // Valor central de una casilla (lo contrario de casilla())
+    private static long puntoMedio(int casilla) {
+        if (casilla < SUBCASILLAS) {
+            return casilla;
+        }
+        int exponente = casilla / SUBCASILLAS + BITS_SUBCASILLA - 1;
+        int sub = casilla % SUBCASILLAS;
+        long ancho = 1L << (exponente - BITS_SUBCASILLA);
+        long desde = (1L << exponente) + sub * ancho;
+        return desde + ancho / 2;
+    }
+}
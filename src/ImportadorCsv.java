@@ -0,0 +1,373 @@
+// ============================================================
+// CLASE IMPORTADORCSV
+// Carga contactos desde un fichero CSV (una línea por contacto:
+// nombre,apellido,telefono) pensado para ficheros de millones
+// de filas
+//
+// - Lee el fichero a trozos con un FileChannel (no lo carga entero)
+// - Recorre los bytes a mano en vez de usar String.split por fila
+// - Valida con esValido() y descarta duplicados (ya guardados o
+//   repetidos dentro del propio fichero) gracias al índice hash
+// - Añade las filas por tandas con Agenda.añadirTodos en vez de
+//   una llamada a añadir() por fila
+// - No escribe nada por pantalla: devuelve un resumen al final
+// ============================================================
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportadorCsv {
+
+    // ============================================================
+    // CLASE INTERNA: Resumen
+    // Cuántas filas se aceptaron, rechazaron o estaban repetidas
+    // ============================================================
+
+    public static class Resumen {
+        private long aceptados;
+        private long rechazados;
+        private long duplicados;
+
+        public long getAceptados() {
+            return aceptados;
+        }
+
+        public long getRechazados() {
+            return rechazados;
+        }
+
+        public long getDuplicados() {
+            return duplicados;
+        }
+
+        @Override
+        public String toString() {
+            return "Aceptados: " + aceptados + ", rechazados: " + rechazados + ", duplicados: " + duplicados;
+        }
+    }
+
+    // ============================================================
+    // CONSTANTES Y ATRIBUTOS
+    // ============================================================
+
+    // Tamaño del trozo de fichero que se lee de cada vez (1 MB)
+    private static final int TAMANIO_BUFFER = 1 << 20;
+
+    // Cada cuántas filas aceptadas se confirma el lote en disco
+    public static final int TAMANIO_LOTE_POR_DEFECTO = 10_000;
+
+    // Filas válidas que se juntan antes de pasárselas a la agenda
+    private static final int TAMANIO_TANDA = 16_384;
+
+    private final Agenda agenda;
+
+    // Diario de la agenda (puede ser null si la agenda no se guarda en disco)
+    private final DiarioAgenda diario;
+
+    private final int tamanioLote;
+
+    // Los campos de la fila que se está leyendo (nombre, apellido, teléfono)
+    private final String[] campos = new String[3];
+
+    // Espacio de trabajo para campos entre comillas con "" dentro
+    private byte[] auxiliar = new byte[256];
+
+    // Filas válidas que todavía no se han pasado a la agenda, y
+    // cuántas se juntan antes de pasarlas (ver volcarTanda)
+    private final List<Contacto> tanda = new ArrayList<>(TAMANIO_TANDA);
+    private int limiteTanda = TAMANIO_TANDA;
+
+    // Filas aceptadas desde la última confirmación en disco
+    private long enLote;
+
+    // ============================================================
+    // CONSTRUCTORES
+    // ============================================================
+
+    public ImportadorCsv(Agenda agenda) {
+        this(agenda, null, TAMANIO_LOTE_POR_DEFECTO);
+    }
+
+    // Si se pasa el diario, cada "tamanioLote" filas aceptadas se espera
+    // a que estén en disco: si el programa se cuelga, se conservan
+    // todos los lotes terminados (se mira al terminar cada tanda, así
+    // que un lote puede pasarse hasta en TAMANIO_TANDA filas)
+    public ImportadorCsv(Agenda agenda, DiarioAgenda diario, int tamanioLote) {
+        this.agenda = agenda;
+        this.diario = diario;
+        this.tamanioLote = tamanioLote;
+    }
+
+    // ============================================================
+    // MÉTODO: importar
+    // Lee el fichero de principio a fin y añade sus contactos
+    // Si la primera fila es "nombre,apellido,..." se salta
+    // ============================================================
+
+    public Resumen importar(Path fichero) throws IOException {
+        Resumen resumen = new Resumen();
+
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANIO_BUFFER);
+            boolean primeraFila = true;
+            boolean principio = true;
+            boolean finFichero = false;
+            tanda.clear();
+            limiteTanda = TAMANIO_TANDA;
+            enLote = 0;
+
+            while (!finFichero) {
+                // Rellenamos el buffer con el siguiente trozo del fichero
+                finFichero = canal.read(buffer) < 0;
+                buffer.flip();
+
+                byte[] bytes = buffer.array();
+                int fin = buffer.limit();
+                int pos = 0;
+
+                // Saltamos la marca BOM que algunos programas ponen al principio
+                if (principio && fin >= 3 && bytes[0] == (byte) 0xEF
+                        && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+                    pos = 3;
+                }
+                principio = false;
+
+                // Procesamos todas las filas completas del trozo
+                while (pos < fin) {
+                    int siguiente = leerFila(bytes, pos, fin, finFichero);
+                    if (siguiente < 0) {
+                        break;  // La fila sigue en el próximo trozo
+                    }
+                    pos = siguiente;
+
+                    if (campos[0] == null) {
+                        continue;  // Línea en blanco
+                    }
+
+                    if (primeraFila) {
+                        primeraFila = false;
+                        if (esCabecera()) {
+                            continue;
+                        }
+                    }
+
+                    añadirFila(resumen);
+                }
+
+                // Movemos lo que no se ha procesado al principio del buffer
+                buffer.position(pos);
+                buffer.compact();
+
+                // Una sola fila no cabe en el buffer: lo agrandamos
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer mayor = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    mayor.put(buffer);
+                    buffer = mayor;
+                }
+            }
+
+            volcarTanda(resumen);
+            if (enLote > 0) {
+                confirmarLote();
+            }
+        }
+
+        return resumen;
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Crea el contacto de la fila actual y lo deja en la tanda
+    private void añadirFila(Resumen resumen) {
+        Contacto c = new Contacto(campos[0], campos[1], campos[2]);
+
+        if (!c.esValido()) {
+            resumen.rechazados++;
+            return;
+        }
+
+        tanda.add(c);
+        if (tanda.size() >= limiteTanda) {
+            volcarTanda(resumen);
+        }
+    }
+
+    // Añade la tanda a la agenda y, si ya se aceptaron "tamanioLote"
+    // filas desde la última vez, espera a que estén en disco
+    private void volcarTanda(Resumen resumen) {
+        if (tanda.isEmpty()) {
+            return;
+        }
+
+        // añadirTodos() comprueba los duplicados con el índice hash:
+        // detecta tanto los que ya estaban como los repetidos en el
+        // fichero (también dentro de la misma tanda)
+        for (ResultadoAlta resultado : agenda.añadirTodos(tanda)) {
+            switch (resultado) {
+                case AÑADIDO:
+                    resumen.aceptados++;
+                    enLote++;
+                    break;
+                case DUPLICADO:
+                    resumen.duplicados++;
+                    break;
+                default:
+                    resumen.rechazados++;  // Por ejemplo, la agenda está llena
+                    break;
+            }
+        }
+        tanda.clear();
+
+        if (enLote >= tamanioLote) {
+            confirmarLote();
+            enLote = 0;
+        }
+
+        // Sin diario, la siguiente tanda es tan grande como la agenda:
+        // así la agenda rehace sus árboles ordenados de una vez en cada
+        // tanda (ver ArbolesOrdenados) y, como cada tanda dobla lo que
+        // hay, rehacerlos cuesta en total lo mismo que el fichero. Con
+        // diario no crecen: cada tanda es lo que se puede perder si el
+        // programa se cuelga antes de confirmar el lote
+        if (diario == null) {
+            limiteTanda = Math.max(TAMANIO_TANDA, agenda.obtenerNumeroContactos());
+        }
+    }
+
+    private void confirmarLote() {
+        if (diario != null) {
+            diario.sincronizar();
+        }
+    }
+
+    // ¿La fila actual es la cabecera "nombre,apellido,telefono"?
+    private boolean esCabecera() {
+        return "nombre".equalsIgnoreCase(campos[0]) && "apellido".equalsIgnoreCase(campos[1]);
+    }
+
+    // ============================================================
+    // MÉTODO: leerFila
+    // Lee la fila que empieza en "pos" y deja sus campos en "campos"
+    // Devuelve dónde empieza la fila siguiente, o -1 si la fila no
+    // está completa en el buffer (hay que leer más del fichero)
+    // ============================================================
+
+    private int leerFila(byte[] bytes, int pos, int fin, boolean finFichero) {
+        campos[0] = null;
+        campos[1] = null;
+        campos[2] = null;
+
+        int numCampo = 0;
+        int i = pos;
+
+        while (true) {
+            String valor;
+            int j;
+
+            if (i < fin && bytes[i] == '"') {
+                // Campo entre comillas: puede tener comas, saltos de línea
+                // y comillas escritas como ""
+                int longitud = 0;
+                j = i + 1;
+                while (true) {
+                    if (j >= fin) {
+                        if (!finFichero) {
+                            return -1;
+                        }
+                        break;  // Comilla sin cerrar al final del fichero
+                    }
+                    if (bytes[j] == '"') {
+                        if (j + 1 >= fin && !finFichero) {
+                            return -1;  // No sabemos si es "" o el cierre
+                        }
+                        if (j + 1 < fin && bytes[j + 1] == '"') {
+                            longitud = guardarAuxiliar(longitud, (byte) '"');
+                            j += 2;
+                            continue;
+                        }
+                        j++;  // Comilla de cierre
+                        break;
+                    }
+                    longitud = guardarAuxiliar(longitud, bytes[j]);
+                    j++;
+                }
+                valor = new String(auxiliar, 0, longitud, StandardCharsets.UTF_8);
+
+                // Lo que haya entre la comilla de cierre y la coma se ignora
+                while (j < fin && bytes[j] != ',' && bytes[j] != '\n' && bytes[j] != '\r') {
+                    j++;
+                }
+            } else {
+                // Campo normal: hasta la siguiente coma o fin de línea
+                j = i;
+                while (j < fin && bytes[j] != ',' && bytes[j] != '\n' && bytes[j] != '\r') {
+                    j++;
+                }
+
+                // Quitamos los espacios de los extremos sin crear Strings
+                int desde = i;
+                int hasta = j;
+                while (desde < hasta && bytes[desde] == ' ') {
+                    desde++;
+                }
+                while (hasta > desde && bytes[hasta - 1] == ' ') {
+                    hasta--;
+                }
+                valor = new String(bytes, desde, hasta - desde, StandardCharsets.UTF_8);
+            }
+
+            if (j >= fin && !finFichero) {
+                return -1;  // El fin de línea todavía no ha llegado
+            }
+
+            if (numCampo < campos.length) {
+                campos[numCampo] = valor;
+            }
+            numCampo++;
+
+            if (j >= fin) {
+                return fin;  // Última fila del fichero, sin salto de línea
+            }
+            if (bytes[j] == ',') {
+                i = j + 1;
+                continue;
+            }
+
+            // Fin de línea: "\n" o "\r\n"
+            if (bytes[j] == '\r') {
+                if (j + 1 >= fin && !finFichero) {
+                    return -1;
+                }
+                if (j + 1 < fin && bytes[j + 1] == '\n') {
+                    j++;
+                }
+            }
+
+            // Una línea en blanco no es un contacto
+            if (numCampo == 1 && campos[0].isEmpty()) {
+                campos[0] = null;
+            }
+            return j + 1;
+        }
+    }
+
+    // Añade un byte al espacio de trabajo, agrandándolo si hace falta
+    private int guardarAuxiliar(int longitud, byte b) {
+        if (longitud == auxiliar.length) {
+            byte[] mayor = new byte[auxiliar.length * 2];
+            System.arraycopy(auxiliar, 0, mayor, 0, longitud);
+            auxiliar = mayor;
+        }
+        auxiliar[longitud] = b;
+        return longitud + 1;
+    }
+}
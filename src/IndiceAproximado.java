@@ -0,0 +1,655 @@
+// ============================================================
+// CLASE INDICEAPROXIMADO
+// Busca contactos aunque el nombre esté mal escrito ("Garsia"
+// encuentra a "García") sin comparar con toda la agenda
+//
+// Idea: se parten el nombre, el apellido y el nombre completo (en
+// minúsculas, sin tildes y con dos espacios a cada lado) en trozos
+// de 3 letras, los "trigramas":
+//   "  ana  " -> "  a", " an", "ana", "na ", "a  "
+// Para cada trigrama se guarda la lista de contactos que lo tienen
+// Un nombre con pocas erratas comparte casi todos sus trigramas con
+// el bueno: basta con mirar los contactos de unas pocas listas (las
+// más cortas) y calcular la distancia de edición solo con ellos
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+class IndiceAproximado {
+
+    // ============================================================
+    // CONSTANTES
+    // Límites para que una búsqueda tarde siempre poco, aunque la
+    // agenda tenga millones de contactos o el texto sea muy común
+    // ============================================================
+
+    // Como mucho se leen tantas entradas de las listas por búsqueda
+    static final int PRESUPUESTO_ENTRADAS = 20_000;
+
+    // Como mucho se calcula la distancia con tantos candidatos
+    static final int MAX_CANDIDATOS = 2_000;
+
+    // Limpieza poco a poco (ver limpiar): entradas que se revisan por
+    // cada entrada que deja de valer, y mínimo por cada cambio
+    static final int REVISADAS_POR_BORRADA = 4;
+    static final int REVISADAS_MINIMO = 64;
+
+    // ============================================================
+    // CLASE INTERNA: Lista
+    // Contactos que tienen un trigrama. Al eliminar un contacto no
+    // se busca en la lista (sería lento en las listas largas): solo
+    // se cuenta como "borrado", se descarta al buscar y se quita
+    // más tarde, poco a poco (ver limpiar)
+    //
+    // Cada entrada guarda también la "versión" que tenía el contacto
+    // al entrar (Contacto.versionAproximado): si el contacto se
+    // renombra, vuelve a entrar con otra versión y las entradas de
+    // su nombre anterior se reconocen como borradas
+    //
+    // Mientras se limpia una lista larga queda un hueco en medio:
+    //   [0, escritas)        revisadas y que siguen valiendo
+    //   [escritas, leidas)   hueco (no se lee)
+    //   [leidas, tamanio)    sin revisar todavía
+    // Sin limpieza a medias, escritas == leidas y no hay hueco
+    // ============================================================
+
+    private static class Lista {
+        final long trigrama;
+        Contacto[] contactos = new Contacto[4];
+        byte[] versiones = new byte[4];
+        int tamanio;
+        int escritas;
+        int leidas;
+
+        Lista(long trigrama) {
+            this.trigrama = trigrama;
+        }
+
+        void añadir(Contacto c) {
+            if (tamanio == contactos.length) {
+                contactos = Arrays.copyOf(contactos, tamanio * 2);
+                versiones = Arrays.copyOf(versiones, tamanio * 2);
+            }
+            versiones[tamanio] = c.versionAproximado;
+            contactos[tamanio++] = c;
+        }
+
+        // Entradas que se leen al buscar (sin contar el hueco)
+        int longitud() {
+            return tamanio - (leidas - escritas);
+        }
+
+        // Siguiente posición a leer después de "i", saltando el hueco
+        int siguiente(int i) {
+            i++;
+            return i == escritas ? leidas : i;
+        }
+
+        int primera() {
+            return escritas == 0 ? leidas : 0;
+        }
+    }
+
+    // Un contacto que se parece al texto buscado y a qué distancia
+    private static class Encontrado {
+        final Contacto contacto;
+        final int distancia;
+
+        Encontrado(Contacto contacto, int distancia) {
+            this.contacto = contacto;
+            this.distancia = distancia;
+        }
+    }
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // Trigrama (3 letras de 16 bits en un long) -> contactos que lo
+    // tienen. Tabla hash de direccionamiento abierto, como
+    // IndiceTelefonos: cada casilla es una Lista (que ya sabe su
+    // trigrama) o null, así buscar no crea ningún Long ni pasa por
+    // los nodos de un HashMap (ver buscarLista)
+    private Lista[] tabla = new Lista[64];
+
+    // Las mismas listas en un array, para recorrerlas al limpiar
+    // ("limpiando" es la que toca revisar ahora)
+    private final ArrayList<Lista> todas = new ArrayList<>();
+    private int limpiando = 0;
+
+    // La agenda dueña: un contacto de las listas solo vale si sigue
+    // perteneciendo a ella
+    private final ObservadorContacto dueño;
+
+    // Entradas guardadas y entradas que ya no valen (contactos
+    // eliminados o renombrados) y aún no se han quitado
+    private long entradas = 0;
+    private long entradasBorradas = 0;
+
+    // Entradas que hay que revisar en la próxima llamada a limpiar
+    private long porRevisar = 0;
+
+    IndiceAproximado(ObservadorContacto dueño) {
+        this.dueño = dueño;
+    }
+
+    // ============================================================
+    // MÉTODOS PARA MANTENER EL ÍNDICE AL DÍA
+    // ============================================================
+
+    void añadir(Contacto c) {
+        añadir(c, c.getNombre() == null ? null : normalizarTodo(c.getNombre()),
+                c.getApellido() == null ? null : normalizarTodo(c.getApellido()));
+    }
+
+    // Añade muchos de una vez. "nombres" y "apellidos" son los del
+    // contacto de la misma posición ya pasados por
+    // IndicePrefijos.normalizar (la agenda los calcula una vez para
+    // los dos índices)
+    void añadirTodos(List<Contacto> lote, String[] nombres, String[] apellidos) {
+        for (int i = 0; i < lote.size(); i++) {
+            Contacto c = lote.get(i);
+            añadir(c, c.getNombre() == null ? null : normalizarEspacios(nombres[i]),
+                    c.getApellido() == null ? null : normalizarEspacios(apellidos[i]));
+        }
+    }
+
+    // Los mismos trigramas que trigramasDe, sin crear los textos con
+    // espacios ni el array: un trigrama repetido se reconoce porque
+    // "c" ya es el último de su lista (con la versión de ahora)
+    private void añadir(Contacto c, String nombre, String apellido) {
+        // Versión nueva: las entradas que tuviera de antes dejan de valer
+        c.versionAproximado++;
+        if (nombre != null && apellido != null) {
+            añadirTrigramas(c, nombre, null);
+            añadirTrigramas(c, apellido, null);
+            añadirTrigramas(c, nombre, apellido);
+        } else if (nombre != null || apellido != null) {
+            añadirTrigramas(c, nombre != null ? nombre : apellido, null);
+        }
+    }
+
+    // Trigramas de "  primero  " o, si hay segundo, de
+    // "  primero segundo  " (sin juntarlos en otro String)
+    private void añadirTrigramas(Contacto c, String primero, String segundo) {
+        int largo = primero.length() + (segundo == null ? 0 : 1 + segundo.length());
+        long trigrama = ((long) ' ' << 16) | ' ';
+        for (int i = 0; i < largo + 2; i++) {
+            char letra = i < largo ? letra(primero, segundo, i) : ' ';
+            trigrama = ((trigrama << 16) | letra) & 0xFFFF_FFFF_FFFFL;
+
+            Lista lista = buscarLista(trigrama);
+            if (lista == null) {
+                lista = new Lista(trigrama);
+                ponerLista(lista);
+            } else if (lista.tamanio > 0 && lista.contactos[lista.tamanio - 1] == c
+                    && lista.versiones[lista.tamanio - 1] == c.versionAproximado) {
+                continue;  // Repetido: ya está con este contacto
+            }
+            lista.añadir(c);
+            entradas++;
+        }
+    }
+
+    // Letra "i" de "primero segundo" (o de "primero" si no hay segundo)
+    private static char letra(String primero, String segundo, int i) {
+        if (i < primero.length()) {
+            return primero.charAt(i);
+        }
+        return i == primero.length() ? ' ' : segundo.charAt(i - primero.length() - 1);
+    }
+
+    // Hay que llamarlo ANTES de cambiar el nombre o apellido del contacto
+    void eliminar(Contacto c) {
+        int borradas = trigramasDe(c).length;
+        entradasBorradas += borradas;
+        porRevisar += (long) borradas * REVISADAS_POR_BORRADA;
+    }
+
+    // Número de trigramas distintos con lista (para las métricas)
+    int numeroTrigramas() {
+        return todas.size();
+    }
+
+    // ============================================================
+    // MÉTODO: limpiar
+    // Quita entradas borradas sin parar la agenda: la agenda lo llama
+    // tras cada baja o renombrado y solo revisa unas pocas entradas
+    // (REVISADAS_POR_BORRADA por cada entrada borrada desde la última
+    // vez), siguiendo por donde lo dejó. Así cada cambio cuesta algo
+    // proporcional a lo que cambió, nunca al tamaño de la agenda, y
+    // se da la vuelta a todas las listas antes de que las borradas
+    // pasen de una cuarta parte del total
+    // ============================================================
+
+    void limpiar() {
+        long pasos = Math.max(porRevisar, REVISADAS_MINIMO);
+        porRevisar = 0;
+        while (pasos > 0 && entradasBorradas > 0 && !todas.isEmpty()) {
+            if (limpiando >= todas.size()) {
+                limpiando = 0;
+            }
+            Lista lista = todas.get(limpiando);
+            pasos -= limpiarLista(lista, pasos);
+
+            if (lista.leidas < lista.tamanio) {
+                continue;  // Se acabaron los pasos a mitad de la lista
+            }
+
+            // Lista revisada entera: se cierra el hueco
+            lista.tamanio = lista.escritas;
+            lista.escritas = 0;
+            lista.leidas = 0;
+            if (lista.tamanio == 0) {
+                // Vacía: fuera del índice (la última ocupa su sitio)
+                quitarLista(lista);
+                Lista ultima = todas.remove(todas.size() - 1);
+                if (ultima != lista) {
+                    todas.set(limpiando, ultima);
+                }
+            } else {
+                if (lista.tamanio * 4 < lista.contactos.length && lista.contactos.length > 4) {
+                    // Sobra mucho sitio: la encogemos
+                    int nuevo = Math.max(4, lista.tamanio * 2);
+                    lista.contactos = Arrays.copyOf(lista.contactos, nuevo);
+                    lista.versiones = Arrays.copyOf(lista.versiones, nuevo);
+                }
+                limpiando++;
+            }
+        }
+    }
+
+    // Revisa como mucho "pasos" entradas de la lista desde donde se
+    // quedó. Devuelve cuántas ha revisado
+    private int limpiarLista(Lista lista, long pasos) {
+        int revisadas = 0;
+        while (revisadas < pasos && lista.leidas < lista.tamanio) {
+            int i = lista.leidas++;
+            Contacto c = lista.contactos[i];
+            if (vale(c, lista.versiones[i])) {
+                lista.contactos[lista.escritas] = c;
+                lista.versiones[lista.escritas] = lista.versiones[i];
+                lista.escritas++;
+            } else {
+                entradas--;
+                entradasBorradas = Math.max(0, entradasBorradas - 1);
+            }
+            if (lista.escritas <= i) {
+                lista.contactos[i] = null;  // Que no quede una referencia vieja
+            }
+            revisadas++;
+        }
+        return revisadas;
+    }
+
+    // ¿La entrada sigue valiendo? El contacto sigue en la agenda y no
+    // se ha renombrado desde que entró en la lista
+    private boolean vale(Contacto c, byte version) {
+        return c.propietario == dueño && c.versionAproximado == version;
+    }
+
+    // ============================================================
+    // MÉTODO: buscar
+    // Devuelve como mucho "maximo" contactos parecidos al texto,
+    // del más parecido al menos parecido. Se compara con el nombre,
+    // con el apellido y con el nombre completo, y se queda con la
+    // menor distancia (número de letras a cambiar, poner o quitar)
+    // A igual distancia se ordenan según "orden"
+    // ============================================================
+
+    List<Contacto> buscar(String texto, int maximo, OrdenAlfabetico orden) {
+        String buscado = normalizarTodo(texto == null ? "" : texto);
+        if (buscado.isEmpty() || maximo <= 0) {
+            return Collections.emptyList();
+        }
+
+        // PASO 1: las listas de los trigramas del texto, de la más
+        // corta a la más larga (las cortas son las más selectivas)
+        long[] trigramasBuscados = trigramas(buscado);
+
+        // Cuantas más letras, más erratas permitimos
+        int distanciaMaxima = distanciaMaxima(buscado.length(), trigramasBuscados.length);
+
+        List<Lista> elegidas = new ArrayList<>();
+        for (long t : trigramasBuscados) {
+            Lista lista = buscarLista(t);
+            if (lista != null) {
+                elegidas.add(lista);
+            }
+        }
+        elegidas.sort((a, b) -> Integer.compare(a.longitud(), b.longitud()));
+
+        // Cada errata estropea como mucho 3 trigramas, así que un nombre
+        // a distancia "d" comparte al menos uno de cualquier grupo de
+        // 3*d+1 trigramas del texto: basta con leer las 3*d+1 listas más
+        // cortas (los trigramas que no están en el índice son listas
+        // vacías y cuentan como ya leídas). Los dos espacios de cada lado
+        // hacen que hasta un texto corto tenga trigramas suficientes
+        int ausentes = trigramasBuscados.length - elegidas.size();
+        int listasNecesarias = Math.min(elegidas.size(), Math.max(0, 3 * distanciaMaxima + 1 - ausentes));
+
+        Comparator<Encontrado> ordenResultados = (a, b) -> {
+            int resultado = Integer.compare(a.distancia, b.distancia);
+            return resultado != 0 ? resultado : orden.comparar(a.contacto, b.contacto);
+        };
+        PriorityQueue<Encontrado> mejores = new PriorityQueue<>(ordenResultados.reversed());
+        IdentityHashMap<String, String> normalizados = new IdentityHashMap<>();
+
+        // PASO 2: los que coinciden del todo, sin presupuesto. El
+        // presupuesto del paso 3 se llena en el orden de las listas, y
+        // con un texto muy común podría quedarse con miles de parecidos
+        // y dejar fuera al contacto que se llama exactamente así
+        // Un contacto a distancia 0 tiene todos los trigramas del texto,
+        // así que basta con recorrer la lista más corta (si falta algún
+        // trigrama en el índice, no hay ninguno). Se para en cuanto hay
+        // "maximo": ninguno de los que quedan puede ser más parecido
+        Set<Contacto> exactos = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (ausentes == 0) {
+            Lista lista = elegidas.get(0);
+            for (int j = lista.primera(); j < lista.tamanio && exactos.size() < maximo; j = lista.siguiente(j)) {
+                Contacto c = lista.contactos[j];
+                if (vale(c, lista.versiones[j])) {
+                    String nombre = normalizados.computeIfAbsent(c.getNombre(), IndiceAproximado::normalizarTodo);
+                    String apellido = normalizados.computeIfAbsent(c.getApellido(), IndiceAproximado::normalizarTodo);
+                    if (esIgual(buscado, nombre, apellido) && exactos.add(c)) {
+                        mejores.add(new Encontrado(c, 0));
+                    }
+                }
+            }
+        }
+
+        // PASO 3: reunir candidatos sin pasarse del presupuesto
+        // (por identidad: dos contactos distintos nunca se confunden,
+        // y un contacto que está en varias listas cuenta una vez)
+        // Con nombres muy comunes el presupuesto puede dejar fuera
+        // algún contacto más parecido que otros que sí se devuelven,
+        // pero nunca uno de los que coinciden del todo (paso 2)
+        if (exactos.size() >= maximo) {
+            listasNecesarias = 0;
+        }
+        int porLeer = 0;
+        for (int i = 0; i < listasNecesarias; i++) {
+            porLeer += elegidas.get(i).longitud();
+        }
+        Set<Contacto> candidatos = Collections.newSetFromMap(
+                new IdentityHashMap<>(Math.min(MAX_CANDIDATOS, porLeer)));
+        int leidas = 0;
+        for (int i = 0; i < listasNecesarias && leidas < PRESUPUESTO_ENTRADAS; i++) {
+            Lista lista = elegidas.get(i);
+            for (int j = lista.primera(); j < lista.tamanio && leidas < PRESUPUESTO_ENTRADAS
+                    && candidatos.size() < MAX_CANDIDATOS; j = lista.siguiente(j), leidas++) {
+                Contacto c = lista.contactos[j];
+                if (vale(c, lista.versiones[j]) && !exactos.contains(c)) {
+                    candidatos.add(c);
+                }
+            }
+        }
+
+        // PASO 4: calcular la distancia real con cada candidato
+        // (los renombrados se comparan con su nombre actual)
+        // Los nombres repetidos son el mismo objeto String (ver
+        // DiccionarioNombres), así que cada uno se normaliza y se
+        // compara una sola vez aunque lo tengan miles de candidatos
+        //
+        // Solo guardamos los "maximo" mejores en una cola con prioridad
+        // cuya cabeza es el peor de ellos: cada candidato nuevo mejor
+        // que la cabeza la sustituye, sin ordenar a todos los candidatos
+        IdentityHashMap<String, Integer> distanciasPalabra = new IdentityHashMap<>(candidatos.size());
+        int[][] filas = new int[2][];
+
+        for (Contacto c : candidatos) {
+            String nombre = normalizados.computeIfAbsent(c.getNombre(), IndiceAproximado::normalizarTodo);
+            String apellido = normalizados.computeIfAbsent(c.getApellido(), IndiceAproximado::normalizarTodo);
+
+            int d = Math.min(
+                    distanciasPalabra.computeIfAbsent(nombre, t -> distancia(buscado, t, distanciaMaxima, filas)),
+                    distanciasPalabra.computeIfAbsent(apellido, t -> distancia(buscado, t, distanciaMaxima, filas)));
+
+            // El nombre completo solo si el largo no lo descarta ya
+            int largoCompleto = nombre.length() + 1 + apellido.length();
+            if (d > 0 && Math.abs(buscado.length() - largoCompleto) <= distanciaMaxima) {
+                d = Math.min(d, distancia(buscado, nombre + " " + apellido, distanciaMaxima, filas));
+            }
+
+            if (d <= distanciaMaxima) {
+                mejores.add(new Encontrado(c, d));
+                if (mejores.size() > maximo) {
+                    mejores.poll();  // Sacamos el peor
+                }
+            }
+        }
+
+        // PASO 5: los más parecidos primero; a igual distancia, por nombre
+        ArrayList<Encontrado> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(ordenResultados);
+        List<Contacto> resultado = new ArrayList<>(ordenados.size());
+        for (Encontrado e : ordenados) {
+            resultado.add(e.contacto);
+        }
+        return resultado;
+    }
+
+    // ¿El texto es el nombre, el apellido o el nombre completo (ya
+    // normalizados)? Sin juntar nombre y apellido en otro String
+    private static boolean esIgual(String buscado, String nombre, String apellido) {
+        if (buscado.equals(nombre) || buscado.equals(apellido)) {
+            return true;
+        }
+        return buscado.length() == nombre.length() + 1 + apellido.length()
+                && buscado.startsWith(nombre) && buscado.charAt(nombre.length()) == ' '
+                && buscado.endsWith(apellido);
+    }
+
+    // Erratas permitidas según el largo del texto, sin pasar nunca
+    // del máximo que los trigramas pueden garantizar (ver arriba)
+    static int distanciaMaxima(int letras, int numTrigramas) {
+        int porLargo = letras <= 4 ? 1 : letras <= 8 ? 2 : 3;
+        return Math.min(porLargo, (numTrigramas - 1) / 3);
+    }
+
+    // ============================================================
+    // MÉTODO: distancia
+    // Distancia de Levenshtein: cuántas letras hay que cambiar, poner
+    // o quitar para pasar de "a" a "b". Deja de calcular en cuanto
+    // sabe que será mayor que "limite" (y entonces devuelve limite + 1)
+    // ============================================================
+
+    // "filas" guarda las dos filas de la tabla entre llamada y llamada,
+    // para no crear arrays nuevos con cada candidato
+    private static int distancia(String a, String b, int limite, int[][] filas) {
+        if (Math.abs(a.length() - b.length()) > limite) {
+            return limite + 1;
+        }
+
+        // Solo hacen falta dos filas de la tabla: la anterior y la actual
+        if (filas[0] == null || filas[0].length < b.length() + 1) {
+            filas[0] = new int[b.length() + 1 + 16];
+            filas[1] = new int[b.length() + 1 + 16];
+        }
+        int[] anterior = filas[0];
+        int[] actual = filas[1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int menorDeLaFila = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int coste = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + coste);
+                menorDeLaFila = Math.min(menorDeLaFila, actual[j]);
+            }
+            if (menorDeLaFila > limite) {
+                return limite + 1;  // Ya no puede bajar: nos rendimos
+            }
+            int[] t = anterior;
+            anterior = actual;
+            actual = t;
+        }
+        return Math.min(anterior[b.length()], limite + 1);
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Trigramas distintos del nombre, del apellido y del nombre
+    // completo: así un texto parecido a cualquiera de los tres
+    // comparte trigramas con el contacto
+    // Un nombre o apellido null (por ejemplo tras setNombre(null))
+    // no aporta trigramas, igual que en Contacto.claveDe
+    private static long[] trigramasDe(Contacto c) {
+        if (c.getNombre() == null || c.getApellido() == null) {
+            String queda = c.getNombre() != null ? c.getNombre() : c.getApellido();
+            return queda == null ? new long[0] : trigramas(normalizarTodo(queda));
+        }
+        String nombre = normalizarTodo(c.getNombre());
+        String apellido = normalizarTodo(c.getApellido());
+        return trigramas(nombre, apellido, nombre + " " + apellido);
+    }
+
+    // Minúsculas, sin tildes y con los espacios en orden
+    // (null cuenta como vacío, ver IndicePrefijos.normalizar)
+    private static String normalizarTodo(String texto) {
+        return normalizarEspacios(IndicePrefijos.normalizar(texto));
+    }
+
+    // Quita los espacios de los extremos y deja uno solo entre palabras
+    // Si ya está así, devuelve el mismo texto sin crear otro
+    static String normalizarEspacios(String texto) {
+        if (espaciosEnOrden(texto)) {
+            return texto;
+        }
+
+        StringBuilder sb = new StringBuilder(texto.length());
+        boolean espacioPendiente = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                espacioPendiente = sb.length() > 0;
+            } else {
+                if (espacioPendiente) {
+                    sb.append(' ');
+                    espacioPendiente = false;
+                }
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ¿Sin espacios en los extremos y con un solo ' ' entre palabras?
+    private static boolean espaciosEnOrden(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            if (Character.isWhitespace(ch) && (ch != ' ' || i == 0 || i == texto.length() - 1
+                    || texto.charAt(i - 1) == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ============================================================
+    // TABLA DE LISTAS
+    // Como en IndiceTelefonos: si la casilla está ocupada se prueba
+    // la siguiente, y la tabla se mantiene medio vacía
+    // ============================================================
+
+    private Lista buscarLista(long trigrama) {
+        int mascara = tabla.length - 1;
+        for (int i = casilla(trigrama, mascara); tabla[i] != null; i = (i + 1) & mascara) {
+            if (tabla[i].trigrama == trigrama) {
+                return tabla[i];
+            }
+        }
+        return null;
+    }
+
+    // La lista no debe estar ya
+    private void ponerLista(Lista lista) {
+        if ((todas.size() + 1) * 2 > tabla.length) {
+            Lista[] vieja = tabla;
+            tabla = new Lista[vieja.length * 2];
+            for (Lista otra : vieja) {
+                if (otra != null) {
+                    colocar(otra);
+                }
+            }
+        }
+        colocar(lista);
+        todas.add(lista);
+    }
+
+    private void colocar(Lista lista) {
+        int mascara = tabla.length - 1;
+        int i = casilla(lista.trigrama, mascara);
+        while (tabla[i] != null) {
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = lista;
+    }
+
+    // Quita la lista de la tabla (no de "todas") y recoloca las
+    // siguientes para que ninguna búsqueda se corte en el hueco
+    // (igual que IndiceTelefonos.borrarCasilla)
+    private void quitarLista(Lista lista) {
+        int mascara = tabla.length - 1;
+        int hueco = casilla(lista.trigrama, mascara);
+        while (tabla[hueco] != lista) {
+            hueco = (hueco + 1) & mascara;
+        }
+
+        for (int i = (hueco + 1) & mascara; tabla[i] != null; i = (i + 1) & mascara) {
+            int ideal = casilla(tabla[i].trigrama, mascara);
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                tabla[hueco] = tabla[i];
+                hueco = i;
+            }
+        }
+        tabla[hueco] = null;
+    }
+
+    // Casilla ideal de un trigrama. Con letras normales los trigramas
+    // se parecen mucho en sus bits: multiplicar por un número impar y
+    // juntar las dos mitades los reparte por toda la tabla
+    private static int casilla(long trigrama, int mascara) {
+        long h = trigrama * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    // Trigramas distintos de los textos, cada uno con dos espacios
+    // delante y detrás (así también cuentan el principio y el final)
+    // Cada trigrama son 3 letras de 16 bits juntas en un long
+    private static long[] trigramas(String... textos) {
+        int maximo = 0;
+        for (String texto : textos) {
+            maximo += texto.length() + 2;
+        }
+        long[] resultado = new long[maximo];
+        int n = 0;
+
+        for (String texto : textos) {
+            String t = "  " + texto + "  ";
+            for (int i = 0; i + 3 <= t.length(); i++) {
+                long trigrama = ((long) t.charAt(i) << 32) | ((long) t.charAt(i + 1) << 16) | t.charAt(i + 2);
+                boolean repetido = false;
+                for (int k = 0; k < n && !repetido; k++) {
+                    repetido = resultado[k] == trigrama;
+                }
+                if (!repetido) {
+                    resultado[n++] = trigrama;
+                }
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+}
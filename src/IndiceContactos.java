@@ -0,0 +1,130 @@
+// ============================================================
+// CLASE INDICECONTACTOS
+// Índice hash que permite encontrar un contacto por nombre y
+// apellido sin recorrer toda la agenda
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// No es "public": es una pieza interna que solo usa la agenda
+class IndiceContactos {
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // HashMap guarda parejas clave -> valor y las encuentra en tiempo constante
+    // La clave es el nombre y apellido "plegados" (ver Contacto.claveDe)
+    private final HashMap<String, Contacto> principal = new HashMap<>();
+
+    // La agenda no deja añadir duplicados, pero un setNombre/setApellido
+    // sí puede dejar dos contactos con la misma clave
+    // Los contactos "de sobra" se guardan aquí para no perderlos
+    private final HashMap<String, ArrayList<Contacto>> duplicados = new HashMap<>();
+
+    // ============================================================
+    // MÉTODO: buscar
+    // Devuelve el contacto con ese nombre y apellido, o null si no hay
+    // ============================================================
+
+    Contacto buscar(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+
+        // Si falta el nombre o el apellido no puede haber coincidencia
+        if (clave == null) {
+            return null;
+        }
+
+        return principal.get(clave);
+    }
+
+    // ============================================================
+    // MÉTODO: añadir
+    // Mete el contacto en el índice usando sus valores actuales
+    // ============================================================
+
+    void añadir(Contacto c) {
+        String clave = c.getClave();
+
+        // putIfAbsent solo guarda si la clave no estaba ocupada
+        // Devuelve el contacto que ya estaba (o null si no había ninguno)
+        Contacto anterior = principal.putIfAbsent(clave, c);
+
+        if (anterior != null) {
+            // La clave ya estaba ocupada: lo guardamos como duplicado
+            // computeIfAbsent crea la lista la primera vez que se necesita
+            duplicados.computeIfAbsent(clave, k -> new ArrayList<>()).add(c);
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: añadirSiNoEsta
+    // Mete el contacto solo si nadie tiene ya su clave: comprobar y
+    // añadir con una sola búsqueda (lo usan las altas por lotes)
+    // Devuelve false si la clave ya estaba ocupada
+    // ============================================================
+
+    boolean añadirSiNoEsta(Contacto c) {
+        return principal.putIfAbsent(c.getClave(), c) == null;
+    }
+
+    // ============================================================
+    // MÉTODO: posicion
+    // Cuál de los contactos con su clave es "c": 0 si es el principal
+    // (el que devuelve buscar) y 1, 2... si es uno de los duplicados
+    // (-1 si no está). DiarioAgenda lo guarda para saber a cuál
+    // de ellos se refiere un cambio
+    // ============================================================
+
+    int posicion(Contacto c) {
+        String clave = c.getClave();
+        if (principal.get(clave) == c) {
+            return 0;
+        }
+        ArrayList<Contacto> extra = duplicados.get(clave);
+        if (extra != null) {
+            for (int i = 0; i < extra.size(); i++) {
+                if (extra.get(i) == c) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // ============================================================
+    // MÉTODO: eliminar
+    // Saca del índice este contacto concreto (el mismo objeto)
+    // Hay que llamarlo ANTES de cambiar su nombre o apellido
+    // ============================================================
+
+    void eliminar(Contacto c) {
+        String clave = c.getClave();
+
+        if (principal.get(clave) == c) {
+            // Era el contacto principal de esa clave
+            ArrayList<Contacto> extra = duplicados.get(clave);
+
+            if (extra == null) {
+                principal.remove(clave);
+            } else {
+                // Ascendemos uno de los duplicados a principal
+                principal.put(clave, extra.remove(extra.size() - 1));
+                if (extra.isEmpty()) {
+                    duplicados.remove(clave);
+                }
+            }
+            return;
+        }
+
+        // Si no era el principal, tiene que estar entre los duplicados
+        ArrayList<Contacto> extra = duplicados.get(clave);
+        if (extra != null) {
+            extra.remove(c);
+            if (extra.isEmpty()) {
+                duplicados.remove(clave);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+// ============================================================
+// CLASE INDICEPREFIJOS
+// Permite buscar contactos "mientras se escribe": todos los que
+// empiezan por un texto en el nombre, en el apellido o en el
+// nombre completo
+// ============================================================
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+class IndicePrefijos {
+
+    // ============================================================
+    // CLASE INTERNA: Entrada
+    // Una clave de búsqueda ya normalizada junto a su contacto
+    // ============================================================
+
+    // "static" en una clase interna significa que no necesita un
+    // objeto IndicePrefijos para existir
+    private static final class Entrada {
+        final String clave;
+        final Contacto contacto;
+        final long secuencia;  // Para desempatar claves iguales
+
+        Entrada(String clave, Contacto contacto, long secuencia) {
+            this.clave = clave;
+            this.contacto = contacto;
+            this.secuencia = secuencia;
+        }
+    }
+
+    // Orden de las entradas: por clave y, si coinciden, por llegada
+    private static final Comparator<Entrada> ORDEN = (a, b) -> {
+        int resultado = a.clave.compareTo(b.clave);
+        if (resultado != 0) {
+            return resultado;
+        }
+        return Long.compare(a.secuencia, b.secuencia);
+    };
+
+    // ============================================================
+    // ATRIBUTOS
+    // Dos árboles ordenados: uno por "nombre apellido" y otro por
+    // "apellido nombre". Todas las claves que empiezan por el mismo
+    // texto quedan juntas, así que una búsqueda por prefijo es
+    // saltar al primer candidato y leer los siguientes
+    // ============================================================
+
+    private TreeSet<Entrada> porNombre = new TreeSet<>(ORDEN);
+    private TreeSet<Entrada> porApellido = new TreeSet<>(ORDEN);
+
+    // ============================================================
+    // MÉTODOS PARA MANTENER EL ÍNDICE AL DÍA
+    // ============================================================
+
+    void añadir(Contacto c) {
+        String nombre = normalizar(c.getNombre());
+        String apellido = normalizar(c.getApellido());
+
+        porNombre.add(new Entrada(nombre + " " + apellido, c, c.secuencia));
+        porApellido.add(new Entrada(apellido + " " + nombre, c, c.secuencia));
+    }
+
+    // Añade muchos de una vez, en el orden de cada árbol (igual que
+    // VistaOrdenada.añadirTodos, ver ArbolesOrdenados). "nombres" y
+    // "apellidos" son los del contacto de la misma posición ya
+    // normalizados (ver normalizarTodos)
+    void añadirTodos(List<Contacto> nuevos, String[] nombres, String[] apellidos) {
+        List<Entrada> entradasNombre = new ArrayList<>(nuevos.size());
+        List<Entrada> entradasApellido = new ArrayList<>(nuevos.size());
+        for (int i = 0; i < nuevos.size(); i++) {
+            Contacto c = nuevos.get(i);
+            entradasNombre.add(new Entrada(nombres[i] + " " + apellidos[i], c, c.secuencia));
+            entradasApellido.add(new Entrada(apellidos[i] + " " + nombres[i], c, c.secuencia));
+        }
+        entradasNombre.sort(ORDEN);
+        entradasApellido.sort(ORDEN);
+        porNombre = ArbolesOrdenados.añadirOrdenados(porNombre, entradasNombre);
+        porApellido = ArbolesOrdenados.añadirOrdenados(porApellido, entradasApellido);
+    }
+
+    // Hay que llamarlo ANTES de cambiar el nombre o apellido del contacto,
+    // porque las claves se vuelven a calcular con los valores actuales
+    void eliminar(Contacto c) {
+        String nombre = normalizar(c.getNombre());
+        String apellido = normalizar(c.getApellido());
+
+        porNombre.remove(new Entrada(nombre + " " + apellido, c, c.secuencia));
+        porApellido.remove(new Entrada(apellido + " " + nombre, c, c.secuencia));
+    }
+
+    // ============================================================
+    // MÉTODO: buscar
+    // Devuelve como mucho "maximo" contactos cuyo nombre, apellido
+    // o nombre completo empieza por "prefijo", en orden alfabético
+    // ============================================================
+
+    List<Contacto> buscar(String prefijo, int maximo) {
+        String buscado = normalizar(prefijo == null ? "" : prefijo.stripLeading());
+
+        if (maximo <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Empezamos a leer cada árbol en la primera clave >= prefijo
+        // tailSet devuelve la parte del árbol a partir de un elemento
+        Entrada desde = new Entrada(buscado, null, Long.MIN_VALUE);
+        Iterator<Entrada> itNombre = porNombre.tailSet(desde, true).iterator();
+        Iterator<Entrada> itApellido = porApellido.tailSet(desde, true).iterator();
+
+        Entrada siguienteNombre = siguiente(itNombre, buscado);
+        Entrada siguienteApellido = siguiente(itApellido, buscado);
+
+        // Un contacto puede coincidir por nombre y por apellido a la vez
+        // (por ejemplo "Ana Anaya" buscando "ana"); así no lo repetimos
+        Set<Contacto> vistos = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Contacto> resultado = new ArrayList<>();
+
+        // Mezclamos los dos árboles tomando siempre la clave menor,
+        // hasta tener "maximo" contactos o agotar las coincidencias
+        while (resultado.size() < maximo && (siguienteNombre != null || siguienteApellido != null)) {
+            Entrada menor;
+            if (siguienteApellido == null
+                    || (siguienteNombre != null && ORDEN.compare(siguienteNombre, siguienteApellido) <= 0)) {
+                menor = siguienteNombre;
+                siguienteNombre = siguiente(itNombre, buscado);
+            } else {
+                menor = siguienteApellido;
+                siguienteApellido = siguiente(itApellido, buscado);
+            }
+
+            if (vistos.add(menor.contacto)) {
+                resultado.add(menor.contacto);
+            }
+        }
+
+        return resultado;
+    }
+
+    // Devuelve la siguiente entrada si todavía empieza por el prefijo,
+    // o null cuando ya no quedan coincidencias en ese árbol
+    private static Entrada siguiente(Iterator<Entrada> it, String prefijo) {
+        if (it.hasNext()) {
+            Entrada e = it.next();
+            if (e.clave.startsWith(prefijo)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    // ============================================================
+    // MÉTODO: normalizar
+    // Pasa el texto a minúsculas y le quita las tildes, para que
+    // "álv" encuentre a "Álvarez" y "ALV" también
+    // Un texto null (por ejemplo tras setNombre(null)) cuenta como
+    // vacío: el contacto se sigue encontrando por lo demás
+    // ============================================================
+
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+
+        // Camino rápido: si solo hay letras sin tilde (ASCII),
+        // basta con pasar a minúsculas
+        // Locale.ROOT evita reglas de idiomas concretos (en turco "I" no es "i")
+        boolean soloAscii = true;
+        for (int i = 0; i < texto.length() && soloAscii; i++) {
+            soloAscii = texto.charAt(i) < 128;
+        }
+        if (soloAscii) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+
+        // Normalizer.Form.NFD separa cada letra de su tilde ("á" -> "a" + "´")
+        // y luego nos saltamos esas marcas (las de la categoría \p{M});
+        // un bucle sencillo es mucho más rápido que replaceAll(), que
+        // compilaría la expresión regular en cada llamada
+        String separado = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sinTildes = new StringBuilder(separado.length());
+        for (int i = 0; i < separado.length(); i++) {
+            char ch = separado.charAt(i);
+            int tipo = Character.getType(ch);
+            if (tipo != Character.NON_SPACING_MARK && tipo != Character.COMBINING_SPACING_MARK
+                    && tipo != Character.ENCLOSING_MARK) {
+                sinTildes.append(ch);
+            }
+        }
+        return sinTildes.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // normalizar() del texto que da "campo" para cada contacto del
+    // lote. Los nombres repetidos son el mismo objeto String (ver
+    // DiccionarioNombres), así que cada uno se normaliza una sola vez
+    static String[] normalizarTodos(List<Contacto> lote, Function<Contacto, String> campo) {
+        String[] resultado = new String[lote.size()];
+        IdentityHashMap<String, String> hechos = new IdentityHashMap<>();
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = hechos.computeIfAbsent(campo.apply(lote.get(i)), IndicePrefijos::normalizar);
+        }
+        return resultado;
+    }
+}
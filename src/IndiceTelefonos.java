@@ -0,0 +1,283 @@
+// ============================================================
+// CLASE INDICETELEFONOS
+// Índice inverso: dado un número de teléfono, encuentra a quién
+// pertenece sin recorrer toda la agenda
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class IndiceTelefonos {
+
+    // ============================================================
+    // ATRIBUTOS
+    // Tabla hash de "direccionamiento abierto": dos arrays paralelos
+    // (claves y contactos). Si una casilla está ocupada se prueba la
+    // siguiente. Las claves son "long" primitivos, no objetos String,
+    // así la tabla ocupa poco y buscar no crea ningún objeto
+    // ============================================================
+
+    // Prefijo de país que se quita de los números internacionales
+    // (+34 / 0034 es España), para que "+34 600 11 22 33" y
+    // "600112233" sean el mismo número
+    static final String PREFIJO_PAIS = "34";
+
+    // Valor que devuelve claveDe() cuando el texto no es un teléfono
+    static final long SIN_CLAVE = -1;
+
+    // Una casilla con clave 0 está vacía (ninguna clave real vale 0)
+    private static final long VACIA = 0;
+
+    // Como mucho 17 cifras: con el "1" delante siguen cabiendo en un long
+    private static final int MAX_CIFRAS = 17;
+
+    private long[] claves = new long[16];
+    private Contacto[] contactos = new Contacto[16];
+    private int ocupadas = 0;
+
+    // ============================================================
+    // MÉTODO: claveDe
+    // Convierte un teléfono escrito de cualquier forma en un número
+    // - Quita espacios, guiones, puntos, barras y paréntesis
+    // - Quita el "+" o "00" internacional y el prefijo de país
+    // - Pone un 1 delante para no perder los ceros iniciales
+    //   ("0123" y "123" son números distintos)
+    // Devuelve SIN_CLAVE si hay letras u otros símbolos
+    // ============================================================
+
+    static long claveDe(CharSequence telefono) {
+        if (telefono == null) {
+            return SIN_CLAVE;
+        }
+
+        // PASO 1: contar las cifras y comprobar que no hay símbolos raros
+        int cifras = 0;
+        boolean mas = false;
+        for (int i = 0; i < telefono.length(); i++) {
+            char ch = telefono.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                cifras++;
+            } else if (ch == '+' && cifras == 0 && !mas) {
+                mas = true;  // El "+" solo vale al principio
+            } else if (!esSeparador(ch)) {
+                return SIN_CLAVE;
+            }
+        }
+
+        // PASO 2: decidir cuántas cifras iniciales hay que saltarse
+        int saltar = 0;
+        boolean internacional = mas;
+        if (!mas && cifras > 2 && cifra(telefono, 0) == '0' && cifra(telefono, 1) == '0') {
+            internacional = true;
+            saltar = 2;  // "00" equivale al "+"
+        }
+        if (internacional && cifras - saltar > PREFIJO_PAIS.length()) {
+            boolean esNuestroPais = true;
+            for (int k = 0; k < PREFIJO_PAIS.length(); k++) {
+                esNuestroPais &= cifra(telefono, saltar + k) == PREFIJO_PAIS.charAt(k);
+            }
+            if (esNuestroPais) {
+                saltar += PREFIJO_PAIS.length();
+            }
+        }
+
+        if (cifras - saltar == 0 || cifras - saltar > MAX_CIFRAS) {
+            return SIN_CLAVE;
+        }
+
+        // PASO 3: construir el número a partir de las cifras restantes
+        long clave = 1;
+        int vistas = 0;
+        for (int i = 0; i < telefono.length(); i++) {
+            char ch = telefono.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                if (vistas >= saltar) {
+                    clave = clave * 10 + (ch - '0');
+                }
+                vistas++;
+            }
+        }
+        return clave;
+    }
+
+    // Caracteres que se permiten entre las cifras y se ignoran
+    private static boolean esSeparador(char ch) {
+        return ch == ' ' || ch == '-' || ch == '.' || ch == '/' || ch == '(' || ch == ')';
+    }
+
+    // Devuelve la cifra número "n" (contando solo cifras) del texto
+    private static char cifra(CharSequence texto, int n) {
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            if (ch >= '0' && ch <= '9' && n-- == 0) {
+                return ch;
+            }
+        }
+        return 0;
+    }
+
+    // ============================================================
+    // MÉTODOS PARA MANTENER EL ÍNDICE AL DÍA
+    // ============================================================
+
+    void añadir(Contacto c) {
+        long clave = claveDe(c.getTelefono());
+        if (clave == SIN_CLAVE) {
+            return;  // No es un teléfono que se pueda indexar
+        }
+
+        // Mantenemos la tabla medio vacía para que las búsquedas sean cortas
+        if ((ocupadas + 1) * 2 > claves.length) {
+            agrandar(claves.length * 2);
+        }
+
+        // Buscamos la primera casilla vacía a partir de la posición de la clave
+        int mascara = claves.length - 1;
+        int i = posicion(clave, mascara);
+        while (claves[i] != VACIA) {
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        contactos[i] = c;
+        ocupadas++;
+    }
+
+    // Añade muchos de una vez: la tabla se agranda de golpe a su
+    // tamaño final en vez de duplicarse (y recolocarlo todo) varias
+    // veces durante el lote
+    void añadirTodos(List<Contacto> lote) {
+        int necesarias = claves.length;
+        while ((long) (ocupadas + lote.size()) * 2 > necesarias) {
+            necesarias *= 2;
+        }
+        if (necesarias != claves.length) {
+            agrandar(necesarias);
+        }
+        for (Contacto c : lote) {
+            añadir(c);
+        }
+    }
+
+    // Hay que llamarlo ANTES de cambiar el teléfono del contacto
+    void eliminar(Contacto c) {
+        long clave = claveDe(c.getTelefono());
+        if (clave == SIN_CLAVE) {
+            return;
+        }
+
+        int mascara = claves.length - 1;
+        int i = posicion(clave, mascara);
+        while (claves[i] != VACIA) {
+            if (claves[i] == clave && contactos[i] == c) {
+                borrarCasilla(i);
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+    }
+
+    // Número de contactos con teléfono guardados en la tabla
+    int tamanio() {
+        return ocupadas;
+    }
+
+    // ============================================================
+    // MÉTODOS DE BÚSQUEDA
+    // ============================================================
+
+    // Devuelve el primer contacto con ese teléfono, o null si no hay
+    // No crea ningún objeto: es la consulta más frecuente
+    Contacto buscarPrimero(CharSequence telefono) {
+        long clave = claveDe(telefono);
+        if (clave == SIN_CLAVE) {
+            return null;
+        }
+
+        int mascara = claves.length - 1;
+        for (int i = posicion(clave, mascara); claves[i] != VACIA; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                return contactos[i];
+            }
+        }
+        return null;
+    }
+
+    // Devuelve todos los contactos que comparten ese teléfono
+    List<Contacto> buscarTodos(CharSequence telefono) {
+        long clave = claveDe(telefono);
+        if (clave == SIN_CLAVE) {
+            return Collections.emptyList();
+        }
+
+        List<Contacto> resultado = null;
+        int mascara = claves.length - 1;
+        for (int i = posicion(clave, mascara); claves[i] != VACIA; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                // Solo creamos la lista si hay algún resultado
+                if (resultado == null) {
+                    resultado = new ArrayList<>(2);
+                }
+                resultado.add(contactos[i]);
+            }
+        }
+        return resultado == null ? Collections.emptyList() : resultado;
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS DE LA TABLA
+    // ============================================================
+
+    // Casilla "ideal" de una clave: mezclamos sus bits para que
+    // números parecidos no caigan todos en casillas seguidas
+    // (también la usa InstantaneaAgenda para su tabla en el fichero)
+    static int posicion(long clave, int mascara) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    // Vacía una casilla y recoloca las siguientes para que ninguna
+    // búsqueda se corte antes de tiempo en el hueco ("backward shift")
+    private void borrarCasilla(int hueco) {
+        int mascara = claves.length - 1;
+        int i = (hueco + 1) & mascara;
+
+        while (claves[i] != VACIA) {
+            int ideal = posicion(claves[i], mascara);
+            // ¿La casilla ideal de i queda "antes" del hueco (dando la vuelta)?
+            // Entonces la entrada de i puede moverse al hueco
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                claves[hueco] = claves[i];
+                contactos[hueco] = contactos[i];
+                hueco = i;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        claves[hueco] = VACIA;
+        contactos[hueco] = null;
+        ocupadas--;
+    }
+
+    // Pasa la tabla a "casillas" casillas (una potencia de 2 mayor que
+    // la actual) y vuelve a colocar todas las entradas
+    private void agrandar(int casillas) {
+        long[] viejasClaves = claves;
+        Contacto[] viejosContactos = contactos;
+
+        claves = new long[casillas];
+        contactos = new Contacto[casillas];
+        int mascara = claves.length - 1;
+
+        for (int j = 0; j < viejasClaves.length; j++) {
+            if (viejasClaves[j] != VACIA) {
+                int i = posicion(viejasClaves[j], mascara);
+                while (claves[i] != VACIA) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = viejasClaves[j];
+                contactos[i] = viejosContactos[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+// ============================================================
+// CLASE INSTANTANEAAGENDA
+// Una "foto" de la agenda en un fichero binario que se puede
+// consultar nada más abrirlo, sin cargar los contactos
+//
+// Cargar millones de contactos en una Agenda (crear los objetos y
+// todos sus índices) tarda segundos. Este fichero ya trae los
+// índices hechos, y al abrirlo se "mapea" en memoria con
+// FileChannel.map: el sistema operativo lee del disco solo las
+// partes que se consultan. Abrirlo cuesta lo mismo con 100
+// contactos que con 10 millones
+//
+// Los contactos se guardan en orden alfabético y cada uno se
+// convierte en un objeto Contacto solo cuando se pide (es una
+// copia: cambiarla no cambia el fichero). Para trabajar con ellos
+// como siempre, cargarEn() los pasa a una Agenda
+//
+// Formato (versión 1, números en big-endian):
+//
+//   CABECERA (64 bytes)
+//     mágico "AGNM", versión, cantidad de contactos, casillas de
+//     los dos índices, dónde empieza cada sección, tamaño total del
+//     fichero y un CRC32 de todo lo anterior
+//   POSICIONES   un long por contacto: dónde empieza su registro
+//   REGISTROS    por contacto: nombre, apellido y teléfono, cada uno
+//                como un int con su longitud en bytes (-1 = null)
+//                seguido del texto en UTF-8
+//   NOMBRES      tabla hash de long: (hash << 32) | (número + 1),
+//                0 = casilla vacía. Los contactos sin nombre o sin
+//                apellido no tienen clave y no están aquí
+//   TELEFONOS    tabla hash con las claves de teléfono (long, ver
+//                IndiceTelefonos.claveDe; 0 = vacía) y después el
+//                número de contacto de cada casilla (int)
+//
+// El fichero nunca cambia: se puede consultar desde varios hilos
+// ============================================================
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class InstantaneaAgenda {
+
+    // ============================================================
+    // CONSTANTES
+    // ============================================================
+
+    private static final int MAGICO = 0x41474E4D;  // "AGNM"
+    private static final int VERSION = 1;
+
+    // La cabecera ocupa 64 bytes; el CRC va detrás de los 44 primeros
+    // y los cubre a todos (el resto queda a cero para el futuro)
+    private static final int CABECERA = 64;
+    private static final int BYTES_CON_CRC = 44;
+
+    // Un MappedByteBuffer no puede pasar de 2 GB
+    private static final long TAMANIO_MAXIMO = Integer.MAX_VALUE;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final MappedByteBuffer datos;
+    private final int cantidad;
+    private final int casillasNombres;
+    private final int casillasTelefonos;
+    private final int inicioNombres;
+    private final int inicioTelefonos;
+
+    private InstantaneaAgenda(MappedByteBuffer datos, int cantidad, int casillasNombres,
+                              int casillasTelefonos, int inicioNombres, int inicioTelefonos) {
+        this.datos = datos;
+        this.cantidad = cantidad;
+        this.casillasNombres = casillasNombres;
+        this.casillasTelefonos = casillasTelefonos;
+        this.inicioNombres = inicioNombres;
+        this.inicioTelefonos = inicioTelefonos;
+    }
+
+    // ============================================================
+    // MÉTODO: guardar
+    // Escribe la foto de la agenda en "fichero". Se escribe primero
+    // en un ".tmp" y luego se renombra, así nunca queda a medias
+    // ============================================================
+
+    public static void guardar(Agenda agenda, Path fichero) throws IOException {
+        List<Contacto> ordenados = agenda.listarContactos();
+        int cantidad = ordenados.size();
+        long[] posiciones = new long[cantidad];
+
+        // Las dos tablas tienen al menos 1,5 casillas por contacto (una
+        // potencia de 2), así las búsquedas dan pocos saltos
+        int casillas = tamanioTabla(cantidad);
+        long[] nombres = new long[casillas];
+        long[] telefonos = new long[casillas];
+        int[] numerosTelefono = new int[casillas];
+
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        try {
+            try (FileChannel fc = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(fc), 1 << 16));
+
+                // Los registros van detrás de la cabecera y las posiciones,
+                // que se escriben al final (cuando ya las conocemos)
+                long escritos = CABECERA + 8L * cantidad;
+                fc.position(escritos);
+
+                int mascara = casillas - 1;
+                for (int i = 0; i < cantidad; i++) {
+                    Contacto c = ordenados.get(i);
+                    posiciones[i] = escritos;
+                    escritos += escribirTexto(out, c.getNombre());
+                    escritos += escribirTexto(out, c.getApellido());
+                    escritos += escribirTexto(out, c.getTelefono());
+                    comprobarTamanio(escritos);
+
+                    // Lo colocamos en cada tabla en el primer hueco libre. Sin
+                    // nombre o sin apellido no tiene clave (buscaContacto no
+                    // lo encontraría nunca), así que no entra en la de nombres
+                    String clave = c.getClave();
+                    if (clave != null) {
+                        int hash = hashDe(clave);
+                        int casilla = hash & mascara;
+                        while (nombres[casilla] != 0) {
+                            casilla = (casilla + 1) & mascara;
+                        }
+                        nombres[casilla] = ((long) hash << 32) | (i + 1L);
+                    }
+
+                    long telefono = IndiceTelefonos.claveDe(c.getTelefono());
+                    if (telefono != IndiceTelefonos.SIN_CLAVE) {
+                        int casilla = IndiceTelefonos.posicion(telefono, mascara);
+                        while (telefonos[casilla] != 0) {
+                            casilla = (casilla + 1) & mascara;
+                        }
+                        telefonos[casilla] = telefono;
+                        numerosTelefono[casilla] = i;
+                    }
+                }
+
+                long inicioNombres = escritos;
+                for (long casilla : nombres) {
+                    out.writeLong(casilla);
+                }
+                long inicioTelefonos = inicioNombres + 8L * casillas;
+                for (long casilla : telefonos) {
+                    out.writeLong(casilla);
+                }
+                for (int numero : numerosTelefono) {
+                    out.writeInt(numero);
+                }
+                long total = inicioTelefonos + 12L * casillas;
+                comprobarTamanio(total);
+                out.flush();
+
+                // Ahora escribimos las posiciones y la cabecera al principio
+                ByteBuffer bufer = ByteBuffer.allocate(1 << 16);
+                long destino = CABECERA;
+                for (long posicion : posiciones) {
+                    if (!bufer.hasRemaining()) {
+                        destino += escribirEn(fc, bufer, destino);
+                    }
+                    bufer.putLong(posicion);
+                }
+                escribirEn(fc, bufer, destino);
+
+                bufer.putInt(MAGICO).putInt(VERSION).putInt(cantidad).putInt(casillas).putInt(casillas)
+                        .putLong(inicioNombres).putLong(inicioTelefonos).putLong(total);
+                CRC32 crc = new CRC32();
+                crc.update(bufer.array(), 0, BYTES_CON_CRC);
+                bufer.putInt((int) crc.getValue());
+                while (bufer.position() < CABECERA) {
+                    bufer.put((byte) 0);
+                }
+                escribirEn(fc, bufer, 0);
+
+                fc.force(true);
+            }
+
+            Files.move(temporal, fichero, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // No dejamos el ".tmp" a medias ocupando sitio
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException alBorrar) {
+                e.addSuppressed(alBorrar);
+            }
+            throw e;
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: abrir
+    // Comprueba la cabecera y mapea el fichero. No lee ningún
+    // contacto: eso se hace al consultarlos
+    // ============================================================
+
+    public static InstantaneaAgenda abrir(Path fichero) throws IOException {
+        MappedByteBuffer datos;
+        try (FileChannel fc = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            if (fc.size() < CABECERA || fc.size() > TAMANIO_MAXIMO) {
+                throw new IOException("El fichero " + fichero + " no es una instantánea de agenda válida");
+            }
+            // El mapa sigue valiendo después de cerrar el canal
+            datos = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+        }
+
+        if (datos.getInt(0) != MAGICO) {
+            throw new IOException("El fichero " + fichero + " no es una instantánea de agenda válida");
+        }
+        if (datos.getInt(4) != VERSION) {
+            throw new IOException("La instantánea " + fichero + " es de la versión " + datos.getInt(4)
+                    + " y este programa solo lee la " + VERSION);
+        }
+
+        byte[] cabecera = new byte[BYTES_CON_CRC];
+        datos.get(0, cabecera);
+        CRC32 crc = new CRC32();
+        crc.update(cabecera);
+
+        int cantidad = datos.getInt(8);
+        int casillasNombres = datos.getInt(12);
+        int casillasTelefonos = datos.getInt(16);
+        long inicioNombres = datos.getLong(20);
+        long inicioTelefonos = datos.getLong(28);
+        long total = datos.getLong(36);
+
+        // Un fichero cortado o mezclado con otro no debe dar datos raros
+        if ((int) crc.getValue() != datos.getInt(BYTES_CON_CRC) || total != datos.capacity()
+                || cantidad < 0 || inicioNombres < CABECERA + 8L * cantidad
+                || Integer.bitCount(casillasNombres) != 1 || Integer.bitCount(casillasTelefonos) != 1
+                || inicioNombres + 8L * casillasNombres != inicioTelefonos
+                || inicioTelefonos + 12L * casillasTelefonos != total) {
+            throw new IOException("La instantánea " + fichero + " está dañada o incompleta");
+        }
+
+        return new InstantaneaAgenda(datos, cantidad, casillasNombres, casillasTelefonos,
+                (int) inicioNombres, (int) inicioTelefonos);
+    }
+
+    // ============================================================
+    // CONSULTAS
+    // ============================================================
+
+    public int obtenerNumeroContactos() {
+        return cantidad;
+    }
+
+    // El contacto que ocupa la posición "numero" en orden alfabético
+    public Contacto contactoEn(int numero) {
+        if (numero < 0 || numero >= cantidad) {
+            throw new IndexOutOfBoundsException("No hay contacto número " + numero);
+        }
+        int[] lectura = {(int) datos.getLong(CABECERA + 8 * numero)};
+        String nombre = leerTexto(lectura);
+        String apellido = leerTexto(lectura);
+        String telefono = leerTexto(lectura);
+        return new Contacto(nombre, apellido, telefono);
+    }
+
+    // Busca por nombre y apellido (sin importar mayúsculas)
+    public Optional<Contacto> buscaContacto(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        if (clave == null) {
+            return Optional.empty();
+        }
+
+        // Solo leemos los contactos cuyo hash coincide entero
+        int hash = hashDe(clave);
+        int mascara = casillasNombres - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            long casilla = datos.getLong(inicioNombres + 8 * i);
+            if (casilla == 0) {
+                return Optional.empty();
+            }
+            if ((int) (casilla >>> 32) == hash) {
+                Contacto c = contactoEn((int) casilla - 1);
+                if (clave.equals(c.getClave())) {
+                    return Optional.of(c);
+                }
+            }
+        }
+    }
+
+    // Todos los contactos con ese teléfono (escrito de cualquier forma)
+    public List<Contacto> buscarPorTelefono(String telefono) {
+        long clave = IndiceTelefonos.claveDe(telefono);
+        if (clave == IndiceTelefonos.SIN_CLAVE) {
+            return Collections.emptyList();
+        }
+
+        List<Contacto> resultado = new ArrayList<>(2);
+        int mascara = casillasTelefonos - 1;
+        int inicioNumeros = inicioTelefonos + 8 * casillasTelefonos;
+        for (int i = IndiceTelefonos.posicion(clave, mascara); ; i = (i + 1) & mascara) {
+            long casilla = datos.getLong(inicioTelefonos + 8 * i);
+            if (casilla == 0) {
+                return resultado;
+            }
+            if (casilla == clave) {
+                resultado.add(contactoEn(datos.getInt(inicioNumeros + 4 * i)));
+            }
+        }
+    }
+
+    // Como mucho "cantidad" contactos en orden alfabético desde "desde"
+    public List<Contacto> obtenerPagina(int desde, int cantidad) {
+        int fin = (int) Math.min((long) Math.max(desde, 0) + Math.max(cantidad, 0), this.cantidad);
+        List<Contacto> pagina = new ArrayList<>(Math.max(fin - desde, 0));
+        for (int i = Math.max(desde, 0); i < fin; i++) {
+            pagina.add(contactoEn(i));
+        }
+        return pagina;
+    }
+
+    // Todos los contactos en orden alfabético, leídos según se piden
+    public Stream<Contacto> contactos() {
+        return IntStream.range(0, cantidad).mapToObj(this::contactoEn);
+    }
+
+    // ============================================================
+    // MÉTODO: cargarEn
+    // Añade todos los contactos a una agenda (la misma carga lenta
+    // de siempre, pero solo cuando de verdad hace falta)
+    // Devuelve el resultado de cada uno, como añadirTodos
+    // ============================================================
+
+    public List<ResultadoAlta> cargarEn(Agenda agenda) {
+        return agenda.añadirTodos(obtenerPagina(0, cantidad));
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // La potencia de 2 más pequeña que da 1,5 casillas por elemento
+    // (siempre queda alguna vacía, que es donde terminan las búsquedas)
+    private static int tamanioTabla(int elementos) {
+        long minimo = Math.max(2, elementos + elementos / 2L + 1);
+        return (int) Math.min(Long.highestOneBit(minimo - 1) << 1, 1 << 30);
+    }
+
+    // Hash de la clave de nombre y apellido. String.hashCode() da lo
+    // mismo en cualquier versión de Java, así el fichero sirve siempre;
+    // mezclamos sus bits para repartir mejor las casillas
+    // (una casilla ocupada nunca vale 0 porque número + 1 > 0)
+    private static int hashDe(String clave) {
+        int h = clave.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void comprobarTamanio(long bytes) throws IOException {
+        if (bytes > TAMANIO_MAXIMO) {
+            throw new IOException("La agenda es demasiado grande para una instantánea (más de 2 GB)");
+        }
+    }
+
+    // Escribe el búfer en el fichero a partir de "posicion" y lo vacía
+    private static int escribirEn(FileChannel fc, ByteBuffer bufer, long posicion) throws IOException {
+        bufer.flip();
+        int bytes = bufer.remaining();
+        while (bufer.hasRemaining()) {
+            posicion += fc.write(bufer, posicion);
+        }
+        bufer.clear();
+        return bytes;
+    }
+
+    // Longitud (-1 si es null) y texto en UTF-8; devuelve los bytes escritos
+    private static int escribirTexto(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return 4;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    // Lee un texto en lectura[0] y deja lectura[0] justo detrás
+    private String leerTexto(int[] lectura) {
+        int posicion = lectura[0];
+        int longitud = datos.getInt(posicion);
+        if (longitud < 0) {
+            lectura[0] = posicion + 4;
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        datos.get(posicion + 4, bytes);
+        lectura[0] = posicion + 4 + longitud;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
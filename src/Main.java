@@ -2,16 +2,39 @@
 // CLASE MAIN (PROGRAMA PRINCIPAL)
 // Esta clase contiene el método main y el menú interactivo
 // Es el punto de entrada de nuestro programa
+//
+// Es la única clase que habla con el usuario: pide los datos,
+// llama a la agenda (que no escribe nada) y muestra el resultado
 // ============================================================
 
 // Importamos la clase Scanner que permite leer datos del teclado
 // "import" trae clases de otras librerías para poder usarlas
 // java.util es un paquete (carpeta) de Java con utilidades
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
+import javax.management.JMException;
 
 // Clase principal del programa
 public class Main {
 
+    // Contactos que se muestran de cada vez al listar
+    private static final int CONTACTOS_POR_PAGINA = 50;
+
+    // Búfer de lectura y de escritura del modo guion
+    private static final int TAMANIO_BUFER_GUION = 1 << 20;
+
     // ============================================================
     // MÉTODO MAIN
     // Es el punto de entrada del programa
@@ -36,6 +59,48 @@ public class Main {
         // Variable para controlar si el programa sigue ejecutándose
         boolean continuar = true;
 
+        // Carpeta donde se guarda la agenda (null = solo en memoria)
+        // Se indica al ejecutar: java Main --datos carpeta
+        // Con "--servidor [puerto]" no hay menú: la agenda se usa desde
+        // otros programas por la red (ver ServidorAgenda), y con
+        // "--metricas segundos" se muestran sus métricas cada cierto tiempo
+        // Con "--script fichero" (o "--script -" para la entrada
+        // estándar) tampoco hay menú: se ejecutan las órdenes del fichero
+        String carpetaDatos = null;
+        int puertoServidor = -1;  // -1 = sin servidor
+        int segundosMetricas = 0;  // 0 = no mostrarlas
+        String guion = null;  // null = sin guion
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--datos") && i + 1 < args.length) {
+                carpetaDatos = args[++i];
+            } else if (args[i].equals("--servidor")) {
+                puertoServidor = ServidorAgenda.PUERTO_POR_DEFECTO;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    puertoServidor = Integer.parseInt(args[++i]);
+                }
+            } else if (args[i].equals("--metricas") && i + 1 < args.length) {
+                segundosMetricas = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--script")) {
+                guion = "-";
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    guion = args[++i];
+                }
+            }
+        }
+
+        if (guion != null) {
+            ejecutarGuion(guion, carpetaDatos);
+            return;
+        }
+
+        if (puertoServidor >= 0) {
+            ejecutarServidor(puertoServidor, carpetaDatos, segundosMetricas);
+            return;
+        }
+
+        // Diario que guarda los cambios en disco (null si no se usa)
+        DiarioAgenda diario = null;
+
         // ============================================================
         // PASO 1: CREAR LA AGENDA
         // Preguntamos al usuario cómo quiere crear la agenda
@@ -46,39 +111,64 @@ public class Main {
         System.out.println("╚════════════════════════════════════════════╝");
         System.out.println();
 
-        System.out.println("¿Cómo desea crear la agenda?");
-        System.out.println("1. Con tamaño personalizado");
-        System.out.println("2. Con tamaño por defecto (10 contactos)");
-        System.out.print("Seleccione una opción: ");
-
-        // Leemos la opción del usuario
-        // nextInt() lee un número entero del teclado
-        int opcionCreacion = scanner.nextInt();
-
-        // nextLine() consume el salto de línea que queda después de nextInt()
-        // Esto evita problemas al leer texto después
-        scanner.nextLine();
-
-        // Estructura if-else para decidir qué hacer según la opción
-        if (opcionCreacion == 1) {
-            // Opción 1: Tamaño personalizado
-            System.out.print("Ingrese el tamaño máximo de la agenda: ");
-            int tamanio = scanner.nextInt();
-            scanner.nextLine();  // Consumimos el salto de línea
+        // Si se indicó una carpeta de datos (java Main --datos carpeta),
+        // cargamos la agenda guardada y guardamos cada cambio en disco
+        if (carpetaDatos != null) {
+            agenda = new Agenda(Agenda.SIN_LIMITE);
+            try {
+                diario = DiarioAgenda.abrir(Paths.get(carpetaDatos), agenda);
+                System.out.println("Agenda cargada desde \"" + carpetaDatos + "\" ("
+                        + agenda.obtenerNumeroContactos() + " contactos).");
+            } catch (IOException e) {
+                // Si no se puede abrir, seguimos sin guardar en disco
+                System.out.println("Error: No se pudo abrir la carpeta de datos: " + e.getMessage());
+                System.out.println("La agenda funcionará solo en memoria.");
+                agenda = new Agenda(Agenda.SIN_LIMITE);
+            }
+        } else {
+            System.out.println("¿Cómo desea crear la agenda?");
+            System.out.println("1. Con tamaño personalizado");
+            System.out.println("2. Con tamaño por defecto (10 contactos)");
+            System.out.println("3. Sin límite (crece según se añaden contactos)");
+            System.out.print("Seleccione una opción: ");
 
-            // Validamos que el tamaño sea positivo
-            if (tamanio <= 0) {
-                System.out.println("Tamaño inválido. Se usará el tamaño por defecto (10).");
-                agenda = new Agenda();  // Usamos constructor sin parámetros
+            // Leemos la opción del usuario
+            // nextInt() lee un número entero del teclado
+            int opcionCreacion = scanner.nextInt();
+
+            // nextLine() consume el salto de línea que queda después de nextInt()
+            // Esto evita problemas al leer texto después
+            scanner.nextLine();
+
+            // Estructura if-else para decidir qué hacer según la opción
+            if (opcionCreacion == 1) {
+                // Opción 1: Tamaño personalizado
+                System.out.print("Ingrese el tamaño máximo de la agenda: ");
+                int tamanio = scanner.nextInt();
+                scanner.nextLine();  // Consumimos el salto de línea
+
+                // Validamos que el tamaño sea positivo
+                if (tamanio <= 0) {
+                    System.out.println("Tamaño inválido. Se usará el tamaño por defecto (10).");
+                    agenda = new Agenda();  // Usamos constructor sin parámetros
+                } else {
+                    agenda = new Agenda(tamanio);  // Usamos constructor con tamaño
+                }
+            } else if (opcionCreacion == 3) {
+                // Opción 3: Sin límite de contactos
+                agenda = new Agenda(Agenda.SIN_LIMITE);
+                System.out.println("Agenda creada sin límite de contactos.");
             } else {
-                agenda = new Agenda(tamanio);  // Usamos constructor con tamaño
+                // Opción 2 o cualquier otra: Tamaño por defecto
+                agenda = new Agenda();
+                System.out.println("Agenda creada con tamaño por defecto (10 contactos).");
             }
-        } else {
-            // Opción 2 o cualquier otra: Tamaño por defecto
-            agenda = new Agenda();
-            System.out.println("Agenda creada con tamaño por defecto (10 contactos).");
         }
 
+        // Listamos con las reglas del español: "Álvarez" junto a "Alvarez"
+        // y no detrás de "Zapata", y la "ñ" entre la "n" y la "o"
+        agenda.setOrdenAlfabetico(OrdenAlfabetico.ESPAÑOL);
+
         System.out.println();
 
         // ============================================================
@@ -110,7 +200,7 @@ public class Main {
                     break;
 
                 case 3:  // Listar contactos
-                    agenda.listarContactos();
+                    listarContactos(scanner, agenda);
                     break;
 
                 case 4:  // Buscar contacto
@@ -134,7 +224,23 @@ public class Main {
                     break;
 
                 case 8:  // Ver espacios libres
-                    agenda.mostrarEspaciosLibres();
+                    mostrarEspaciosLibres(agenda);
+                    break;
+
+                case 9:  // Buscar por prefijo
+                    buscarPorPrefijo(scanner, agenda);
+                    break;
+
+                case 10:  // Buscar por teléfono
+                    buscarPorTelefono(scanner, agenda);
+                    break;
+
+                case 11:  // Importar CSV
+                    importarCsv(scanner, agenda, diario);
+                    break;
+
+                case 12:  // Búsqueda aproximada
+                    buscarAproximado(scanner, agenda);
                     break;
 
                 case 0:  // Salir
@@ -154,6 +260,128 @@ public class Main {
         // Cerramos el Scanner para liberar recursos
         // Es buena práctica cerrar los recursos que abrimos
         scanner.close();
+
+        // Si guardábamos en disco, nos aseguramos de que todo quede escrito
+        if (diario != null) {
+            try {
+                diario.close();
+            } catch (IOException e) {
+                System.out.println("Error: No se pudieron guardar los últimos cambios: " + e.getMessage());
+            }
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: ejecutarServidor
+    // Modo servidor: abre la agenda (y su carpeta de datos, si se
+    // indicó) y la atiende por la red hasta que se pulsa Ctrl+C
+    // Sus métricas se pueden ver por JMX (jconsole) y, si se pidió,
+    // por pantalla cada "segundosMetricas" segundos
+    // ============================================================
+
+    private static void ejecutarServidor(int puerto, String carpetaDatos, int segundosMetricas) {
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        agenda.setOrdenAlfabetico(OrdenAlfabetico.ESPAÑOL);
+
+        try {
+            // El diario se abre antes de envolver la agenda: a partir
+            // de ahí solo se usa a través de AgendaConcurrente
+            DiarioAgenda diario = carpetaDatos == null ? null : DiarioAgenda.abrir(Paths.get(carpetaDatos), agenda);
+
+            // Las métricas se activan después de cargar el diario, así
+            // no cuentan los contactos que ya estaban guardados
+            MetricasAgenda metricas = agenda.activarMetricas();
+            try {
+                metricas.registrarEnJmx("servidor");
+            } catch (JMException e) {
+                System.out.println("Aviso: Las métricas no se pueden ver por JMX: " + e.getMessage());
+            }
+            if (segundosMetricas > 0) {
+                metricas.volcarCada(segundosMetricas, informe -> System.out.println("\n" + informe));
+            }
+
+            ServidorAgenda servidor = ServidorAgenda.iniciar(new AgendaConcurrente(agenda), puerto);
+
+            System.out.println("Servidor de la agenda escuchando en 127.0.0.1:" + servidor.getPuerto()
+                    + " (" + agenda.obtenerNumeroContactos() + " contactos).");
+            System.out.println("Pulse Ctrl+C para pararlo.");
+
+            // Ctrl+C no deja terminar main con normalidad: un "shutdown
+            // hook" es un hilo que Java ejecuta justo antes de salir
+            Thread alSalir = new Thread(() -> {
+                try {
+                    servidor.close();
+                    if (diario != null) {
+                        diario.close();
+                    }
+                } catch (IOException e) {
+                    System.out.println("Error: No se pudieron guardar los últimos cambios: " + e.getMessage());
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(alSalir);
+
+            // El hilo principal espera; el trabajo lo hacen los hilos del servidor
+            servidor.esperar();
+        } catch (IOException e) {
+            System.out.println("Error: No se pudo iniciar el servidor: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: ejecutarGuion
+    // Modo guion: ejecuta las órdenes de un fichero (o de la entrada
+    // estándar si es "-"), una por línea, con el mismo lenguaje que
+    // el servidor (add, exists, find, del, setphone, list y stats,
+    // campos separados por tabuladores, ver ProtocoloAgenda) y
+    // escribe cada respuesta en la salida estándar
+    //
+    // Nada de Scanner ni de menús: las líneas se leen con un
+    // BufferedReader y las respuestas se acumulan en un único
+    // BufferedWriter que solo se vacía cuando se llena y al terminar
+    // (System.out vaciaría la consola en cada salto de línea)
+    // Las líneas que empiezan por '#' son comentarios
+    // Los errores van a la salida de errores, para no mezclarse con
+    // las respuestas
+    // ============================================================
+
+    private static void ejecutarGuion(String guion, String carpetaDatos) {
+        Agenda agenda = new Agenda(Agenda.SIN_LIMITE);
+        agenda.setOrdenAlfabetico(OrdenAlfabetico.ESPAÑOL);
+
+        DiarioAgenda diario = null;
+        // try-with-resources cierra la entrada y la salida al terminar
+        // (cerrar la salida la vacía). FileDescriptor.out es la salida
+        // estándar sin el PrintStream de System.out por delante
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(
+                     guion.equals("-") ? System.in : Files.newInputStream(Paths.get(guion)),
+                     StandardCharsets.UTF_8), TAMANIO_BUFER_GUION);
+             Writer salida = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), TAMANIO_BUFER_GUION)) {
+
+            if (carpetaDatos != null) {
+                diario = DiarioAgenda.abrir(Paths.get(carpetaDatos), agenda);
+            }
+            ProtocoloAgenda protocolo = new ProtocoloAgenda(new AgendaConcurrente(agenda));
+
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                if (!linea.startsWith("#")) {
+                    protocolo.ejecutar(linea, salida);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error: No se pudo ejecutar el guion: " + e.getMessage());
+        } finally {
+            if (diario != null) {
+                try {
+                    diario.close();
+                } catch (IOException e) {
+                    System.err.println("Error: No se pudieron guardar los últimos cambios: " + e.getMessage());
+                }
+            }
+        }
     }
 
     // ============================================================
@@ -174,6 +402,10 @@ public class Main {
         System.out.println("║  6. Modificar teléfono de un contacto      ║");
         System.out.println("║  7. Verificar si la agenda está llena      ║");
         System.out.println("║  8. Ver espacios libres                    ║");
+        System.out.println("║  9. Buscar por inicio de nombre o apellido ║");
+        System.out.println("║ 10. Buscar contacto por teléfono           ║");
+        System.out.println("║ 11. Importar contactos desde CSV           ║");
+        System.out.println("║ 12. Buscar aunque el nombre esté mal       ║");
         System.out.println("║  0. Salir                                  ║");
         System.out.println("╚════════════════════════════════════════════╝");
     }
@@ -201,9 +433,28 @@ public class Main {
         // Creamos un nuevo objeto Contacto con los datos ingresados
         Contacto nuevoContacto = new Contacto(nombre, apellido, telefono);
 
-        // Intentamos añadir el contacto a la agenda
-        // El método añadirContacto() ya muestra los mensajes correspondientes
-        agenda.añadirContacto(nuevoContacto);
+        // Intentamos añadir el contacto y mostramos el mensaje
+        // que corresponde al resultado
+        switch (agenda.añadir(nuevoContacto)) {
+            case AÑADIDO:
+                System.out.println("Contacto añadido correctamente.");
+                break;
+            case NULO:
+                System.out.println("Error: El contacto no puede ser nulo.");
+                break;
+            case INVALIDO:
+                System.out.println("Error: El nombre y apellido no pueden estar vacíos.");
+                break;
+            case LLENA:
+                System.out.println("Error: La agenda está llena. No se pueden añadir más contactos.");
+                break;
+            case DUPLICADO:
+                System.out.println("Error: Ya existe un contacto con ese nombre y apellido.");
+                break;
+            case OTRA_AGENDA:
+                System.out.println("Error: El contacto ya pertenece a otra agenda.");
+                break;
+        }
     }
 
     // ============================================================
@@ -233,6 +484,54 @@ public class Main {
         }
     }
 
+    // ============================================================
+    // MÉTODO: listarContactos
+    // Muestra los contactos ordenados alfabéticamente, de 50 en 50
+    // Cada página se pide a la agenda con un cursor, así no se copia
+    // toda la agenda aunque tenga millones de contactos
+    // ============================================================
+
+    private static void listarContactos(Scanner scanner, Agenda agenda) {
+        // Verificamos si la agenda está vacía
+        if (agenda.obtenerNumeroContactos() == 0) {
+            System.out.println("La agenda está vacía.");
+            return;  // "return" sin valor termina el método (porque es void)
+        }
+
+        System.out.println("\n===== LISTA DE CONTACTOS =====");
+
+        CursorContactos cursor = null;  // null = desde el principio
+        int numero = 0;
+
+        while (true) {
+            // Pedimos uno más de los que mostramos para saber si hay más
+            List<Contacto> pagina = agenda.obtenerPagina(cursor, CONTACTOS_POR_PAGINA + 1);
+            boolean hayMas = pagina.size() > CONTACTOS_POR_PAGINA;
+
+            // StringBuilder junta todas las líneas y las imprime de una vez,
+            // que es mucho más rápido que un println por contacto
+            StringBuilder salida = new StringBuilder();
+            for (int i = 0; i < Math.min(pagina.size(), CONTACTOS_POR_PAGINA); i++) {
+                numero++;
+                // toString() se llama automáticamente al añadir un objeto
+                salida.append(numero).append(". ").append(pagina.get(i)).append('\n');
+            }
+            System.out.print(salida);
+
+            if (!hayMas) {
+                break;
+            }
+
+            System.out.print("¿Mostrar más contactos? (s/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("s")) {
+                break;
+            }
+            cursor = CursorContactos.despuesDe(pagina.get(CONTACTOS_POR_PAGINA - 1));
+        }
+
+        System.out.println("==============================\n");
+    }
+
     // ============================================================
     // MÉTODO: buscarContacto
     // Busca un contacto y muestra su información
@@ -248,9 +547,19 @@ public class Main {
         System.out.print("Ingrese el apellido: ");
         String apellido = scanner.nextLine();
 
-        // Llamamos al método de búsqueda de la agenda
-        // Este método ya muestra el resultado
-        agenda.buscaContacto(nombre, apellido);
+        // La agenda devuelve un Optional: vacío si no lo encontró
+        Optional<Contacto> encontrado = agenda.buscaContacto(nombre, apellido);
+
+        if (encontrado.isPresent()) {
+            // Encontramos el contacto, mostramos su información
+            Contacto c = encontrado.get();
+            System.out.println("Contacto encontrado:");
+            System.out.println("Nombre: " + c.getNombre());
+            System.out.println("Apellido: " + c.getApellido());
+            System.out.println("Teléfono: " + c.getTelefono());
+        } else {
+            System.out.println("No se ha encontrado ningún contacto con ese nombre y apellido.");
+        }
     }
 
     // ============================================================
@@ -271,9 +580,18 @@ public class Main {
         // Creamos un contacto temporal para la eliminación
         Contacto contactoEliminar = new Contacto(nombre, apellido, "");
 
-        // Intentamos eliminar el contacto
-        // El método eliminarContacto() ya muestra los mensajes
-        agenda.eliminarContacto(contactoEliminar);
+        // Intentamos eliminar el contacto y mostramos el resultado
+        switch (agenda.eliminar(contactoEliminar)) {
+            case ELIMINADO:
+                System.out.println("Contacto eliminado correctamente.");
+                break;
+            case NULO:
+                System.out.println("Error: El contacto no puede ser nulo.");
+                break;
+            case NO_ENCONTRADO:
+                System.out.println("Error: No se encontró el contacto a eliminar.");
+                break;
+        }
     }
 
     // ============================================================
@@ -295,8 +613,139 @@ public class Main {
         System.out.print("Ingrese el nuevo teléfono: ");
         String nuevoTelefono = scanner.nextLine();
 
-        // Llamamos al método de modificación
-        // El método ya muestra los mensajes correspondientes
-        agenda.modificarTelefono(nombre, apellido, nuevoTelefono);
+        // Llamamos al método de modificación y mostramos el resultado
+        if (agenda.modificarTelefono(nombre, apellido, nuevoTelefono)) {
+            System.out.println("Teléfono modificado correctamente.");
+            System.out.println("Nuevo teléfono de " + nombre + " " + apellido + ": " + nuevoTelefono);
+        } else {
+            System.out.println("Error: No se encontró ningún contacto con ese nombre y apellido.");
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: mostrarEspaciosLibres
+    // Muestra en pantalla la información de espacio disponible
+    // ============================================================
+
+    private static void mostrarEspaciosLibres(Agenda agenda) {
+        // Obtenemos los espacios libres
+        int libres = agenda.espaciosLibres();
+
+        // Mostramos la información
+        System.out.println("\n===== INFORMACIÓN DE LA AGENDA =====");
+        // Una agenda sin límite no tiene "espacios libres" que mostrar
+        if (agenda.getTamanioMaximo() == Agenda.SIN_LIMITE) {
+            System.out.println("Tamaño máximo de la agenda: sin límite");
+            System.out.println("Contactos actuales: " + agenda.obtenerNumeroContactos());
+            System.out.println("✓ Puedes agregar todos los contactos que quieras.");
+            System.out.println("=====================================\n");
+            return;
+        }
+
+        System.out.println("Tamaño máximo de la agenda: " + agenda.getTamanioMaximo());
+        System.out.println("Contactos actuales: " + agenda.obtenerNumeroContactos());
+        System.out.println("Espacios libres: " + libres);
+
+        // Verificamos si está llena
+        if (agenda.agendaLlena()) {
+            System.out.println("⚠ La agenda está llena. No hay espacio para nuevos contactos.");
+        } else {
+            System.out.println("✓ Puedes agregar " + libres + " contacto(s) más.");
+        }
+
+        System.out.println("=====================================\n");
+    }
+
+    // ============================================================
+    // MÉTODO: buscarPorPrefijo
+    // Muestra los contactos cuyo nombre o apellido empieza por
+    // el texto que escribe el usuario
+    // ============================================================
+
+    private static void buscarPorPrefijo(Scanner scanner, Agenda agenda) {
+        System.out.println("\n--- BUSCAR POR INICIO DE NOMBRE O APELLIDO ---");
+
+        System.out.print("Ingrese el principio del nombre o apellido: ");
+        String prefijo = scanner.nextLine();
+
+        // Pedimos como mucho 20 resultados para no llenar la pantalla
+        List<Contacto> encontrados = agenda.buscarPorPrefijo(prefijo, 20);
+
+        if (encontrados.isEmpty()) {
+            System.out.println("No se ha encontrado ningún contacto que empiece por \"" + prefijo + "\".");
+            return;
+        }
+
+        for (Contacto c : encontrados) {
+            System.out.println("- " + c);
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: buscarAproximado
+    // Muestra los contactos con un nombre parecido al que escribe
+    // el usuario, aunque tenga faltas ("Garsia" -> "García")
+    // ============================================================
+
+    private static void buscarAproximado(Scanner scanner, Agenda agenda) {
+        System.out.println("\n--- BUSCAR AUNQUE EL NOMBRE ESTÉ MAL ---");
+
+        System.out.print("Ingrese el nombre, el apellido o ambos: ");
+        String texto = scanner.nextLine();
+
+        // Como mucho 10 resultados: los más parecidos primero
+        List<Contacto> encontrados = agenda.buscarAproximado(texto, 10);
+
+        if (encontrados.isEmpty()) {
+            System.out.println("No se ha encontrado ningún contacto parecido a \"" + texto + "\".");
+            return;
+        }
+
+        for (Contacto c : encontrados) {
+            System.out.println("- " + c);
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: buscarPorTelefono
+    // Muestra a quién pertenece un número de teléfono
+    // ============================================================
+
+    private static void buscarPorTelefono(Scanner scanner, Agenda agenda) {
+        System.out.println("\n--- BUSCAR CONTACTO POR TELÉFONO ---");
+
+        System.out.print("Ingrese el teléfono: ");
+        String telefono = scanner.nextLine();
+
+        List<Contacto> encontrados = agenda.buscarPorTelefono(telefono);
+
+        if (encontrados.isEmpty()) {
+            System.out.println("No se ha encontrado ningún contacto con ese teléfono.");
+            return;
+        }
+
+        for (Contacto c : encontrados) {
+            System.out.println("- " + c);
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: importarCsv
+    // Carga contactos desde un fichero CSV (nombre,apellido,telefono)
+    // ============================================================
+
+    private static void importarCsv(Scanner scanner, Agenda agenda, DiarioAgenda diario) {
+        System.out.println("\n--- IMPORTAR CONTACTOS DESDE CSV ---");
+
+        System.out.print("Ingrese la ruta del fichero: ");
+        String ruta = scanner.nextLine();
+
+        try {
+            ImportadorCsv importador = new ImportadorCsv(agenda, diario, ImportadorCsv.TAMANIO_LOTE_POR_DEFECTO);
+            ImportadorCsv.Resumen resumen = importador.importar(Paths.get(ruta));
+            System.out.println("Importación terminada. " + resumen);
+        } catch (IOException e) {
+            System.out.println("Error: No se pudo leer el fichero: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,217 @@
+// ============================================================
+// CLASE METRICASAGENDA
+// Mide cuántas veces se llama a cada operación de una agenda y
+// cuánto tarda (con un HistogramaLatencias por operación), y cuánto
+// ocupan la agenda y sus índices
+//
+// Se activa con agenda.activarMetricas(). Con las métricas
+// desactivadas la agenda no mide nada; activadas, cada operación
+// cuesta dos llamadas a System.nanoTime() y unos incrementos
+// atómicos, sin crear ningún objeto
+//
+// Los resultados se pueden consultar:
+// - Con informe(), un texto con una tabla
+// - Cada cierto tiempo con volcarCada() (la agenda no escribe nada:
+//   quien lo llama decide adónde va el texto)
+// - Por JMX, con registrarEnJmx() (ver MetricasAgendaMXBean)
+// ============================================================
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricasAgenda implements MetricasAgendaMXBean {
+
+    // Operaciones que se miden, con el nombre del método público
+    public enum Operacion {
+        AÑADIR("añadirContacto"),
+        EXISTE("existeContacto"),
+        BUSCAR("buscaContacto"),
+        ELIMINAR("eliminarContacto"),
+        MODIFICAR_TELEFONO("modificarTelefono"),
+        LISTAR("listarContactos");
+
+        private final String metodo;
+
+        Operacion(String metodo) {
+            this.metodo = metodo;
+        }
+
+        public String getMetodo() {
+            return metodo;
+        }
+    }
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final Agenda agenda;
+
+    // Un histograma por operación, en el orden del enum
+    private final HistogramaLatencias[] latencias = new HistogramaLatencias[Operacion.values().length];
+
+    // Desde cuándo se cuenta (para las llamadas por segundo)
+    private volatile long inicio = System.nanoTime();
+
+    // Hilo que vuelca el informe cada cierto tiempo (null si no hay)
+    private ScheduledExecutorService volcador;
+
+    // Nombre con el que se registró en JMX (null si no se registró)
+    private ObjectName nombreJmx;
+
+    MetricasAgenda(Agenda agenda) {
+        this.agenda = agenda;
+        for (int i = 0; i < latencias.length; i++) {
+            latencias[i] = new HistogramaLatencias();
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: registrar
+    // Anota una llamada a "operacion" que empezó en "desde"
+    // (un valor de System.nanoTime() tomado al empezar)
+    // ============================================================
+
+    void registrar(Operacion operacion, long desde) {
+        latencias[operacion.ordinal()].registrar(System.nanoTime() - desde);
+    }
+
+    // ============================================================
+    // CONSULTAS
+    // Se pueden hacer desde otro hilo mientras la agenda trabaja:
+    // los números de ocupación pueden ir un poco por detrás
+    // ============================================================
+
+    @Override
+    public int getContactos() {
+        return agenda.obtenerNumeroContactos();
+    }
+
+    @Override
+    public int getEspaciosLibres() {
+        return agenda.espaciosLibres();
+    }
+
+    @Override
+    public int getTextosDistintos() {
+        return agenda.textosDistintos();
+    }
+
+    @Override
+    public int getTelefonosIndexados() {
+        return agenda.telefonosIndexados();
+    }
+
+    @Override
+    public int getTrigramasIndexados() {
+        return agenda.trigramasIndexados();
+    }
+
+    // Resumen de una operación
+    public ResumenOperacion resumen(Operacion operacion) {
+        HistogramaLatencias h = latencias[operacion.ordinal()];
+        long llamadas = h.cuenta();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        return new ResumenOperacion(operacion.getMetodo(), llamadas,
+                segundos > 0 ? llamadas / segundos : 0,
+                h.media() / 1000.0,
+                h.percentil(50) / 1000.0,
+                h.percentil(99) / 1000.0,
+                h.percentil(99.9) / 1000.0,
+                h.maximo() / 1000.0);
+    }
+
+    @Override
+    public List<ResumenOperacion> getOperaciones() {
+        List<ResumenOperacion> resumenes = new ArrayList<>();
+        for (Operacion operacion : Operacion.values()) {
+            resumenes.add(resumen(operacion));
+        }
+        return resumenes;
+    }
+
+    @Override
+    public String getInforme() {
+        return informe();
+    }
+
+    // Tabla con una fila por operación (tiempos en microsegundos)
+    // y una línea final con la ocupación
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %12s %10s %9s %9s %9s %9s %10s%n",
+                "operación", "llamadas", "por seg.", "media", "p50", "p99", "p999", "máximo"));
+        for (ResumenOperacion r : getOperaciones()) {
+            sb.append(String.format("%-18s %,12d %,10.0f %9.1f %9.1f %9.1f %9.1f %,10.1f%n",
+                    r.getOperacion(), r.getLlamadas(), r.getPorSegundo(), r.getMediaMicros(),
+                    r.getP50Micros(), r.getP99Micros(), r.getP999Micros(), r.getMaximoMicros()));
+        }
+        sb.append(String.format("contactos: %,d  libres: %,d  textos distintos: %,d  teléfonos: %,d  trigramas: %,d",
+                getContactos(), getEspaciosLibres(), getTextosDistintos(),
+                getTelefonosIndexados(), getTrigramasIndexados()));
+        return sb.toString();
+    }
+
+    @Override
+    public void reiniciar() {
+        for (HistogramaLatencias h : latencias) {
+            h.reiniciar();
+        }
+        inicio = System.nanoTime();
+    }
+
+    // ============================================================
+    // MÉTODOS: volcarCada / dejarDeVolcar
+    // Pasa el informe a "destino" cada "segundos" segundos desde un
+    // hilo aparte, por ejemplo: volcarCada(60, System.err::println)
+    // ============================================================
+
+    public synchronized void volcarCada(long segundos, Consumer<String> destino) {
+        dejarDeVolcar();
+        volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "metricas-agenda");
+            hilo.setDaemon(true);  // No impide que el programa termine
+            return hilo;
+        });
+        volcador.scheduleAtFixedRate(() -> destino.accept(informe()), segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    public synchronized void dejarDeVolcar() {
+        if (volcador != null) {
+            volcador.shutdownNow();
+            volcador = null;
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS: registrarEnJmx / quitarDeJmx
+    // Publica las métricas en el servidor JMX de la máquina virtual
+    // con el nombre "Agenda:type=Metricas,name=<nombre>"
+    // ============================================================
+
+    public synchronized ObjectName registrarEnJmx(String nombre) throws JMException {
+        quitarDeJmx();
+        ObjectName objeto = ObjectName.getInstance("Agenda:type=Metricas,name=" + ObjectName.quote(nombre));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objeto);
+        nombreJmx = objeto;
+        return objeto;
+    }
+
+    public synchronized void quitarDeJmx() throws JMException {
+        if (nombreJmx != null) {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (servidor.isRegistered(nombreJmx)) {
+                servidor.unregisterMBean(nombreJmx);
+            }
+            nombreJmx = null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// ============================================================
+// INTERFAZ METRICASAGENDAMXBEAN
+// Lo que se ve de MetricasAgenda desde JMX (por ejemplo con
+// jconsole o VisualVM, conectándose al programa en marcha)
+//
+// Java exige que la interfaz se llame como la clase terminada en
+// "MXBean". Cada getXxx() aparece como un atributo "Xxx" y los
+// demás métodos como operaciones que se pueden ejecutar
+// ============================================================
+
+import java.util.List;
+
+public interface MetricasAgendaMXBean {
+
+    // Ocupación de la agenda
+    int getContactos();
+
+    int getEspaciosLibres();
+
+    // Tamaño de los índices
+    int getTextosDistintos();
+
+    int getTelefonosIndexados();
+
+    int getTrigramasIndexados();
+
+    // Llamadas y tiempos de cada operación
+    List<ResumenOperacion> getOperaciones();
+
+    // Todo lo anterior como texto, en forma de tabla
+    String getInforme();
+
+    // Vuelve a contar desde cero
+    void reiniciar();
+}
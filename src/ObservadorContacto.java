@@ -0,0 +1,25 @@
+// ============================================================
+// INTERFAZ OBSERVADORCONTACTO
+// Permite que la agenda se entere de los cambios que se hacen
+// directamente sobre un contacto (por ejemplo con setNombre)
+// ============================================================
+
+// Una "interface" es un contrato: solo declara métodos, sin código
+// La clase que la implemente está obligada a escribir esos métodos
+interface ObservadorContacto {
+
+    // Se llama JUSTO ANTES de cambiar el nombre o el apellido
+    // En este momento el contacto todavía tiene los valores antiguos,
+    // así que el observador puede sacarlo de sus índices
+    void antesDeCambiarNombre(Contacto c);
+
+    // Se llama JUSTO DESPUÉS de cambiar el nombre o el apellido
+    // Ahora el contacto ya tiene los valores nuevos,
+    // así que el observador puede volver a meterlo en sus índices
+    void despuesDeCambiarNombre(Contacto c);
+
+    // Igual que los anteriores, pero para el teléfono
+    void antesDeCambiarTelefono(Contacto c);
+
+    void despuesDeCambiarTelefono(Contacto c);
+}
@@ -0,0 +1,80 @@
+// ============================================================
+// CLASE ORDENALFABETICO
+// Decide cómo se ordenan los contactos al listarlos
+//
+// - SIMPLE: letra a letra en minúsculas, según el número de cada
+//   letra en Unicode. Es rápido, pero las letras con tilde van
+//   después de la "z": "Álvarez" sale detrás de "Zapata"
+// - ESPAÑOL (o cualquier idioma con delIdioma): las reglas del
+//   idioma, con java.text.Collator. "Álvarez" va junto a "Alvarez",
+//   y la "ñ" va entre la "n" y la "o"
+//
+// Comparar con un Collator es lento, así que cada contacto guarda
+// su "clave de ordenación": unos bytes que el Collator calcula una
+// sola vez. Comparar dos contactos es entonces comparar sus bytes
+// La clave se borra al cambiar el nombre o el apellido
+// ============================================================
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class OrdenAlfabetico {
+
+    // Orden de siempre: letra a letra, sin reglas de idioma
+    public static final OrdenAlfabetico SIMPLE = new OrdenAlfabetico(null, "simple");
+
+    // Orden del español ("es-ES")
+    public static final OrdenAlfabetico ESPAÑOL = delIdioma(Locale.forLanguageTag("es-ES"));
+
+    // null en el orden SIMPLE
+    private final Collator collator;
+    private final String descripcion;
+
+    private OrdenAlfabetico(Collator collator, String descripcion) {
+        this.collator = collator;
+        this.descripcion = descripcion;
+    }
+
+    // Orden según las reglas de un idioma
+    public static OrdenAlfabetico delIdioma(Locale idioma) {
+        return new OrdenAlfabetico(Collator.getInstance(idioma), idioma.toLanguageTag());
+    }
+
+    // ============================================================
+    // MÉTODO: comparar
+    // Negativo si "a" va antes, 0 si da igual, positivo si "b" va antes
+    // ============================================================
+
+    int comparar(Contacto a, Contacto b) {
+        if (collator == null) {
+            return Contacto.compararNombreCompleto(a, b);
+        }
+        // Las claves son bytes sin signo: Arrays.compareUnsigned
+        // las compara igual que el Collator compararía los textos
+        return Arrays.compareUnsigned(a.claveOrden(this), b.claveOrden(this));
+    }
+
+    // Calcula ya la clave de ordenación de "c" (si este orden la usa)
+    // para que luego varios hilos puedan comparar sin calcularla
+    void prepararClave(Contacto c) {
+        if (collator != null) {
+            c.claveOrden(this);
+        }
+    }
+
+    // Clave de ordenación de "nombre apellido" (solo si hay Collator)
+    byte[] calcularClave(String nombre, String apellido) {
+        // String.valueOf(null) es "null", igual que en el orden SIMPLE
+        String completo = String.valueOf(nombre) + " " + String.valueOf(apellido);
+        // Un Collator no se puede usar desde varios hilos a la vez
+        synchronized (collator) {
+            return collator.getCollationKey(completo).toByteArray();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return descripcion;
+    }
+}
@@ -0,0 +1,26 @@
+// ============================================================
+// INTERFAZ OYENTEAGENDA
+// Recibe un aviso cada vez que cambia el contenido de una agenda
+// (por ejemplo, para guardar los cambios en disco)
+// ============================================================
+
+// Los métodos "default" ya traen un código (vacío) en la interfaz,
+// así quien la implemente solo escribe los avisos que le interesan
+public interface OyenteAgenda {
+
+    // Se ha añadido el contacto "c"
+    default void contactoAñadido(Contacto c) {
+    }
+
+    // Se ha eliminado el contacto "c" (ya no está en la agenda)
+    default void contactoEliminado(Contacto c) {
+    }
+
+    // El contacto "c" tiene un teléfono nuevo
+    default void telefonoModificado(Contacto c, String telefonoAnterior) {
+    }
+
+    // El contacto "c" ha cambiado de nombre o de apellido
+    default void contactoRenombrado(Contacto c, String nombreAnterior, String apellidoAnterior) {
+    }
+}
@@ -0,0 +1,23 @@
+// ============================================================
+// INTERFAZ OYENTECAMBIOS
+// Recibe por lotes los cambios de una agenda publicados por un
+// CanalCambios (ver CanalCambios.suscribir). Se llama siempre
+// desde el hilo de la suscripción, nunca desde el que cambia la
+// agenda: tardar aquí no frena a la agenda
+// ============================================================
+
+import java.util.List;
+
+public interface OyenteCambios {
+
+    // Cambios seguidos, en orden de secuencia (nunca vacío)
+    void recibir(List<CambioAgenda> lote);
+
+    // Los cambios de "primero" a "ultimo" (incluidos) se perdieron:
+    // el oyente se quedó tan atrás que el canal ya no los guardaba,
+    // o se suscribió más allá del último cambio publicado (su copia
+    // es de otra agenda o de antes de reiniciarla). Quien copie la agenda en otro sitio debería volver a copiarla
+    // entera (por ejemplo con agenda.contactos())
+    default void cambiosPerdidos(long primero, long ultimo) {
+    }
+}
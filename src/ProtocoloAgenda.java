@@ -0,0 +1,192 @@
+// ============================================================
+// CLASE PROTOCOLOAGENDA
+// Ejecuta órdenes de texto sobre una agenda, una por línea, y
+// escribe la respuesta. La usa ServidorAgenda para atender a
+// otros programas por la red
+//
+// Cada orden es una línea con los campos separados por tabuladores
+// (así los nombres pueden llevar espacios):
+//
+//   add       nombre  apellido  [telefono]   -> OK | ERR <motivo>
+//   exists    nombre  apellido               -> SI | NO
+//   find      nombre  apellido               -> OK nombre apellido telefono | NO
+//   del       nombre  apellido               -> OK | ERR <motivo>
+//   setphone  nombre  apellido  telefono     -> OK | NO
+//   list      [limite]                       -> OK <n> y después n líneas
+//                                               "nombre apellido telefono"
+//   stats                                    -> OK contactos libres maximo
+//
+// Las respuestas también separan sus campos con tabuladores y
+// ocupan siempre una línea (salvo "list", que avisa antes de
+// cuántas líneas vienen): quien envía varias órdenes seguidas sin
+// esperar sabe qué respuesta corresponde a cada una
+// ============================================================
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+class ProtocoloAgenda {
+
+    // Separador de campos en órdenes y respuestas
+    static final char SEPARADOR = '\t';
+
+    private final AgendaConcurrente agenda;
+
+    ProtocoloAgenda(AgendaConcurrente agenda) {
+        this.agenda = agenda;
+    }
+
+    // ============================================================
+    // MÉTODO: ejecutar
+    // Ejecuta una línea y escribe su respuesta (terminada en '\n')
+    // en "salida". Las líneas vacías no tienen respuesta
+    // ============================================================
+
+    void ejecutar(String linea, Appendable salida) throws IOException {
+        if (linea.isEmpty()) {
+            return;
+        }
+        String[] campos = linea.split("\t", -1);
+
+        switch (campos[0]) {
+            case "add":
+                if (campos.length < 3 || campos.length > 4) {
+                    error(salida, "ARGUMENTOS");
+                    return;
+                }
+                String telefono = campos.length == 4 && !campos[3].isEmpty() ? campos[3] : null;
+                ResultadoAlta alta = agenda.añadir(new Contacto(campos[1], campos[2], telefono));
+                if (alta == ResultadoAlta.AÑADIDO) {
+                    ok(salida);
+                } else {
+                    error(salida, alta.name());
+                }
+                return;
+
+            case "exists":
+                if (campos.length != 3) {
+                    error(salida, "ARGUMENTOS");
+                    return;
+                }
+                salida.append(agenda.buscar(campos[1], campos[2]).isPresent() ? "SI" : "NO").append('\n');
+                return;
+
+            case "find":
+                if (campos.length != 3) {
+                    error(salida, "ARGUMENTOS");
+                    return;
+                }
+                Optional<Contacto> encontrado = agenda.buscar(campos[1], campos[2]);
+                if (encontrado.isPresent()) {
+                    salida.append("OK").append(SEPARADOR);
+                    escribirContacto(salida, encontrado.get());
+                } else {
+                    salida.append("NO\n");
+                }
+                return;
+
+            case "del":
+                if (campos.length != 3) {
+                    error(salida, "ARGUMENTOS");
+                    return;
+                }
+                ResultadoBaja baja = agenda.eliminar(new Contacto(campos[1], campos[2], null));
+                if (baja == ResultadoBaja.ELIMINADO) {
+                    ok(salida);
+                } else {
+                    error(salida, baja.name());
+                }
+                return;
+
+            case "setphone":
+                if (campos.length != 4) {
+                    error(salida, "ARGUMENTOS");
+                    return;
+                }
+                salida.append(agenda.modificarTelefono(campos[1], campos[2], campos[3]) ? "OK" : "NO").append('\n');
+                return;
+
+            case "list":
+                listar(campos, salida);
+                return;
+
+            case "stats":
+                salida.append("OK").append(SEPARADOR)
+                        .append(String.valueOf(agenda.obtenerNumeroContactos())).append(SEPARADOR)
+                        .append(String.valueOf(agenda.espaciosLibres())).append(SEPARADOR)
+                        .append(String.valueOf(agenda.getTamanioMaximo())).append('\n');
+                return;
+
+            default:
+                error(salida, "ORDEN_DESCONOCIDA");
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // "list" o "list <limite>", en orden alfabético
+    private void listar(String[] campos, Appendable salida) throws IOException {
+        int limite = Integer.MAX_VALUE;
+        if (campos.length > 2) {
+            error(salida, "ARGUMENTOS");
+            return;
+        }
+        if (campos.length == 2) {
+            try {
+                limite = Integer.parseInt(campos[1]);
+            } catch (NumberFormatException e) {
+                limite = -1;
+            }
+            if (limite < 0) {
+                error(salida, "ARGUMENTOS");
+                return;
+            }
+        }
+
+        // Primero va el número de líneas, que tiene que ser exacto
+        // aunque otro hilo añada o borre mientras enviamos: pedimos
+        // la página entera de una vez (con el cerrojo de lectura)
+        List<Contacto> pagina = agenda.obtenerPagina((CursorContactos) null,
+                Math.min(limite, agenda.obtenerNumeroContactos()));
+        salida.append("OK").append(SEPARADOR).append(String.valueOf(pagina.size())).append('\n');
+        for (Contacto c : pagina) {
+            escribirContacto(salida, c);
+        }
+    }
+
+    private static void escribirContacto(Appendable salida, Contacto c) throws IOException {
+        escribirCampo(salida, c.getNombre());
+        salida.append(SEPARADOR);
+        escribirCampo(salida, c.getApellido());
+        salida.append(SEPARADOR);
+        escribirCampo(salida, c.getTelefono());
+        salida.append('\n');
+    }
+
+    // Un tabulador o salto de línea dentro de un dato rompería el
+    // formato: se envían como espacios (null se envía vacío)
+    private static void escribirCampo(Appendable salida, String texto) throws IOException {
+        if (texto == null) {
+            return;
+        }
+        if (texto.indexOf('\t') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            salida.append(texto);  // Lo normal: se envía tal cual
+            return;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            salida.append(ch == '\t' || ch == '\n' || ch == '\r' ? ' ' : ch);
+        }
+    }
+
+    private static void ok(Appendable salida) throws IOException {
+        salida.append("OK\n");
+    }
+
+    private static void error(Appendable salida, String motivo) throws IOException {
+        salida.append("ERR").append(SEPARADOR).append(motivo).append('\n');
+    }
+}
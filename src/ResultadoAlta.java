@@ -0,0 +1,17 @@
+// ============================================================
+// ENUM RESULTADOALTA
+// Los posibles resultados de intentar añadir un contacto
+// ============================================================
+
+// Un "enum" es un tipo con una lista cerrada de valores posibles
+// Es más claro que devolver números mágicos (0, 1, 2...)
+public enum ResultadoAlta {
+    AÑADIDO,      // Se añadió correctamente
+    NULO,         // El contacto era null
+    INVALIDO,     // Nombre o apellido vacíos
+    LLENA,        // La agenda no admite más contactos
+    DUPLICADO,    // Ya hay un contacto con ese nombre y apellido
+    OTRA_AGENDA,  // Ese objeto contacto ya está en otra agenda
+    CANCELADO     // Se podía añadir, pero otro contacto de su lote
+                  // falló y el lote era "todo o nada"
+}
@@ -0,0 +1,12 @@
+// ============================================================
+// ENUM RESULTADOBAJA
+// Los posibles resultados de intentar eliminar un contacto
+// ============================================================
+
+public enum ResultadoBaja {
+    ELIMINADO,      // Se eliminó correctamente
+    NULO,           // El contacto era null
+    NO_ENCONTRADO,  // No había ningún contacto con ese nombre y apellido
+    CANCELADO       // Se podía eliminar, pero otro contacto de su lote
+                    // falló y el lote era "todo o nada"
+}
@@ -0,0 +1,12 @@
+// ============================================================
+// ENUM RESULTADOTELEFONO
+// Los posibles resultados de cambiar el teléfono de un contacto
+// dentro de un lote (ver Agenda.modificarTelefonos)
+// ============================================================
+
+public enum ResultadoTelefono {
+    MODIFICADO,     // Se cambió el teléfono
+    NO_ENCONTRADO,  // No había ningún contacto con ese nombre y apellido
+    CANCELADO       // Se podía cambiar, pero otro contacto de su lote
+                    // falló y el lote era "todo o nada"
+}
@@ -0,0 +1,64 @@
+// ============================================================
+// CLASE RESUMENOPERACION
+// Foto de las métricas de una operación de la agenda: cuántas
+// veces se llamó y cuánto tardó (ver MetricasAgenda)
+// Los tiempos van en microsegundos
+// ============================================================
+
+public final class ResumenOperacion {
+
+    private final String operacion;
+    private final long llamadas;
+    private final double porSegundo;
+    private final double mediaMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maximoMicros;
+
+    ResumenOperacion(String operacion, long llamadas, double porSegundo, double mediaMicros,
+                     double p50Micros, double p99Micros, double p999Micros, double maximoMicros) {
+        this.operacion = operacion;
+        this.llamadas = llamadas;
+        this.porSegundo = porSegundo;
+        this.mediaMicros = mediaMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maximoMicros = maximoMicros;
+    }
+
+    // Nombre del método medido (por ejemplo "añadirContacto")
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public long getLlamadas() {
+        return llamadas;
+    }
+
+    // Llamadas por segundo desde que se activaron (o reiniciaron) las métricas
+    public double getPorSegundo() {
+        return porSegundo;
+    }
+
+    public double getMediaMicros() {
+        return mediaMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaximoMicros() {
+        return maximoMicros;
+    }
+}
@@ -0,0 +1,265 @@
+// ============================================================
+// CLASE SERVIDORAGENDA
+// Permite usar la agenda desde otros programas a través de una
+// conexión TCP en el propio ordenador (127.0.0.1)
+//
+// Cada conexión envía órdenes de texto, una por línea, y recibe
+// una respuesta por orden (ver ProtocoloAgenda). Se puede probar con:
+//   printf 'add\tAna\tRuiz\t600112233\nfind\tana\truiz\n' | nc 127.0.0.1 7070
+//
+// - Cada conexión tiene su propio hilo, que se pasa casi todo el
+//   tiempo esperando datos. Con Java 21 o posterior se usan hilos
+//   virtuales (miles de conexiones cuestan muy poca memoria); con
+//   versiones anteriores, hilos normales
+// - Se pueden enviar muchas órdenes seguidas sin esperar cada
+//   respuesta ("pipelining"): las respuestas se acumulan y se
+//   envían juntas cuando no quedan órdenes por leer
+// - Las órdenes usan una AgendaConcurrente, así varias conexiones
+//   pueden leer a la vez sin estropear la agenda
+// - Una línea de más de LONGITUD_MAXIMA_LINEA caracteres recibe
+//   "ERR LINEA_LARGA" y se cierra la conexión: un cliente que envía
+//   datos sin saltos de línea no puede llenar la memoria
+// ============================================================
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ServidorAgenda implements Closeable {
+
+    // Puerto por defecto de "java Main --servidor"
+    public static final int PUERTO_POR_DEFECTO = 7070;
+
+    // Tamaño de los búferes de lectura y escritura de cada conexión
+    private static final int TAMANIO_BUFER = 64 * 1024;
+
+    // Caracteres que puede tener una orden como mucho
+    static final int LONGITUD_MAXIMA_LINEA = 64 * 1024;
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    private final ProtocoloAgenda protocolo;
+    private final ServerSocket servidor;
+    private final ExecutorService hilos;
+
+    // Hilo que acepta las conexiones nuevas (termina al cerrar)
+    private Thread aceptador;
+
+    // Conexiones abiertas, para cerrarlas al parar el servidor
+    private final Set<Socket> conexiones = ConcurrentHashMap.newKeySet();
+
+    // volatile: lo cambia close() y lo leen los demás hilos
+    private volatile boolean cerrado = false;
+
+    // ============================================================
+    // MÉTODO: iniciar
+    // Abre el puerto (0 = el sistema elige uno libre) y empieza a
+    // aceptar conexiones en otro hilo: el método vuelve enseguida
+    // ============================================================
+
+    public static ServidorAgenda iniciar(AgendaConcurrente agenda, int puerto) throws IOException {
+        ServidorAgenda servidor = new ServidorAgenda(agenda, puerto);
+        servidor.aceptador = new Thread(servidor::aceptarConexiones, "servidor-agenda-" + servidor.getPuerto());
+        servidor.aceptador.setDaemon(true);
+        servidor.aceptador.start();
+        return servidor;
+    }
+
+    private ServidorAgenda(AgendaConcurrente agenda, int puerto) throws IOException {
+        this.protocolo = new ProtocoloAgenda(agenda);
+        // Solo escuchamos en 127.0.0.1: desde otro ordenador no se puede conectar
+        this.servidor = new ServerSocket(puerto, 128, InetAddress.getLoopbackAddress());
+        this.hilos = crearHilos();
+    }
+
+    // Puerto en el que escucha (útil si se pidió el 0)
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    // Espera hasta que alguien cierre el servidor
+    public void esperar() throws InterruptedException {
+        aceptador.join();
+    }
+
+    // ============================================================
+    // MÉTODO: close
+    // Deja de aceptar conexiones y cierra las que estaban abiertas
+    // ============================================================
+
+    @Override
+    public void close() throws IOException {
+        cerrado = true;
+        servidor.close();
+        for (Socket s : conexiones) {
+            s.close();
+        }
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Bucle del hilo aceptador: cada conexión nueva va a su propio hilo
+    private void aceptarConexiones() {
+        while (!cerrado) {
+            try {
+                Socket conexion = servidor.accept();
+                // Las respuestas pequeñas salen enseguida, sin esperar a juntar más
+                conexion.setTcpNoDelay(true);
+                conexiones.add(conexion);
+                try {
+                    hilos.execute(() -> atender(conexion));
+                } catch (RejectedExecutionException e) {
+                    // Los hilos ya se están parando (close() llegó entre
+                    // accept() y aquí): nadie atendería esta conexión
+                    conexiones.remove(conexion);
+                    cerrarSinFallar(conexion);
+                    break;
+                }
+            } catch (IOException e) {
+                // close() cierra el ServerSocket y accept() falla: es la
+                // salida normal. Otro fallo solo afecta a esa conexión
+                // (como la agenda, el servidor no escribe nada por pantalla)
+            }
+        }
+    }
+
+    // Lee órdenes de una conexión hasta que el cliente la cierra
+    private void atender(Socket conexion) {
+        try (Socket s = conexion;
+             Reader lector = new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8);
+             BufferedWriter salida = new BufferedWriter(
+                     new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), TAMANIO_BUFER)) {
+
+            LectorLineas entrada = new LectorLineas(lector);
+            String linea;
+            while ((linea = entrada.leerLinea()) != null) {
+                protocolo.ejecutar(linea, salida);
+
+                // Si el cliente ya envió más órdenes, las atendemos antes
+                // de enviar nada: así muchas respuestas viajan juntas
+                if (!entrada.hayMas()) {
+                    salida.flush();
+                }
+            }
+            if (entrada.esDemasiadoLarga()) {
+                salida.append("ERR").append(ProtocoloAgenda.SEPARADOR).append("LINEA_LARGA").append('\n');
+            }
+            salida.flush();
+        } catch (IOException e) {
+            // El cliente cortó la conexión o paramos el servidor: solo
+            // se pierde esta conexión, las demás siguen funcionando
+        } finally {
+            conexiones.remove(conexion);
+        }
+    }
+
+    private static void cerrarSinFallar(Socket conexion) {
+        try {
+            conexion.close();
+        } catch (IOException e) {
+            // Ya no hay nada que hacer con ella
+        }
+    }
+
+    // Un hilo virtual por conexión si la versión de Java los tiene
+    // (Java 21+); si no, hilos normales que se reutilizan entre
+    // conexiones. Se busca el método por su nombre para que el
+    // programa compile y funcione también con Java 17
+    private static ExecutorService crearHilos() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(tarea -> {
+                Thread hilo = new Thread(tarea, "conexion-agenda");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    // ============================================================
+    // CLASE INTERNA: LectorLineas
+    // Como BufferedReader.readLine, pero sin dejar que una línea
+    // crezca más allá de LONGITUD_MAXIMA_LINEA: readLine guardaría
+    // en memoria todo lo que el cliente envíe hasta el salto de línea
+    // ============================================================
+
+    private static final class LectorLineas {
+
+        private final Reader entrada;
+        private final char[] bufer = new char[TAMANIO_BUFER];
+        private int posicion = 0;
+        private int fin = 0;
+        private final StringBuilder linea = new StringBuilder();
+        private boolean demasiadoLarga = false;
+
+        LectorLineas(Reader entrada) {
+            this.entrada = entrada;
+        }
+
+        // Siguiente línea sin el salto ('\n' o "\r\n"); null al
+        // terminar la conexión o si la línea es demasiado larga
+        String leerLinea() throws IOException {
+            linea.setLength(0);
+            while (true) {
+                if (posicion == fin) {
+                    int leidos = entrada.read(bufer, 0, bufer.length);
+                    if (leidos < 0) {
+                        return linea.length() > 0 ? linea.toString() : null;
+                    }
+                    posicion = 0;
+                    fin = leidos;
+                }
+                int inicio = posicion;
+                while (posicion < fin && bufer[posicion] != '\n') {
+                    posicion++;
+                }
+                linea.append(bufer, inicio, posicion - inicio);
+                if (linea.length() > LONGITUD_MAXIMA_LINEA) {
+                    demasiadoLarga = true;
+                    return null;
+                }
+                if (posicion < fin) {
+                    posicion++;  // El '\n'
+                    int largo = linea.length();
+                    if (largo > 0 && linea.charAt(largo - 1) == '\r') {
+                        linea.setLength(largo - 1);
+                    }
+                    return linea.toString();
+                }
+            }
+        }
+
+        // ¿Hay más datos ya recibidos que leer sin esperar?
+        boolean hayMas() throws IOException {
+            return posicion < fin || entrada.ready();
+        }
+
+        boolean esDemasiadoLarga() {
+            return demasiadoLarga;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+// ============================================================
+// CLASE TABLAPERSISTENTE
+// Tabla hash "persistente": nunca se modifica. poner() y quitar()
+// devuelven una tabla NUEVA y la antigua sigue igual, así quien la
+// esté leyendo no ve nunca un cambio a medias
+//
+// No se copia entera en cada cambio: es un árbol de 32 ramas
+// (HAMT, "hash array mapped trie") donde cada nivel usa 5 bits del
+// hash. Un cambio solo copia los nodos del camino hasta la hoja
+// (unos pocos, de como mucho 32 referencias cada uno) y el resto
+// se comparte entre la versión antigua y la nueva
+//
+// Las claves son las de Contacto.claveDe (nombre y apellido sin
+// importar mayúsculas) y los valores, contactos
+// ============================================================
+
+import java.util.Arrays;
+
+final class TablaPersistente {
+
+    // Tabla vacía (se comparte: como no cambia, basta con una)
+    static final TablaPersistente VACIA = new TablaPersistente(new Nodo(0, new Object[0]), 0);
+
+    private static final int BITS = 5;
+    private static final int MASCARA = (1 << BITS) - 1;
+
+    private final Nodo raiz;
+    private final int tamanio;
+
+    private TablaPersistente(Nodo raiz, int tamanio) {
+        this.raiz = raiz;
+        this.tamanio = tamanio;
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    // ============================================================
+    // NODOS
+    // Un nodo solo guarda las ramas que existen: "mapa" tiene un bit
+    // a 1 por cada una y "hijos" las guarda juntas, en orden. La
+    // posición de la rama b es el número de bits a 1 por debajo de b
+    // Cada hijo es una Hoja, otro Nodo o una Colision
+    // ============================================================
+
+    private static final class Nodo {
+        final int mapa;
+        final Object[] hijos;
+
+        Nodo(int mapa, Object[] hijos) {
+            this.mapa = mapa;
+            this.hijos = hijos;
+        }
+    }
+
+    private static final class Hoja {
+        final int hash;
+        final String clave;
+        final Contacto valor;
+
+        Hoja(int hash, String clave, Contacto valor) {
+            this.hash = hash;
+            this.clave = clave;
+            this.valor = valor;
+        }
+    }
+
+    // Claves distintas con el hash entero igual (muy raro)
+    private static final class Colision {
+        final int hash;
+        final Hoja[] hojas;
+
+        Colision(int hash, Hoja[] hojas) {
+            this.hash = hash;
+            this.hojas = hojas;
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: buscar
+    // ============================================================
+
+    Contacto buscar(String clave) {
+        int hash = hashDe(clave);
+        Object actual = raiz;
+        for (int desplazamiento = 0; ; desplazamiento += BITS) {
+            if (actual instanceof Nodo) {
+                Nodo nodo = (Nodo) actual;
+                int bit = 1 << ((hash >>> desplazamiento) & MASCARA);
+                if ((nodo.mapa & bit) == 0) {
+                    return null;
+                }
+                actual = nodo.hijos[Integer.bitCount(nodo.mapa & (bit - 1))];
+            } else if (actual instanceof Hoja) {
+                Hoja hoja = (Hoja) actual;
+                return hoja.hash == hash && hoja.clave.equals(clave) ? hoja.valor : null;
+            } else {
+                for (Hoja hoja : ((Colision) actual).hojas) {
+                    if (hoja.clave.equals(clave)) {
+                        return hoja.valor;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    // ============================================================
+    // MÉTODO: poner
+    // Devuelve una tabla con "clave" asociada a "valor" (la
+    // sustituye si ya estaba)
+    // ============================================================
+
+    TablaPersistente poner(String clave, Contacto valor) {
+        Hoja nueva = new Hoja(hashDe(clave), clave, valor);
+        boolean[] añadida = new boolean[1];
+        Nodo nuevaRaiz = (Nodo) poner(raiz, nueva, 0, añadida);
+        return new TablaPersistente(nuevaRaiz, tamanio + (añadida[0] ? 1 : 0));
+    }
+
+    private static Object poner(Object actual, Hoja nueva, int desplazamiento, boolean[] añadida) {
+        if (actual instanceof Nodo) {
+            Nodo nodo = (Nodo) actual;
+            int bit = 1 << ((nueva.hash >>> desplazamiento) & MASCARA);
+            int posicion = Integer.bitCount(nodo.mapa & (bit - 1));
+            if ((nodo.mapa & bit) == 0) {
+                // Rama nueva: copiamos el nodo con un hueco más
+                Object[] hijos = new Object[nodo.hijos.length + 1];
+                System.arraycopy(nodo.hijos, 0, hijos, 0, posicion);
+                hijos[posicion] = nueva;
+                System.arraycopy(nodo.hijos, posicion, hijos, posicion + 1, nodo.hijos.length - posicion);
+                añadida[0] = true;
+                return new Nodo(nodo.mapa | bit, hijos);
+            }
+            // La rama existe: copiamos el nodo cambiando solo ese hijo
+            Object[] hijos = nodo.hijos.clone();
+            hijos[posicion] = poner(nodo.hijos[posicion], nueva, desplazamiento + BITS, añadida);
+            return new Nodo(nodo.mapa, hijos);
+        }
+
+        if (actual instanceof Hoja) {
+            Hoja hoja = (Hoja) actual;
+            if (hoja.hash == nueva.hash && hoja.clave.equals(nueva.clave)) {
+                return nueva;  // Misma clave: sustituimos el valor
+            }
+            añadida[0] = true;
+            if (hoja.hash == nueva.hash) {
+                return new Colision(hoja.hash, new Hoja[] {hoja, nueva});
+            }
+            // Hashes distintos: bajamos un nivel con las dos hojas
+            return unir(hoja, nueva, desplazamiento);
+        }
+
+        Colision colision = (Colision) actual;
+        if (colision.hash != nueva.hash) {
+            // Mismo camino hasta aquí pero hash distinto: lo separamos
+            añadida[0] = true;
+            Nodo nodo = new Nodo(1 << ((colision.hash >>> desplazamiento) & MASCARA), new Object[] {colision});
+            return poner(nodo, nueva, desplazamiento, new boolean[1]);
+        }
+        Hoja[] hojas = colision.hojas;
+        for (int i = 0; i < hojas.length; i++) {
+            if (hojas[i].clave.equals(nueva.clave)) {
+                Hoja[] copia = hojas.clone();
+                copia[i] = nueva;
+                return new Colision(colision.hash, copia);
+            }
+        }
+        añadida[0] = true;
+        Hoja[] copia = Arrays.copyOf(hojas, hojas.length + 1);
+        copia[hojas.length] = nueva;
+        return new Colision(colision.hash, copia);
+    }
+
+    // Nodo (o cadena de nodos) que separa dos hojas de hash distinto
+    private static Nodo unir(Hoja a, Hoja b, int desplazamiento) {
+        int ramaA = (a.hash >>> desplazamiento) & MASCARA;
+        int ramaB = (b.hash >>> desplazamiento) & MASCARA;
+        if (ramaA == ramaB) {
+            return new Nodo(1 << ramaA, new Object[] {unir(a, b, desplazamiento + BITS)});
+        }
+        return ramaA < ramaB
+                ? new Nodo((1 << ramaA) | (1 << ramaB), new Object[] {a, b})
+                : new Nodo((1 << ramaA) | (1 << ramaB), new Object[] {b, a});
+    }
+
+    // ============================================================
+    // MÉTODO: quitar
+    // Devuelve una tabla sin "clave" (la misma si no estaba)
+    // ============================================================
+
+    TablaPersistente quitar(String clave) {
+        Object nuevaRaiz = quitar(raiz, hashDe(clave), clave, 0);
+        if (nuevaRaiz == raiz) {
+            return this;
+        }
+        return new TablaPersistente(nuevaRaiz == null ? VACIA.raiz : (Nodo) nuevaRaiz, tamanio - 1);
+    }
+
+    // Devuelve el hijo sin la clave: el mismo objeto si no estaba y
+    // null si se ha quedado vacío
+    private static Object quitar(Object actual, int hash, String clave, int desplazamiento) {
+        if (actual instanceof Hoja) {
+            Hoja hoja = (Hoja) actual;
+            return hoja.hash == hash && hoja.clave.equals(clave) ? null : hoja;
+        }
+
+        if (actual instanceof Colision) {
+            Colision colision = (Colision) actual;
+            Hoja[] hojas = colision.hojas;
+            for (int i = 0; i < hojas.length; i++) {
+                if (hojas[i].clave.equals(clave)) {
+                    if (hojas.length == 2) {
+                        return hojas[1 - i];  // Queda una sola: vuelve a ser hoja
+                    }
+                    Hoja[] copia = new Hoja[hojas.length - 1];
+                    System.arraycopy(hojas, 0, copia, 0, i);
+                    System.arraycopy(hojas, i + 1, copia, i, hojas.length - i - 1);
+                    return new Colision(colision.hash, copia);
+                }
+            }
+            return colision;
+        }
+
+        Nodo nodo = (Nodo) actual;
+        int bit = 1 << ((hash >>> desplazamiento) & MASCARA);
+        if ((nodo.mapa & bit) == 0) {
+            return nodo;
+        }
+        int posicion = Integer.bitCount(nodo.mapa & (bit - 1));
+        Object hijo = nodo.hijos[posicion];
+        Object nuevoHijo = quitar(hijo, hash, clave, desplazamiento + BITS);
+        if (nuevoHijo == hijo) {
+            return nodo;
+        }
+        if (nuevoHijo != null) {
+            Object[] hijos = nodo.hijos.clone();
+            hijos[posicion] = nuevoHijo;
+            return new Nodo(nodo.mapa, hijos);
+        }
+        if (nodo.hijos.length == 1) {
+            return null;
+        }
+        Object[] hijos = new Object[nodo.hijos.length - 1];
+        System.arraycopy(nodo.hijos, 0, hijos, 0, posicion);
+        System.arraycopy(nodo.hijos, posicion + 1, hijos, posicion, hijos.length - posicion);
+        return new Nodo(nodo.mapa & ~bit, hijos);
+    }
+
+    // String.hashCode() con los bits mezclados, para que las claves
+    // parecidas no compartan los primeros niveles
+    private static int hashDe(String clave) {
+        int h = clave.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
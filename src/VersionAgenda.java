@@ -0,0 +1,124 @@
+// ============================================================
+// CLASE VERSIONAGENDA
+// Una versión de una AgendaVersionada: los contactos tal como
+// estaban justo después de un cambio. Nunca cambia, así que se
+// puede leer desde cualquier hilo, durante el tiempo que haga
+// falta, sin cerrojos y sin ver nunca un cambio a medias
+//
+// Pedirla cuesta lo mismo que leer una variable (no copia nada):
+// cada cambio de la agenda crea una versión nueva que comparte con
+// la anterior casi todos sus datos (ver TablaPersistente y
+// ArbolPersistente)
+//
+// Los contactos que devuelve son copias: cambiarlas no cambia la
+// agenda ni esta versión
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public final class VersionAgenda {
+
+    // ============================================================
+    // ATRIBUTOS
+    // ============================================================
+
+    // Agenda de la que sale (para no volver a la versión de otra)
+    final AgendaVersionada agenda;
+
+    private final long numero;
+
+    // Los mismos contactos dos veces: por clave (nombre y apellido
+    // sin mayúsculas) para buscar y en orden alfabético para listar
+    final TablaPersistente porClave;
+    final ArbolPersistente ordenados;
+
+    VersionAgenda(AgendaVersionada agenda, long numero, TablaPersistente porClave, ArbolPersistente ordenados) {
+        this.agenda = agenda;
+        this.numero = numero;
+        this.porClave = porClave;
+        this.ordenados = ordenados;
+    }
+
+    // Número de la versión: 0 es la agenda vacía y cada cambio
+    // publica la siguiente
+    public long getNumero() {
+        return numero;
+    }
+
+    public int obtenerNumeroContactos() {
+        return porClave.tamanio();
+    }
+
+    public OrdenAlfabetico getOrdenAlfabetico() {
+        return ordenados.getOrden();
+    }
+
+    // ============================================================
+    // BÚSQUEDAS
+    // ============================================================
+
+    public boolean existeContacto(Contacto c) {
+        return c != null && buscado(c.getNombre(), c.getApellido()) != null;
+    }
+
+    public Optional<Contacto> buscaContacto(String nombre, String apellido) {
+        Contacto encontrado = buscado(nombre, apellido);
+        return encontrado == null ? Optional.empty() : Optional.of(copia(encontrado));
+    }
+
+    // El contacto guardado (no una copia), o null
+    Contacto buscado(String nombre, String apellido) {
+        String clave = Contacto.claveDe(nombre, apellido);
+        return clave == null ? null : porClave.buscar(clave);
+    }
+
+    // ============================================================
+    // LISTADOS (en orden alfabético)
+    // ============================================================
+
+    public List<Contacto> listarContactos() {
+        return copias(ordenados.pagina(0, ordenados.tamanio()));
+    }
+
+    public List<Contacto> obtenerPagina(int desde, int cantidad) {
+        return copias(ordenados.pagina(desde, cantidad));
+    }
+
+    public List<Contacto> obtenerPagina(CursorContactos despuesDe, int limite) {
+        return copias(ordenados.paginaDespuesDe(despuesDe == null ? null : despuesDe.sonda(), limite));
+    }
+
+    // Todos los contactos de esta versión, leídos por tandas. Aunque
+    // la agenda siga cambiando, el Stream recorre siempre esta versión
+    public Stream<Contacto> contactos() {
+        return CursorContactos.recorrer(this::obtenerPagina, null);
+    }
+
+    @Override
+    public String toString() {
+        return "versión " + numero + " (" + obtenerNumeroContactos() + " contactos)";
+    }
+
+    // ============================================================
+    // MÉTODOS INTERNOS
+    // ============================================================
+
+    // Copia con el mismo número de llegada, para que los cursores
+    // hechos con ella (CursorContactos.despuesDe) sigan valiendo
+    static Contacto copia(Contacto c) {
+        Contacto copia = new Contacto(c.getNombre(), c.getApellido(), c.getTelefono());
+        copia.secuencia = c.secuencia;
+        return copia;
+    }
+
+    private static List<Contacto> copias(List<Contacto> guardados) {
+        List<Contacto> resultado = new ArrayList<>(guardados.size());
+        for (Contacto c : guardados) {
+            resultado.add(copia(c));
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,141 @@
+// ============================================================
+// CLASE VISTAORDENADA
+// Mantiene los contactos de la agenda ordenados alfabéticamente
+// en todo momento, para que listar no tenga que ordenar nada
+// ============================================================
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// "implements Iterable" permite recorrerla con un bucle for-each
+class VistaOrdenada implements Iterable<Contacto> {
+
+    // ============================================================
+    // CRITERIO DE ORDEN
+    // ============================================================
+
+    // Un Comparator decide cuál de dos contactos va primero
+    // 1º) Por nombre completo, según el OrdenAlfabetico elegido
+    // 2º) Si coinciden, el que entró antes en la agenda va primero
+    private static Comparator<Contacto> criterio(OrdenAlfabetico orden) {
+        return (a, b) -> {
+            int resultado = orden.comparar(a, b);
+            if (resultado != 0) {
+                return resultado;
+            }
+            return Long.compare(a.secuencia, b.secuencia);
+        };
+    }
+
+    private OrdenAlfabetico orden = OrdenAlfabetico.SIMPLE;
+
+    // TreeSet es un árbol que guarda sus elementos siempre ordenados
+    // Añadir y quitar cuesta O(log N) y recorrerlo en orden es lineal
+    private TreeSet<Contacto> contactos = new TreeSet<>(criterio(orden));
+
+    // ============================================================
+    // MÉTODO: cambiarOrden
+    // Vuelve a ordenar todos los contactos con otro criterio
+    // ============================================================
+
+    void cambiarOrden(OrdenAlfabetico nuevoOrden) {
+        if (nuevoOrden == orden) {
+            return;
+        }
+        TreeSet<Contacto> nuevos = new TreeSet<>(criterio(nuevoOrden));
+        orden = nuevoOrden;
+        for (Contacto c : contactos) {
+            nuevos.add(c);
+        }
+        contactos = nuevos;
+    }
+
+    OrdenAlfabetico getOrden() {
+        return orden;
+    }
+
+    // ============================================================
+    // MÉTODOS PARA MANTENER LA VISTA AL DÍA
+    // ============================================================
+
+    void añadir(Contacto c) {
+        contactos.add(c);
+    }
+
+    // Añade muchos de una vez, ya ordenados: si son muchos se rehace
+    // el árbol en tiempo lineal y si no, cada uno baja por casi el
+    // mismo camino que el anterior, que ya está en la caché del
+    // procesador (ver ArbolesOrdenados)
+    void añadirTodos(List<Contacto> nuevos) {
+        List<Contacto> enOrden = new ArrayList<>(nuevos);
+        enOrden.sort(contactos.comparator());
+        contactos = ArbolesOrdenados.añadirOrdenados(contactos, enOrden);
+    }
+
+    // Hay que llamarlo ANTES de cambiar el nombre o apellido del contacto,
+    // porque el árbol lo busca usando su posición (su nombre actual)
+    void eliminar(Contacto c) {
+        contactos.remove(c);
+    }
+
+    // ============================================================
+    // MÉTODO: iterator
+    // Devuelve los contactos uno a uno en orden alfabético
+    // ============================================================
+
+    @Override
+    public Iterator<Contacto> iterator() {
+        return contactos.iterator();
+    }
+
+    // ============================================================
+    // MÉTODO: pagina
+    // Devuelve como mucho "cantidad" contactos, saltándose los
+    // "desde" primeros, sin copiar ni ordenar toda la agenda
+    // ============================================================
+
+    List<Contacto> pagina(int desde, int cantidad) {
+        List<Contacto> resultado = new ArrayList<>(Math.max(0, Math.min(cantidad, contactos.size() - desde)));
+        int posicion = 0;
+
+        for (Contacto c : contactos) {
+            if (resultado.size() >= cantidad) {
+                break;  // Ya tenemos la página completa
+            }
+            if (posicion >= desde) {
+                resultado.add(c);
+            }
+            posicion++;
+        }
+
+        return resultado;
+    }
+
+    // ============================================================
+    // MÉTODO: paginaDespuesDe
+    // Devuelve como mucho "cantidad" contactos que van después de
+    // "sonda" en el orden (o desde el principio si es null)
+    // El árbol salta directamente a esa posición: no recorre los
+    // contactos anteriores como hace pagina(desde, cantidad)
+    // ============================================================
+
+    List<Contacto> paginaDespuesDe(Contacto sonda, int cantidad) {
+        NavigableSet<Contacto> resto = sonda == null ? contactos : contactos.tailSet(sonda, false);
+        // (size() de una vista parcial del árbol la recorre entera, así
+        // que reservamos sitio según el tamaño total)
+        List<Contacto> resultado = new ArrayList<>(Math.max(0, Math.min(cantidad, contactos.size())));
+
+        for (Contacto c : resto) {
+            if (resultado.size() >= cantidad) {
+                break;
+            }
+            resultado.add(c);
+        }
+
+        return resultado;
+    }
+}